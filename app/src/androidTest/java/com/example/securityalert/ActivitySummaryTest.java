@@ -0,0 +1,133 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the trigger-maintained summary tables agree with counting the
+ * Alerts table directly through inserts, reads and archiving.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ActivitySummaryTest {
+
+    private static final String VIEWER = "viewer@campus.edu";
+    private static final long NOW = 1700000000000L;
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+        helper.addGroup("Family", "asha@campus.edu", VIEWER);
+        helper.addGroup("Other", "asha@campus.edu", "someone@campus.edu");
+        helper.addGroup("Mine", VIEWER, VIEWER);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void newAlerts_areCountedPerGroupAndUnread() {
+        save("asha@campus.edu", NOW - 30 * DatabaseHelper.HOUR_MS, "Family", "Other");
+        long[] recent = save("asha@campus.edu", NOW - DatabaseHelper.HOUR_MS, "Family", "Other");
+        save(VIEWER, NOW, "Mine");
+
+        DashboardSummary summary = helper.getDashboardSummary(VIEWER, NOW);
+
+        assertEquals(2, summary.groups.size());
+        GroupActivity mine = summary.groups.get(0);
+        GroupActivity family = summary.groups.get(1);
+        assertEquals("Mine", mine.groupName);
+        assertEquals(Long.valueOf(NOW), mine.lastAlertAt);
+        assertEquals(2, family.alertCount);
+        assertEquals(2, family.unreadCount);
+        assertEquals(1, family.lastDayCount);
+        assertEquals(Long.valueOf(NOW - DatabaseHelper.HOUR_MS), family.lastAlertAt);
+        assertEquals(3, summary.unreadCount);
+        assertEquals(2, summary.lastDayCount);
+        assertEquals(Long.valueOf(NOW), summary.lastAlertAt);
+        assertCountsMatchAlerts(summary);
+        assertEquals(recent[0], lastAlertId(family.groupId));
+    }
+
+    @Test
+    public void markAlertsRead_onlyCountsEachAlertOnce() {
+        long[] ids = save("asha@campus.edu", NOW, "Family", "Other");
+
+        assertEquals(2, helper.markAlertsRead(ids));
+        assertEquals(0, helper.markAlertsRead(ids));
+
+        DashboardSummary summary = helper.getDashboardSummary(VIEWER, NOW);
+        assertEquals(0, summary.unreadCount);
+        assertEquals(1, summary.groups.get(0).alertCount);
+        assertCountsMatchAlerts(summary);
+    }
+
+    @Test
+    public void archiving_removesAlertsFromTheCounts() {
+        long[] older = save("asha@campus.edu", NOW - DatabaseHelper.HOUR_MS, "Family");
+        long[] newest = save("asha@campus.edu", NOW, "Family");
+
+        helper.archiveAlerts(newest, NOW);
+
+        DashboardSummary summary = helper.getDashboardSummary(VIEWER, NOW);
+        GroupActivity family = summary.groups.get(0);
+        assertEquals(1, family.alertCount);
+        assertEquals(1, family.lastDayCount);
+        assertEquals(Long.valueOf(NOW - DatabaseHelper.HOUR_MS), family.lastAlertAt);
+        assertEquals(older[0], lastAlertId(family.groupId));
+        assertCountsMatchAlerts(summary);
+    }
+
+    @Test
+    public void oldHours_areDroppedAsNewAlertsArrive() {
+        save("asha@campus.edu", NOW - 100 * DatabaseHelper.HOUR_MS, "Family");
+        save("asha@campus.edu", NOW, "Family");
+
+        long groupId = helper.getDashboardSummary(VIEWER, NOW).groups.get(0).groupId;
+        assertEquals(1, count("SELECT COUNT(*) FROM GroupAlertHours WHERE groupId=?", String.valueOf(groupId)));
+    }
+
+    private long[] save(String sender, long createdAt, String... groups) {
+        Alert alert = new Alert(0, sender, "SOS", null, "now", null, null);
+        alert.createdAt = createdAt;
+        return helper.saveAlertToGroups(alert, Arrays.asList(groups));
+    }
+
+    private void assertCountsMatchAlerts(DashboardSummary summary) {
+        for (GroupActivity group : summary.groups) {
+            String id = String.valueOf(group.groupId);
+            assertEquals(count("SELECT COUNT(*) FROM Alerts WHERE groupId=?", id), group.alertCount);
+            assertEquals(count("SELECT COUNT(*) FROM Alerts WHERE groupId=? AND isRead=0", id), group.unreadCount);
+        }
+    }
+
+    private long lastAlertId(long groupId) {
+        return count("SELECT lastAlertId FROM GroupAlertStats WHERE groupId=?", String.valueOf(groupId));
+    }
+
+    private long count(String sql, String... args) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery(sql, args);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the old one-insert-per-group SOS loop with the batched
+ * saveAlertToGroups path on a real database file, so fsync cost is included.
+ * Commits are counted from the write-ahead log, not assumed. Each path gets its
+ * own file, warm-up rounds and the same number of rows, so the averages written
+ * to logcat under the "FanOutBenchmark" tag are comparable.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertFanOutBenchmarkTest {
+
+    private static final String TAG = "FanOutBenchmark";
+    private static final String LOOP_DB = "fanout-loop-benchmark.db";
+    private static final String BATCH_DB = "fanout-batch-benchmark.db";
+    private static final int GROUP_COUNT = 30;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    // SQLite WAL layout: a 32-byte file header, then per frame a 24-byte header
+    // and one page. A frame header's second word is non-zero only on the last
+    // frame of a committed transaction.
+    private static final int WAL_HEADER_SIZE = 32;
+    private static final int WAL_FRAME_HEADER_SIZE = 24;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private List<String> groups;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(LOOP_DB);
+        context.deleteDatabase(BATCH_DB);
+        groups = new ArrayList<>();
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            groups.add("Group " + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(LOOP_DB);
+        context.deleteDatabase(BATCH_DB);
+    }
+
+    @Test
+    public void batchedFanOut_commitsOnceAndWritesEveryGroup() throws IOException {
+        long[] loop = measure(LOOP_DB, false);
+        long[] batch = measure(BATCH_DB, true);
+
+        Log.i(TAG, "groups=" + GROUP_COUNT + " rounds=" + ROUNDS + " warmUp=" + WARM_UP_ROUNDS);
+        Log.i(TAG, "loop:  commits/alert=" + loop[0] + " avg=" + (loop[1] / ROUNDS / 1000) + "us");
+        Log.i(TAG, "batch: commits/alert=" + batch[0] + " avg=" + (batch[1] / ROUNDS / 1000) + "us");
+
+        // saveAlert commits once per group; saveAlertToGroups commits once per call.
+        assertEquals(GROUP_COUNT, loop[0]);
+        assertEquals(1, batch[0]);
+    }
+
+    // Returns {commits per alert, total nanos over the measured rounds}.
+    private long[] measure(String dbName, boolean batched) throws IOException {
+        helper = new DatabaseHelper(context, dbName);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            send(batched);
+        }
+        disableAutoCheckpoint(db);
+
+        File wal = new File(context.getDatabasePath(dbName).getPath() + "-wal");
+        long commits = 0;
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            truncateWal(db);
+            long start = SystemClock.elapsedRealtimeNanos();
+            send(batched);
+            nanos += SystemClock.elapsedRealtimeNanos() - start;
+            commits += countCommits(wal);
+        }
+        assertEquals((WARM_UP_ROUNDS + ROUNDS) * GROUP_COUNT, helper.getAllAlerts().size());
+        helper.close();
+        helper = null;
+        return new long[]{commits / ROUNDS, nanos};
+    }
+
+    private void send(boolean batched) {
+        if (batched) {
+            long[] ids = helper.saveAlertToGroups(new Alert(0, "a@b.com", "SOS", "1, 2", "now", null, null), groups);
+            assertEquals(GROUP_COUNT, ids.length);
+            for (long id : ids) {
+                assertTrue(id > 0);
+            }
+        } else {
+            for (String group : groups) {
+                assertTrue(helper.saveAlert("a@b.com", "SOS", "1, 2", "now", null, group));
+            }
+        }
+    }
+
+    // Otherwise a checkpoint partway through a round restarts the log and loses
+    // frames. The setting is per connection; inside a transaction the PRAGMA runs
+    // on the writer connection, the one that checkpoints after its commits.
+    private static void disableAutoCheckpoint(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            pragma(db, "wal_autocheckpoint=0");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Copies the log into the database and empties it, so the next round's
+    // commits are the only frames in it.
+    private static void truncateWal(SQLiteDatabase db) {
+        assertEquals("Checkpoint was blocked", 0, pragma(db, "wal_checkpoint(TRUNCATE)"));
+    }
+
+    private static long pragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Commit frames in the log whose salt matches the header; frames left over
+    // from an earlier, longer log carry an old salt.
+    private static long countCommits(File wal) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(wal, "r");
+        try {
+            if (file.length() < WAL_HEADER_SIZE) {
+                return 0;
+            }
+            file.seek(8);
+            int pageSize = file.readInt();
+            file.seek(16);
+            int salt1 = file.readInt();
+            int salt2 = file.readInt();
+            long commits = 0;
+            for (long frame = WAL_HEADER_SIZE; frame + WAL_FRAME_HEADER_SIZE + pageSize <= file.length();
+                 frame += WAL_FRAME_HEADER_SIZE + pageSize) {
+                file.seek(frame + 4);
+                int sizeAfterCommit = file.readInt();
+                if (file.readInt() != salt1 || file.readInt() != salt2) {
+                    break;
+                }
+                if (sizeAfterCommit != 0) {
+                    commits++;
+                }
+            }
+            return commits;
+        } finally {
+            file.close();
+        }
+    }
+}
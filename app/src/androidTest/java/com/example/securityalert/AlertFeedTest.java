@@ -0,0 +1,122 @@
+package com.example.securityalert;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the membership feed shows exactly the alerts of groups the viewer
+ * owns or belongs to, newest first, across pages, refreshes and search.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertFeedTest {
+
+    private static final String VIEWER = "viewer@campus.edu";
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+        helper.registerUser("Viewer", VIEWER, "+44 20 7946 0000", "secret");
+        helper.addGroup("Family", "asha@campus.edu", VIEWER);
+        helper.addGroup("Hostel", "ravi@campus.edu", "+442079460000");
+        helper.addGroup("Mine", VIEWER, VIEWER);
+        helper.addGroup("Other", "asha@campus.edu", "someone@campus.edu");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void feed_containsOwnedAndMemberGroupsOnly() {
+        List<Long> visible = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            visible.add(save("asha@campus.edu", "Family", "Other")[0]);
+            visible.add(save("ravi@campus.edu", "Hostel")[0]);
+            save("ravi@campus.edu", "Unknown");
+            if (i % 5 == 0) {
+                visible.add(save(VIEWER, "Mine")[0]);
+            }
+        }
+        helper.saveAlert("asha@campus.edu", "SOS", "Home", "now", null, "Family");
+        visible.add(newestId());
+        helper.saveAlert("asha@campus.edu", "SOS", "Home", "now", null, "Other");
+
+        List<Long> paged = new ArrayList<>();
+        long beforeId = Long.MAX_VALUE;
+        List<Alert> page;
+        while (!(page = helper.getFeedPage(VIEWER, beforeId, 7)).isEmpty()) {
+            for (Alert alert : page) {
+                paged.add((long) alert.id);
+            }
+            beforeId = page.get(page.size() - 1).id;
+        }
+
+        assertEquals(newestFirst(visible), paged);
+    }
+
+    @Test
+    public void feedFrom_returnsEverythingNewerThanTheOldestShown() {
+        long first = save("asha@campus.edu", "Family")[0];
+        save("asha@campus.edu", "Other");
+        long second = save("ravi@campus.edu", "Hostel")[0];
+        long third = save(VIEWER, "Mine")[0];
+
+        List<Alert> window = helper.getFeedFrom(VIEWER, first, 500);
+
+        assertEquals(3, window.size());
+        assertEquals(third, window.get(0).id);
+        assertEquals(second, window.get(1).id);
+        assertEquals(first, window.get(2).id);
+    }
+
+    @Test
+    public void strangerWithoutGroups_seesNothing() {
+        save("asha@campus.edu", "Family", "Other");
+
+        assertTrue(helper.getFeedPage("stranger@campus.edu", Long.MAX_VALUE, 30).isEmpty());
+    }
+
+    @Test
+    public void search_onlyReturnsVisibleAlerts() {
+        long[] ids = save("asha@campus.edu", "Family", "Other");
+
+        long[] found = helper.searchVisibleAlertIds(AlertSearch.toMatchQuery("sos"), VIEWER,
+                AlertSearch.MAX_CANDIDATES);
+
+        assertArrayEquals(new long[]{ids[0]}, found);
+        assertEquals(2, helper.searchAlertIds(AlertSearch.toMatchQuery("sos"), AlertSearch.MAX_CANDIDATES).length);
+    }
+
+    private long[] save(String sender, String... groups) {
+        Alert alert = new Alert(0, sender, "SOS", null, "now", null, null);
+        return helper.saveAlertToGroups(alert, Arrays.asList(groups));
+    }
+
+    private long newestId() {
+        return helper.getAlertsPage(Long.MAX_VALUE, 1).get(0).id;
+    }
+
+    private static List<Long> newestFirst(List<Long> ids) {
+        List<Long> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted, Collections.<Long>reverseOrder());
+        return sorted;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.securityalert;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks what the grid-backed location queries return: exact radius and box
+ * filtering of the cell candidates, boxes across the antimeridian, and paging
+ * through cells whose candidates mostly fail the filter.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertGeoQueryTest {
+
+    // Bengaluru; the 0.05 degree cell around it spans 12.95-13.00 N, 77.55-77.60 E.
+    private static final double LAT = 12.97;
+    private static final double LNG = 77.59;
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void near_keepsOnlyAlertsWithinTheRadius() {
+        long centre = save(LAT, LNG);
+        // About 2.2 km north.
+        long inside = save(LAT + 0.02, LNG);
+        // About 3.1 km away, inside the bounding box but outside the circle.
+        save(LAT + 0.02, LNG + 0.02);
+        save(13.5, LNG);
+        helper.saveAlertToGroups(new Alert(0, "a@b.com", "SOS", "Location unavailable", "now", null, null),
+                Arrays.asList("Family"));
+
+        assertEquals(Arrays.asList(inside, centre), ids(helper.getAlertsNear(LAT, LNG, 3, 10)));
+        assertEquals(Arrays.asList(inside), ids(helper.getAlertsNear(LAT, LNG, 3, 1)));
+        assertEquals(Arrays.asList(centre), ids(helper.getAlertsNear(LAT, LNG, 1, 10)));
+    }
+
+    @Test
+    public void box_acrossTheAntimeridian() {
+        long east = save(-17, 179.9);
+        long west = save(-17, -179.9);
+        save(-17, 179.7);
+        save(-17, 0);
+        save(-10, 179.9);
+
+        // minLng > maxLng: from 179.8 E eastwards over 180 to 179.8 W.
+        assertEquals(Arrays.asList(west, east), ids(helper.getAlertsInBox(-20, -15, 179.8, -179.8, 10)));
+        // A circle on the antimeridian reaches both sides, about 10.5 km each.
+        assertEquals(Arrays.asList(west, east), ids(helper.getAlertsNear(-17, 179.999, 15, 10)));
+    }
+
+    @Test
+    public void near_pagesPastCandidatesOutsideTheRadius() {
+        // All in the one cell the 0.5 km query reads; most of them about 1.2 km out.
+        List<Long> inside = new ArrayList<>();
+        for (int i = 0; i < DatabaseHelper.MIN_CELL_PAGE * 4; i++) {
+            if (i % 70 == 0) {
+                inside.add(save(LAT, LNG + 0.001));
+            } else {
+                save(LAT + 0.005, LNG - 0.01);
+            }
+        }
+        Collections.reverse(inside);
+        assertEquals(3, inside.size());
+
+        assertEquals(inside, ids(helper.getAlertsNear(LAT, LNG, 0.5, 10)));
+        assertEquals(inside.subList(0, 2), ids(helper.getAlertsNear(LAT, LNG, 0.5, 2)));
+        assertTrue(helper.getAlertsNear(LAT + 0.01, LNG + 0.009, 0.2, 10).isEmpty());
+    }
+
+    private long save(double latitude, double longitude) {
+        Alert alert = new Alert(0, "a@b.com", "SOS", null, "now", null, null);
+        alert.latitude = latitude;
+        alert.longitude = longitude;
+        return helper.saveAlertToGroups(alert, Arrays.asList("Family"))[0];
+    }
+
+    private static List<Long> ids(List<Alert> alerts) {
+        List<Long> ids = new ArrayList<>();
+        for (Alert alert : alerts) {
+            ids.add((long) alert.id);
+        }
+        return ids;
+    }
+}
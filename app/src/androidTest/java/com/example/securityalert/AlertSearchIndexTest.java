@@ -0,0 +1,80 @@
+package com.example.securityalert;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the AlertSearch index follows every DatabaseHelper writer and that
+ * results come back ranked and in id order as requested.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertSearchIndexTest {
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void newAlerts_areSearchableByPrefix() {
+        long[] ids = helper.saveAlertToGroups(
+                new Alert(0, "asha@campus.edu", "Help near the library", null, "now", null, null),
+                Arrays.asList("Campus Friends", "Family"));
+
+        assertEquals(2, search("lib").length);
+        assertEquals(2, search("ASHA").length);
+        assertArrayEquals(new long[]{ids[0]}, search("campus fri"));
+        assertEquals(0, search("hostel").length);
+    }
+
+    @Test
+    public void locationUpdate_replacesIndexedLabel() {
+        long[] ids = helper.saveAlertToGroups(
+                new Alert(0, "asha@campus.edu", "SOS", "Locating...", "now", null, null),
+                Arrays.asList("Family"));
+        helper.updateAlertLocation(ids, "North gate", 12.9, 77.5, 10f);
+
+        assertArrayEquals(ids, search("north"));
+        assertEquals(0, search("locating").length);
+    }
+
+    @Test
+    public void betterMatches_rankFirst() {
+        long senderMatch = helper.saveAlertToGroups(
+                new Alert(0, "ravi@campus.edu", "SOS", null, "now", null, null), Arrays.asList("Family"))[0];
+        long messageMatch = helper.saveAlertToGroups(
+                new Alert(0, "asha@campus.edu", "Following ravi home", null, "now", null, null),
+                Arrays.asList("Family"))[0];
+
+        long[] ranked = search("ravi");
+        assertArrayEquals(new long[]{senderMatch, messageMatch}, ranked);
+
+        List<Alert> alerts = helper.getAlertsByIds(ranked);
+        assertEquals(senderMatch, alerts.get(0).id);
+        assertEquals(messageMatch, alerts.get(1).id);
+    }
+
+    private long[] search(String input) {
+        return helper.searchAlertIds(AlertSearch.toMatchQuery(input), AlertSearch.MAX_CANDIDATES);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.securityalert;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link CompactionJob} against a real database file and a scratch photo
+ * folder: retention per group, photo garbage collection and file shrinking.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompactionJobTest {
+
+    private static final String DB_NAME = "compaction-test.db";
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1700000000000L;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private File photoDir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = new DatabaseHelper(context, DB_NAME);
+        photoDir = new File(context.getCacheDir(), "compaction-photos");
+        deleteRecursively(photoDir);
+        assertTrue(photoDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+        deleteRecursively(photoDir);
+    }
+
+    @Test
+    public void archivesPerGroupRetention() {
+        long[] old = save(NOW - 60 * DAY_MS, null, "Campus", "Family");
+        long[] recent = save(NOW - 5 * DAY_MS, null, "Campus", "Family");
+        Map<String, Integer> groups = new HashMap<>();
+        groups.put("Campus", 30);
+
+        CompactionJob.Stats stats = new CompactionJob(helper, new RetentionPolicy(365, groups), photoDir, NOW)
+                .runToCompletion();
+
+        // Only the 60-day-old Campus alert is past its group's 30 days.
+        assertEquals(1, stats.archived);
+        assertEquals(3, helper.getAllAlerts().size());
+        assertTrue(helper.getAlertsByIds(new long[]{old[0]}).isEmpty());
+        assertEquals(2, helper.getAlertsByIds(recent).size());
+        assertEquals(1, helper.searchAlertIds("campus*", AlertSearch.MAX_CANDIDATES).length);
+    }
+
+    @Test
+    public void keptRowsSharingOneCreatedAt_doNotStallTheScan() {
+        // More kept rows at one timestamp than a batch holds, as an SOS fan-out
+        // or backfilled legacy rows produce, ahead of alerts that are due.
+        List<String> keptGroups = new ArrayList<>();
+        Map<String, Integer> groups = new HashMap<>();
+        for (int i = 0; i < CompactionJob.ARCHIVE_BATCH_SIZE + 20; i++) {
+            keptGroups.add("Kept " + i);
+            groups.put("Kept " + i, 365);
+        }
+        Alert kept = new Alert(0, "a@b.com", "SOS", null, "then", null, null);
+        kept.createdAt = NOW - 60 * DAY_MS;
+        helper.saveAlertToGroups(kept, keptGroups);
+        long[] due = save(NOW - 40 * DAY_MS, null, "Campus");
+
+        CompactionJob.Stats stats = new CompactionJob(helper, new RetentionPolicy(30, groups), photoDir, NOW)
+                .runToCompletion();
+
+        assertEquals(1, stats.archived);
+        assertTrue(helper.getAlertsByIds(due).isEmpty());
+        assertEquals(CompactionJob.ARCHIVE_BATCH_SIZE + 20, helper.getAllAlerts().size());
+    }
+
+    @Test
+    public void deletesOnlyUnreferencedPhotosPastGracePeriod() throws IOException {
+        File kept = photo("JPEG_kept.jpg", NOW - 10 * DAY_MS);
+        File keptThumb = photo("JPEG_kept_thumb.jpg", NOW - 10 * DAY_MS);
+        File archived = photo("JPEG_archived.jpg", NOW - 10 * DAY_MS);
+        File cancelled = photo("JPEG_cancelled.jpg", NOW - 10 * DAY_MS);
+        File cancelledThumb = photo("JPEG_cancelled_thumb.jpg", NOW - 10 * DAY_MS);
+        File justTaken = photo("JPEG_new.jpg", NOW - 60 * 1000);
+        save(NOW - DAY_MS, kept.getAbsolutePath(), "Family");
+        save(NOW - 400 * DAY_MS, archived.getAbsolutePath(), "Family");
+
+        CompactionJob.Stats stats = new CompactionJob(helper,
+                new RetentionPolicy(365, Collections.<String, Integer>emptyMap()), photoDir, NOW).runToCompletion();
+
+        assertEquals(1, stats.archived);
+        assertEquals(2, stats.photosDeleted);
+        assertTrue(kept.exists());
+        assertTrue(keptThumb.exists());
+        assertTrue("Archived alerts keep their evidence", archived.exists());
+        assertFalse(cancelled.exists());
+        assertFalse(cancelledThumb.exists());
+        assertTrue("Inside the grace period", justTaken.exists());
+    }
+
+    @Test
+    public void archivingShrinksTheFile() {
+        for (int i = 0; i < 500; i++) {
+            // Distinct words, so every alert also has a sizeable search index entry.
+            StringBuilder message = new StringBuilder();
+            for (int w = 0; w < 200; w++) {
+                message.append("w").append(i).append('x').append(w).append(' ');
+            }
+            Alert alert = new Alert(0, "a@b.com", message.toString(), null, "then", null, null);
+            alert.createdAt = NOW - 400 * DAY_MS;
+            helper.saveAlertToGroups(alert, Arrays.asList("Family"));
+        }
+        assertTrue(helper.isIncrementalVacuumEnabled());
+        long pagesBefore = helper.getPageCount();
+
+        CompactionJob.Stats stats = new CompactionJob(helper,
+                new RetentionPolicy(365, Collections.<String, Integer>emptyMap()), photoDir, NOW).runToCompletion();
+
+        assertEquals(500, stats.archived);
+        assertEquals(0, helper.getFreePageCount());
+        // The archive keeps the text, so the file shrinks by what the merged search
+        // index, the live table's indexes and the outbox no longer hold.
+        assertTrue(stats.pagesFreed > 0);
+        assertTrue(helper.getPageCount() < pagesBefore);
+    }
+
+    private long[] save(long createdAt, String photoPath, String... groups) {
+        Alert alert = new Alert(0, "a@b.com", "SOS", null, "then", photoPath, null);
+        alert.createdAt = createdAt;
+        return helper.saveAlertToGroups(alert, Arrays.asList(groups));
+    }
+
+    private File photo(String name, long lastModified) throws IOException {
+        File file = new File(photoDir, name);
+        assertTrue(file.createNewFile());
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
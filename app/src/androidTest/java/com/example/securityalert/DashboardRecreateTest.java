@@ -0,0 +1,175 @@
+package com.example.securityalert;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+
+import androidx.core.content.ContextCompat;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * The SOS saves its alert before the camera opens and attaches the photo when
+ * the camera returns. Drives a real SOS and recreates the dashboard while the
+ * send is still on the writer thread, so the new instance has to find the rows
+ * itself; the photo and location must still land on them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DashboardRecreateTest {
+
+    private static final String EMAIL = "asha@campus.edu";
+    private static final String GROUP = "Recreate test";
+    private static final String MEMBER = "bob@campus.edu";
+    private static final long TIMEOUT_MS = 10000;
+
+    private Context context;
+    private Instrumentation instrumentation;
+    private SessionCache sessionCache;
+    private DatabaseHelper helper;
+    private Instrumentation.ActivityMonitor camera;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        sessionCache = SessionCache.getInstance(context);
+        sessionCache.signIn(new User(1, "Asha", EMAIL, "5550100", null));
+        helper = DatabaseHelper.getInstance(context);
+        helper.addGroup(GROUP, EMAIL, MEMBER);
+        // Stands in for the camera app: answers at once with a captured photo.
+        camera = instrumentation.addMonitor(new IntentFilter(MediaStore.ACTION_IMAGE_CAPTURE),
+                new Instrumentation.ActivityResult(Activity.RESULT_OK, null), true);
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.removeMonitor(camera);
+        helper.removeMember(GROUP, EMAIL, MEMBER);
+        sessionCache.signOut();
+    }
+
+    @Test
+    public void recreateDuringSend_attachesPhotoToTheSavedRows() throws InterruptedException {
+        ActivityScenario<DashboardActivity> scenario = ActivityScenario.launch(DashboardActivity.class);
+        try {
+            final AtomicReference<String> photoPath = new AtomicReference<>();
+            SQLiteDatabase db = helper.getWritableDatabase();
+            // Holding the write lock keeps the send queued until the first instance is gone.
+            db.beginTransaction();
+            try {
+                scenario.onActivity(new ActivityScenario.ActivityAction<DashboardActivity>() {
+                    @Override
+                    public void perform(DashboardActivity activity) {
+                        activity.pressEmergency();
+                    }
+                });
+                // Delivers the camera's result to the first instance.
+                instrumentation.waitForIdleSync();
+                scenario.onActivity(new ActivityScenario.ActivityAction<DashboardActivity>() {
+                    @Override
+                    public void perform(DashboardActivity activity) {
+                        assertNull("The send has not committed yet", activity.sosAlertIds);
+                        photoPath.set(activity.currentPhotoPath);
+                    }
+                });
+                assertNotNull(photoPath.get());
+                assertEquals(1, camera.getHits());
+
+                scenario.recreate();
+            } finally {
+                db.endTransaction();
+            }
+
+            // One row per group the user owns; the test group is one of them.
+            long[] ids = awaitAlertIds(scenario);
+            assertTrue(ids.length >= 1);
+            boolean locationDenied = ContextCompat.checkSelfPermission(context,
+                    Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED;
+            for (long id : ids) {
+                Alert alert = awaitPhoto(id, photoPath.get());
+                if (locationDenied) {
+                    // Resolved before the recreation and carried over as pending.
+                    assertEquals("Location permission denied", alert.location);
+                }
+            }
+
+            // The burst survived too: another press joins the alert instead of sending one.
+            scenario.onActivity(new ActivityScenario.ActivityAction<DashboardActivity>() {
+                @Override
+                public void perform(DashboardActivity activity) {
+                    long[] before = activity.sosAlertIds;
+                    activity.pressEmergency();
+                    assertSame(before, activity.sosAlertIds);
+                }
+            });
+            assertEquals(1, camera.getHits());
+        } finally {
+            scenario.close();
+        }
+    }
+
+    @Test
+    public void recreate_withoutSos_restoresNothing() {
+        ActivityScenario<DashboardActivity> scenario = ActivityScenario.launch(DashboardActivity.class);
+        try {
+            scenario.recreate();
+
+            final AtomicReference<long[]> ids = new AtomicReference<>(new long[0]);
+            scenario.onActivity(new ActivityScenario.ActivityAction<DashboardActivity>() {
+                @Override
+                public void perform(DashboardActivity activity) {
+                    ids.set(activity.sosAlertIds);
+                }
+            });
+            assertNull(ids.get());
+        } finally {
+            scenario.close();
+        }
+    }
+
+    private static long[] awaitAlertIds(ActivityScenario<DashboardActivity> scenario) throws InterruptedException {
+        final AtomicReference<long[]> ids = new AtomicReference<>();
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (ids.get() == null) {
+            assertTrue("Alert ids were not recovered", SystemClock.elapsedRealtime() < deadline);
+            Thread.sleep(50);
+            scenario.onActivity(new ActivityScenario.ActivityAction<DashboardActivity>() {
+                @Override
+                public void perform(DashboardActivity activity) {
+                    ids.set(activity.sosAlertIds);
+                }
+            });
+        }
+        return ids.get();
+    }
+
+    private Alert awaitPhoto(long alertId, String photoPath) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (true) {
+            List<Alert> alerts = helper.getAlertsByIds(new long[]{alertId});
+            assertEquals(1, alerts.size());
+            if (photoPath.equals(alerts.get(0).photoPath)) {
+                return alerts.get(0);
+            }
+            assertTrue("Photo was not attached", SystemClock.elapsedRealtime() < deadline);
+            Thread.sleep(50);
+        }
+    }
+}
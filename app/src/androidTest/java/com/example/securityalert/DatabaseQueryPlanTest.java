@@ -0,0 +1,271 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every statement DatabaseHelper issues and fails
+ * if one of them falls back to a full table scan.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseQueryPlanTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void checkUser_usesEmailIndex() {
+        assertNoScan(DatabaseHelper.SQL_CHECK_USER, "a@b.com", "secret");
+    }
+
+    @Test
+    public void authenticate_usesEmailIndex() {
+        assertNoScan(DatabaseHelper.SQL_AUTHENTICATE, "a@b.com", "secret");
+    }
+
+    @Test
+    public void getUser_usesEmailIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_USER, "a@b.com");
+    }
+
+    @Test
+    public void getUserGroups_usesGroupsIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_USER_GROUPS, "a@b.com");
+    }
+
+    @Test
+    public void getGroupId_usesGroupsIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_GROUP_ID, "a@b.com", "Family");
+    }
+
+    @Test
+    public void getGroupSummaries_usesIndexesWithoutGrouping() {
+        assertNoScan(DatabaseHelper.SQL_GET_GROUP_SUMMARIES, "a@b.com");
+    }
+
+    @Test
+    public void getGroupMembers_usesGroupsIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_GROUP_MEMBERS, "Family", "a@b.com");
+    }
+
+    @Test
+    public void getGroupMembersById_usesMembersIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_MEMBERS_BY_GROUP_ID, "1");
+    }
+
+    @Test
+    public void removeMember_usesGroupsIndex() {
+        assertNoScan(DatabaseHelper.SQL_REMOVE_MEMBER, "a@b.com", "Family", "c@d.com");
+    }
+
+    @Test
+    public void getAlertsPage_usesRowidRange() {
+        assertNoScan(DatabaseHelper.SQL_GET_ALERTS_PAGE, String.valueOf(Long.MAX_VALUE), "30");
+    }
+
+    @Test
+    public void getAlertsFrom_usesRowidRange() {
+        assertNoScan(DatabaseHelper.SQL_GET_ALERTS_FROM, "1", "500");
+    }
+
+    @Test
+    public void feed_usesMembershipAndGroupIndexes() {
+        assertNoScan(DatabaseHelper.SQL_GET_VIEWER_GROUP_IDS, "a@b.com", "a@b.com", "+441234");
+        assertNoScan(DatabaseHelper.SQL_GET_VIEWER_GROUP_HEADS,
+                "0", String.valueOf(Long.MAX_VALUE), "a@b.com", "a@b.com", "+441234");
+        assertNoScan(DatabaseHelper.SQL_GET_GROUP_ALERT_IDS, "1", "0", String.valueOf(Long.MAX_VALUE), "30");
+    }
+
+    @Test
+    public void dashboardSummary_readsOnlySummaryTables() {
+        assertNoScan(DatabaseHelper.SQL_GET_GROUP_ACTIVITY, "490000", "a@b.com", "a@b.com", "+441234");
+        assertNoScan(DatabaseHelper.SQL_MARK_ALERT_READ, "1");
+    }
+
+    @Test
+    public void insertAlert_usesGroupsAndEvidenceIndexes() {
+        assertNoScan(DatabaseHelper.SQL_INSERT_ALERT, "a@b.com", "SOS", "Home", "now", "/photo.jpg", "1", "2", "5",
+                "7210", "1000", "Family", "/photo.jpg", "a@b.com", "Family");
+    }
+
+    @Test
+    public void updateAlertLocation_usesRowid() {
+        assertNoScan(DatabaseHelper.SQL_UPDATE_ALERT_LOCATION, "1, 2", "1", "2", "5", "1", "1");
+    }
+
+    @Test
+    public void updateAlertPhoto_usesRowid() {
+        assertNoScan(DatabaseHelper.SQL_UPDATE_ALERT_PHOTO, "/photo.jpg", "/photo.jpg", "1");
+    }
+
+    @Test
+    public void updateAlertMessage_usesRowid() {
+        assertNoScan(DatabaseHelper.SQL_UPDATE_ALERT_MESSAGE, "URGENT", "1");
+    }
+
+    @Test
+    public void getAlertsBetween_usesCreatedAtIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_ALERTS_BETWEEN, "0", String.valueOf(Long.MAX_VALUE), "30");
+    }
+
+    @Test
+    public void getSentAlertIds_usesCreatedAtIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_SENT_ALERT_IDS, "1000", "a@b.com");
+    }
+
+    @Test
+    public void getAlertsInCells_usesGeoCellIndex() {
+        // Three grid rows, as a small radius query produces. The newest-first sort
+        // over the cell ranges is expected; the LIMIT bounds it to one page.
+        List<String> plan = queryPlan(DatabaseHelper.buildCellQuery(3),
+                "10", "12", "7210", "7212", "14410", "14412", String.valueOf(Long.MAX_VALUE), "50");
+        assertFalse(plan.isEmpty());
+        for (String step : plan) {
+            assertFalse("Full scan: " + step, step.startsWith("SCAN"));
+            if (step.startsWith("SEARCH")) {
+                assertTrue("Not a cell lookup: " + step, step.contains("idx_alerts_geo_cell"));
+            }
+        }
+    }
+
+    @Test
+    public void getAlertsByIds_usesRowid() {
+        assertNoScan(DatabaseHelper.buildIdQuery(3), "1", "2", "3");
+    }
+
+    @Test
+    public void searchAlerts_usesFullTextIndexWithoutSorting() {
+        // A virtual table always reports SCAN; index 0 would mean every row is read.
+        List<String> plan = queryPlan(DatabaseHelper.SQL_SEARCH_ALERTS, "asha* camp*", "1000");
+        assertFalse(plan.isEmpty());
+        for (String step : plan) {
+            assertTrue("Not a full-text lookup: " + step, step.contains("VIRTUAL TABLE INDEX"));
+            assertFalse("Full scan: " + step, step.contains("INDEX 0:"));
+            assertFalse("Unexpected sort: " + step, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void searchVisibleAlerts_filtersByRowidWithoutSorting() {
+        List<String> plan = queryPlan(DatabaseHelper.SQL_SEARCH_VISIBLE_ALERTS,
+                "asha* camp*", "a@b.com", "a@b.com", "+441234", "1000");
+        assertFalse(plan.isEmpty());
+        for (String step : plan) {
+            if (step.startsWith("SCAN")) {
+                assertTrue("Full scan: " + step, step.contains("VIRTUAL TABLE INDEX"));
+                assertFalse("Full scan: " + step, step.contains("INDEX 0:"));
+            }
+            assertFalse("Unexpected sort: " + step, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void getRetentionCandidates_usesCreatedAtIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_RETENTION_CANDIDATES, "0", "1000", "0", "5", "100");
+    }
+
+    @Test
+    public void archiveAlert_usesRowid() {
+        assertNoScan(DatabaseHelper.SQL_ARCHIVE_ALERT, "1000", "1");
+        assertNoScan(DatabaseHelper.SQL_DELETE_ARCHIVED_ALERT, "1");
+    }
+
+    @Test
+    public void isPhotoReferenced_usesPartialPhotoIndexes() {
+        assertNoScan(DatabaseHelper.SQL_IS_PHOTO_REFERENCED, "/photo.jpg", "/photo.jpg", "/photo.jpg");
+    }
+
+    @Test
+    public void addEvidence_usesUniqueIndexesAndPhotoIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_EVIDENCE_BY_HASH, "ab12");
+        assertNoScan(DatabaseHelper.SQL_REHASH_EVIDENCE, "ab12", "100", "/photo.jpg");
+        assertNoScan(DatabaseHelper.SQL_GET_ALERTS_BY_PHOTO, "/photo.jpg");
+        assertNoScan(DatabaseHelper.SQL_SET_ALERT_EVIDENCE, "/photo.jpg", "1", "1");
+    }
+
+    @Test
+    public void evidenceGarbageCollection_usesPartialUnreferencedIndex() {
+        assertNoScan(DatabaseHelper.SQL_GET_UNREFERENCED_EVIDENCE, "1000", "50");
+        assertNoScan(DatabaseHelper.SQL_DELETE_EVIDENCE, "1");
+    }
+
+    @Test
+    public void importSpool_readsOnlyTheSpool() {
+        db.execSQL(DatabaseHelper.SQL_CREATE_IMPORT_SPOOL);
+        List<String> plan = queryPlan(DatabaseHelper.SQL_IMPORT_SPOOL, "1");
+        assertFalse(plan.isEmpty());
+        for (String step : plan) {
+            if (step.startsWith("SCAN")) {
+                assertTrue("Full scan: " + step, step.startsWith("SCAN ImportSpool"));
+            }
+            assertFalse("Unexpected sort: " + step, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void getDueOutbox_usesDueIndexAndRowids() {
+        assertNoScan(DatabaseHelper.SQL_GET_DUE_OUTBOX, "1000", "20");
+        assertNoScan(DatabaseHelper.SQL_GET_NEXT_OUTBOX_ATTEMPT);
+    }
+
+    @Test
+    public void outboxUpdates_useUniqueAlertIdAndRowid() {
+        assertNoScan(DatabaseHelper.SQL_REQUEUE_OUTBOX, "1000", "1");
+        assertNoScan(DatabaseHelper.SQL_SAVE_OUTBOX_RESULT, "0", "1", "1000", "timeout", "1", "0");
+    }
+
+    @Test
+    public void getAllAlerts_doesNotSort() {
+        // Reading the whole history is a scan by definition; it must at least
+        // follow the rowid order instead of sorting in a temp b-tree.
+        for (String step : queryPlan(DatabaseHelper.SQL_GET_ALL_ALERTS)) {
+            assertFalse("Unexpected sort: " + step, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    private void assertNoScan(String sql, String... args) {
+        List<String> plan = queryPlan(sql, args);
+        assertFalse("Empty plan for " + sql, plan.isEmpty());
+        for (String step : plan) {
+            assertFalse("Full scan in \"" + sql + "\": " + step, step.startsWith("SCAN"));
+            assertFalse("Unexpected sort in \"" + sql + "\": " + step, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    private List<String> queryPlan(String sql, String... args) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.add(cursor.getString(detail));
+        }
+        cursor.close();
+        return plan;
+    }
+}
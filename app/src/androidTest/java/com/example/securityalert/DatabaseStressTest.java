@@ -0,0 +1,230 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * SOS writers and screen readers on one helper and one database file at the
+ * same time. Readers must never fail or see counts go backwards, and the
+ * counters must end up exactly right. A member import reading a slow file must
+ * not hold up an SOS.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseStressTest {
+
+    private static final String DB_NAME = "stress-test.db";
+    private static final String SENDER = "sender@campus.edu";
+    private static final String VIEWER = "viewer@campus.edu";
+    private static final int GROUP_COUNT = 5;
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int ALERTS_PER_WRITER = 50;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private List<String> groups;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = new DatabaseHelper(context, DB_NAME);
+        groups = new ArrayList<>();
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            groups.add("Group " + i);
+            helper.addGroup("Group " + i, SENDER, VIEWER);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void getInstance_isSharedByTheProcess() {
+        assertSame(DatabaseHelper.getInstance(context), DatabaseHelper.getInstance(context.getApplicationContext()));
+    }
+
+    @Test
+    public void fileDatabase_usesWalAndKeepsIncrementalVacuum() {
+        assertTrue(helper.getWritableDatabase().isWriteAheadLoggingEnabled());
+        assertEquals("wal", pragma("journal_mode"));
+        assertEquals("2", pragma("auto_vacuum"));
+    }
+
+    @Test
+    public void concurrentWritersAndReaders_failNothingAndCountEverything() throws Exception {
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        final CountDownLatch readersDone = new CountDownLatch(READERS);
+
+        for (int w = 0; w < WRITERS; w++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < ALERTS_PER_WRITER; i++) {
+                            long[] ids = helper.saveAlertToGroups(
+                                    new Alert(0, SENDER, "SOS " + i, "Library", "now", null, null), groups);
+                            helper.updateAlertLocation(ids, "1.0, 2.0", 1.0, 2.0, 5f);
+                            if (i % 2 == 0) {
+                                helper.markAlertsRead(ids);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            }).start();
+        }
+        for (int r = 0; r < READERS; r++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        int lastCount = 0;
+                        while (writing.get()) {
+                            int count = totalAlerts(helper.getDashboardSummary(VIEWER, System.currentTimeMillis()));
+                            assertTrue(count + " after " + lastCount, count >= lastCount);
+                            lastCount = count;
+                            List<Alert> page = helper.getFeedPage(VIEWER, Long.MAX_VALUE, 30);
+                            for (int i = 1; i < page.size(); i++) {
+                                assertTrue(page.get(i).id < page.get(i - 1).id);
+                            }
+                            reads.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    } finally {
+                        readersDone.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        assertTrue(writersDone.await(2, TimeUnit.MINUTES));
+        writing.set(false);
+        assertTrue(readersDone.await(1, TimeUnit.MINUTES));
+
+        assertTrue("first failure: " + errors.peek(), errors.isEmpty());
+        assertTrue(reads.get() > 0);
+        DashboardSummary summary = helper.getDashboardSummary(VIEWER, System.currentTimeMillis());
+        assertEquals(WRITERS * ALERTS_PER_WRITER * GROUP_COUNT, totalAlerts(summary));
+        assertEquals(WRITERS * (ALERTS_PER_WRITER / 2) * GROUP_COUNT, summary.unreadCount);
+        assertEquals(WRITERS * ALERTS_PER_WRITER * GROUP_COUNT, helper.getAllAlerts().size());
+    }
+
+    @Test
+    public void sosWrite_isNotBlockedByASlowImport() throws Exception {
+        final CountDownLatch midway = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StringBuilder roster = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            roster.append("member").append(i).append("@campus.edu\n");
+        }
+        // Stalls after the first part of the file, like a cloud document mid-download.
+        final Reader slowFile = new Reader() {
+            private Reader part = new StringReader(roster.toString());
+            private boolean stalled;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int n = part.read(buffer, offset, length);
+                if (n < 0 && !stalled) {
+                    stalled = true;
+                    midway.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    part = new StringReader("late@campus.edu\n");
+                    n = part.read(buffer, offset, length);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<MemberImporter.Result> importing = threads.submit(new Callable<MemberImporter.Result>() {
+                @Override
+                public MemberImporter.Result call() throws IOException {
+                    return helper.importMembers("Roster", SENDER, slowFile);
+                }
+            });
+            assertTrue(midway.await(1, TimeUnit.MINUTES));
+
+            Future<long[]> sos = threads.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    return helper.saveAlertToGroups(new Alert(0, SENDER, "SOS", "Library", "now", null, null), groups);
+                }
+            });
+            assertEquals(GROUP_COUNT, sos.get(10, TimeUnit.SECONDS).length);
+            release.countDown();
+
+            assertEquals(5001, importing.get(1, TimeUnit.MINUTES).added);
+            assertEquals(5001, helper.getGroupMembers("Roster", SENDER).size());
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    private static int totalAlerts(DashboardSummary summary) {
+        int count = 0;
+        for (GroupActivity group : summary.groups) {
+            count += group.alertCount;
+        }
+        return count;
+    }
+
+    private String pragma(String name) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery("PRAGMA " + name, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
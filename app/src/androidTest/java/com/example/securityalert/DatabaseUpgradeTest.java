@@ -0,0 +1,174 @@
+package com.example.securityalert;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes a database file in the schema v1 layout, as the first release left it,
+ * and opens it through {@link DatabaseHelper} so every upgrade step runs on it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseUpgradeTest {
+
+    private static final String DB_NAME = "upgrade-test.db";
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void v1File_keepsGroupsMembersAndAlerts() {
+        // Whole seconds: the display text has no milliseconds.
+        long raisedAt = 1714598043000L;
+        SQLiteDatabase v1 = createV1();
+        legacyGroupRow(v1, "Family", "asha@x.com", "bob@x.com");
+        legacyGroupRow(v1, "Family", "asha@x.com", "carol@x.com");
+        legacyGroupRow(v1, "Family", "asha@x.com", "bob@x.com");
+        legacyGroupRow(v1, "Family", "asha@x.com", null);
+        // A group whose only row had no member yet.
+        legacyGroupRow(v1, "Work", "asha@x.com", null);
+        legacyGroupRow(v1, "Hostel", "ravi@x.com", "dave@x.com");
+        legacyGroupRow(v1, null, "ravi@x.com", "erin@x.com");
+        long family = legacyAlert(v1, "asha@x.com", "Family", "12.971599, 77.594566",
+                new SimpleDateFormat(TimeFormats.DISPLAY_PATTERN, Locale.getDefault()).format(new Date(raisedAt)));
+        long hostel = legacyAlert(v1, "ravi@x.com", "Hostel", "Location unavailable",
+                new SimpleDateFormat(TimeFormats.DISPLAY_PATTERN, Locale.US).format(new Date(raisedAt + 1000)));
+        // Sent to a group its sender did not own, so there is no group to point at.
+        long orphan = legacyAlert(v1, "ravi@x.com", "Family", "Location: 51.5, -0.12", "yesterday");
+        v1.close();
+
+        helper = new DatabaseHelper(context, DB_NAME);
+
+        List<GroupSummary> asha = helper.getGroupSummaries("asha@x.com");
+        assertEquals(2, asha.size());
+        assertEquals("Family", asha.get(0).name);
+        assertEquals(2, asha.get(0).memberCount);
+        assertEquals("Work", asha.get(1).name);
+        assertEquals(0, asha.get(1).memberCount);
+        List<GroupSummary> ravi = helper.getGroupSummaries("ravi@x.com");
+        assertEquals(1, ravi.size());
+        assertEquals(Arrays.asList("dave@x.com"), helper.getGroupMembers("Hostel", "ravi@x.com"));
+
+        List<Alert> alerts = helper.getAlertsByIds(new long[]{family, hostel, orphan});
+        assertEquals(3, alerts.size());
+        for (Alert alert : alerts) {
+            if (alert.id == family) {
+                assertEquals(12.971599, alert.latitude, 1e-9);
+                assertEquals(77.594566, alert.longitude, 1e-9);
+                assertEquals(Long.valueOf(raisedAt), alert.createdAt);
+            } else if (alert.id == hostel) {
+                assertNull(alert.latitude);
+                assertNull(alert.longitude);
+                assertEquals(Long.valueOf(raisedAt + 1000), alert.createdAt);
+            } else {
+                assertEquals(51.5, alert.latitude, 1e-9);
+                assertEquals(-0.12, alert.longitude, 1e-9);
+                assertNull(alert.createdAt);
+            }
+        }
+        assertEquals(Long.valueOf(asha.get(0).id), groupIdOf(family));
+        assertEquals(Long.valueOf(ravi.get(0).id), groupIdOf(hostel));
+        assertNull(groupIdOf(orphan));
+
+        // The migrated rows reach the feed and the near-by search through the new columns.
+        assertEquals(1, helper.getFeedPage("carol@x.com", Long.MAX_VALUE, 30).size());
+        assertEquals(1, helper.getAlertsNear(12.97, 77.59, 5, 10).size());
+    }
+
+    @Test
+    public void legacyMembers_areNormalizedAndMerged() {
+        SQLiteDatabase v1 = createV1();
+        legacyGroupRow(v1, "Family", "asha@x.com", "Bob@x.com");
+        legacyGroupRow(v1, "Family", "asha@x.com", " bob@x.com ");
+        legacyGroupRow(v1, "Work", "ravi@x.com", "bob@x.com");
+        legacyGroupRow(v1, "Work", "ravi@x.com", "  +44 20 7946 0000 ");
+        legacyGroupRow(v1, "Work", "ravi@x.com", "front desk");
+        legacyAlert(v1, "asha@x.com", "Family", "51.5, -0.12", "2023-11-14 22:13:20");
+        legacyAlert(v1, "ravi@x.com", "Work", "51.5, -0.12", "2023-11-14 22:14:20");
+        v1.close();
+
+        helper = new DatabaseHelper(context, DB_NAME);
+
+        assertEquals(Collections.singletonList("bob@x.com"), helper.getGroupMembers("Family", "asha@x.com"));
+        // Values that are not contacts cannot be normalized and are kept as typed.
+        assertEquals(Arrays.asList("+442079460000", "bob@x.com", "front desk"),
+                helper.getGroupMembers("Work", "ravi@x.com"));
+        assertEquals(2, helper.getFeedPage("bob@x.com", Long.MAX_VALUE, 30).size());
+        assertEquals(2, helper.getFeedPage(" Bob@X.com", Long.MAX_VALUE, 30).size());
+    }
+
+    private Long groupIdOf(long alertId) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT groupId FROM Alerts WHERE id=?",
+                new String[]{String.valueOf(alertId)});
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.isNull(0) ? null : cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // The tables exactly as schema v1 created them.
+    private SQLiteDatabase createV1() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DB_NAME), null);
+        db.execSQL("CREATE TABLE Users (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, email TEXT UNIQUE, " +
+                "phone TEXT, password TEXT)");
+        db.execSQL("CREATE TABLE Groups (id INTEGER PRIMARY KEY AUTOINCREMENT, groupName TEXT, ownerEmail TEXT, " +
+                "memberEmail TEXT)");
+        db.execSQL("CREATE TABLE Alerts (id INTEGER PRIMARY KEY AUTOINCREMENT, senderEmail TEXT, message TEXT, " +
+                "location TEXT, timestamp TEXT, photoPath TEXT, groupName TEXT)");
+        db.setVersion(1);
+        return db;
+    }
+
+    private static void legacyGroupRow(SQLiteDatabase db, String groupName, String ownerEmail, String memberEmail) {
+        ContentValues values = new ContentValues();
+        values.put("groupName", groupName);
+        values.put("ownerEmail", ownerEmail);
+        values.put("memberEmail", memberEmail);
+        db.insert("Groups", null, values);
+    }
+
+    private static long legacyAlert(SQLiteDatabase db, String senderEmail, String groupName, String location,
+                                    String timestamp) {
+        ContentValues values = new ContentValues();
+        values.put("senderEmail", senderEmail);
+        values.put("message", "SOS");
+        values.put("location", location);
+        values.put("timestamp", timestamp);
+        values.put("groupName", groupName);
+        return db.insert("Alerts", null, values);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that an evidence photo is stored once per image, that its reference
+ * count follows fan-out, archiving and duplicates, and that garbage collection
+ * removes it only when no alert uses it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EvidenceStoreTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private DatabaseHelper helper;
+    private EvidenceStore store;
+    private File photoDir;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null);
+        store = new EvidenceStore(helper);
+        photoDir = new File(context.getCacheDir(), "evidence-photos");
+        deleteRecursively(photoDir);
+        assertTrue(photoDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        deleteRecursively(photoDir);
+    }
+
+    @Test
+    public void fanOut_sharesOneEntry() throws IOException {
+        File photo = photo("JPEG_1.jpg", "same bytes");
+        long[] ids = save(null, "Family", "Campus", "Hostel");
+        helper.updateAlertPhoto(ids, photo.getAbsolutePath());
+
+        assertEquals(photo.getAbsolutePath(), store.add(photo));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM Evidence"));
+        assertEquals(3, refCount(photo));
+        for (OutboxEntry entry : helper.getDueOutboxEntries(Long.MAX_VALUE, 10)) {
+            assertEquals(EvidenceStore.sha256(photo), entry.alert.photoSha256);
+        }
+    }
+
+    @Test
+    public void storedBeforeTheAlert_isStillReferenced() throws IOException {
+        File photo = photo("JPEG_1.jpg", "early");
+        store.add(photo);
+
+        save(photo.getAbsolutePath(), "Family", "Campus");
+
+        assertEquals(2, refCount(photo));
+    }
+
+    @Test
+    public void duplicateImage_isDeletedAndRowsMoveToTheStoredCopy() throws IOException {
+        File first = photo("JPEG_1.jpg", "same bytes");
+        File second = photo("JPEG_2.jpg", "same bytes");
+        File secondThumb = photo("JPEG_2_thumb.jpg", "thumbnail");
+        store.add(first);
+        long[] ids = save(second.getAbsolutePath(), "Family");
+
+        assertEquals(first.getAbsolutePath(), store.add(second));
+
+        assertFalse(second.exists());
+        assertFalse(secondThumb.exists());
+        assertEquals(first.getAbsolutePath(), helper.getAlertsByIds(ids).get(0).photoPath);
+        assertEquals(1, refCount(first));
+    }
+
+    @Test
+    public void archivedAlerts_keepTheirEvidence() throws IOException {
+        File photo = photo("JPEG_1.jpg", "archived");
+        long[] ids = save(photo.getAbsolutePath(), "Family", "Campus");
+        store.add(photo);
+
+        helper.archiveAlerts(ids, System.currentTimeMillis());
+
+        assertEquals(2, refCount(photo));
+        assertEquals(0, store.collectGarbage(Long.MAX_VALUE, 10));
+        assertTrue(photo.exists());
+    }
+
+    @Test
+    public void collectGarbage_deletesUnreferencedImagesPastTheCutoff() throws IOException {
+        File used = photo("JPEG_used.jpg", "used");
+        File orphan = photo("JPEG_orphan.jpg", "orphan");
+        File orphanThumb = photo("JPEG_orphan_thumb.jpg", "thumbnail");
+        save(used.getAbsolutePath(), "Family");
+        store.add(used);
+        store.add(orphan);
+
+        assertEquals("Inside the grace period", 0,
+                store.collectGarbage(System.currentTimeMillis() - DAY_MS, 10));
+        assertEquals(1, store.collectGarbage(System.currentTimeMillis() + DAY_MS, 10));
+
+        assertTrue(used.exists());
+        assertFalse(orphan.exists());
+        assertFalse(orphanThumb.exists());
+        assertEquals(1, count("SELECT COUNT(*) FROM Evidence"));
+        // Once removed from the store the path is no longer protected.
+        assertFalse(helper.isPhotoReferenced(orphan.getAbsolutePath()));
+        assertTrue(helper.isPhotoReferenced(used.getAbsolutePath()));
+    }
+
+    private long[] save(String photoPath, String... groups) {
+        Alert alert = new Alert(0, "a@b.com", "SOS", null, "now", photoPath, null);
+        return helper.saveAlertToGroups(alert, Arrays.asList(groups));
+    }
+
+    private File photo(String name, String content) throws IOException {
+        File file = new File(photoDir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private long refCount(File photo) {
+        return count("SELECT refCount FROM Evidence WHERE path=?", photo.getAbsolutePath());
+    }
+
+    private long count(String sql, String... args) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery(sql, args);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
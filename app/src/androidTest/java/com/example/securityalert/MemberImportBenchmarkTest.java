@@ -0,0 +1,84 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Imports rosters of growing size into a real database file and logs the time per
+ * import under the "MemberImportBenchmark" tag. Each import is copied into the
+ * group in one transaction, so the cost should grow with row count, not with
+ * commit count.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MemberImportBenchmarkTest {
+
+    private static final String TAG = "MemberImportBenchmark";
+    private static final String DB_NAME = "member-import-benchmark.db";
+    private static final String OWNER = "owner@campus.edu";
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void importScalesToTenThousandMembers() throws IOException {
+        for (int size : new int[]{100, 1000, 10000}) {
+            String group = "Campus " + size;
+            MemberImporter.Result first = helper.importMembers(group, OWNER, new StringReader(roster(size)));
+            assertEquals(size, first.added);
+            assertEquals(0, first.duplicates);
+            assertEquals(1, first.skipped);
+
+            // Re-importing the same roster adds nothing.
+            MemberImporter.Result again = helper.importMembers(group, OWNER, new StringReader(roster(size)));
+            assertEquals(0, again.added);
+            assertEquals(size, again.duplicates);
+
+            assertEquals(size, helper.getGroupMembers(group, OWNER).size());
+            Log.i(TAG, "members=" + size + " import=" + first.elapsedMillis + "ms reimport="
+                    + again.elapsedMillis + "ms");
+        }
+    }
+
+    @Test
+    public void singleAddAfterImport_seesNormalizedDuplicate() throws IOException {
+        helper.importMembers("Family", OWNER, new StringReader("Asha@Example.com\n"));
+
+        assertFalse(helper.addGroup("Family", OWNER, MemberImporter.normalize(" ASHA@example.com ")));
+        assertEquals(1, helper.getGroupMembers("Family", OWNER).size());
+    }
+
+    private static String roster(int size) {
+        StringBuilder csv = new StringBuilder("name,email,phone\n");
+        for (int i = 0; i < size; i++) {
+            csv.append("Student ").append(i).append(",Student").append(i).append("@Campus.edu,+1 555 ")
+                    .append(1000000 + i).append('\n');
+        }
+        return csv.toString();
+    }
+}
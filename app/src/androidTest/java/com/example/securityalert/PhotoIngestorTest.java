@@ -0,0 +1,137 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ingests a full-size camera JPEG with the default limits and checks what is left
+ * on disk: the bounded photo at the same path and its thumbnail next to it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PhotoIngestorTest {
+
+    private static final PhotoIngestor.Config CONFIG = PhotoIngestor.Config.DEFAULT;
+    // A 12 MP camera frame.
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+
+    private File photoDir;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        photoDir = new File(context.getCacheDir(), "ingest-photos");
+        deleteRecursively(photoDir);
+        assertTrue(photoDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(photoDir);
+    }
+
+    @Test
+    public void largePhoto_isBoundedInPlaceWithAThumbnail() throws IOException {
+        File photo = cameraPhoto("JPEG_large.jpg");
+        assertTrue(photo.length() > CONFIG.maxBytes);
+
+        new PhotoIngestor(CONFIG).ingest(photo.getAbsolutePath());
+
+        int[] stored = bounds(photo);
+        assertEquals(CONFIG.maxEdgePx, stored[0]);
+        assertEquals(CONFIG.maxEdgePx * HEIGHT / WIDTH, stored[1]);
+        assertTrue("Still " + photo.length() + " bytes", photo.length() <= CONFIG.maxBytes);
+
+        File thumbnail = new File(photoDir, "JPEG_large_thumb.jpg");
+        assertEquals(thumbnail.getAbsolutePath(), PhotoIngestor.thumbnailPathFor(photo.getAbsolutePath()));
+        assertTrue(thumbnail.isFile());
+        int[] thumb = bounds(thumbnail);
+        assertEquals(CONFIG.thumbnailEdgePx, thumb[0]);
+        assertEquals(CONFIG.thumbnailEdgePx * HEIGHT / WIDTH, thumb[1]);
+        assertEquals(2, photoDir.list().length);
+    }
+
+    @Test
+    public void rotatedPhoto_isStoredUpright() throws IOException {
+        File photo = cameraPhoto("JPEG_portrait.jpg");
+        ExifInterface exif = new ExifInterface(photo.getAbsolutePath());
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+        exif.saveAttributes();
+
+        new PhotoIngestor(CONFIG).ingest(photo.getAbsolutePath());
+
+        int[] stored = bounds(photo);
+        assertEquals(CONFIG.maxEdgePx * HEIGHT / WIDTH, stored[0]);
+        assertEquals(CONFIG.maxEdgePx, stored[1]);
+        int[] thumb = bounds(new File(PhotoIngestor.thumbnailPathFor(photo.getAbsolutePath())));
+        assertEquals(CONFIG.thumbnailEdgePx, thumb[1]);
+    }
+
+    @Test
+    public void emptyFile_isLeftAlone() throws IOException {
+        File photo = new File(photoDir, "JPEG_cancelled.jpg");
+        assertTrue(photo.createNewFile());
+
+        new PhotoIngestor(CONFIG).ingest(photo.getAbsolutePath());
+
+        assertEquals(0, photo.length());
+        assertFalse(new File(PhotoIngestor.thumbnailPathFor(photo.getAbsolutePath())).exists());
+    }
+
+    // A smooth gradient with sensor-like noise, saved at camera quality.
+    private File cameraPhoto(String name) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+        Random random = new Random(42);
+        int[] row = new int[WIDTH];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = random.nextInt(16);
+                int r = (x * 255 / WIDTH + noise) & 0xff;
+                int g = (y * 255 / HEIGHT + noise) & 0xff;
+                row[x] = 0xff000000 | (r << 16) | (g << 8) | 0x80;
+            }
+            bitmap.setPixels(row, 0, WIDTH, 0, y, WIDTH, 1);
+        }
+        File file = new File(photoDir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            assertTrue(bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out));
+        }
+        bitmap.recycle();
+        return file;
+    }
+
+    private static int[] bounds(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        return new int[]{options.outWidth, options.outHeight};
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the alert outbox through an {@link AlertTransport}.
+ *
+ * Alerts are queued in the same transaction that saves them, so nothing is lost
+ * if the app dies before sending. The dispatcher sends due entries in batches on
+ * its own thread. After each batch it records a per-alert outcome: delivered,
+ * retry later with exponential backoff and jitter, or failed. It wakes up
+ * whenever the Alerts table changes and again when the earliest retry is due.
+ * Unsent alerts wait in the outbox until the next app start.
+ */
+public class AlertDispatcher {
+
+    private static final String TAG = "AlertDispatcher";
+
+    static final int BATCH_SIZE = 50;
+    static final int MAX_ATTEMPTS = 12;
+    static final long BASE_BACKOFF_MS = 2000;
+    static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+
+    /** Where outbox entries are read from and their outcomes written back. */
+    interface Store {
+        /** Pending entries with nextAttemptAt <= {@code nowMillis}, earliest first. */
+        List<OutboxEntry> loadDue(long nowMillis, int limit);
+
+        /**
+         * Persists state, attempts, nextAttemptAt and lastError of each entry,
+         * unless the row's revision has moved on since it was loaded.
+         */
+        void saveResults(List<OutboxEntry> entries);
+
+        /** Earliest nextAttemptAt among pending entries, or Long.MAX_VALUE if there are none. */
+        long nextAttemptAt();
+    }
+
+    private static AlertDispatcher instance;
+
+    private final Store store;
+    private final AlertTransport transport;
+    private final int batchSize;
+    private final Random random;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "alert-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainAndReschedule();
+        }
+    };
+    // Only touched on the dispatcher thread.
+    private ScheduledFuture<?> retryWakeUp;
+
+    /**
+     * The app-wide dispatcher, started on first use. Returns null when no endpoint
+     * is configured in {@code R.string.alert_endpoint}; alerts then stay queued.
+     */
+    public static synchronized AlertDispatcher getInstance(Context context) {
+        if (instance == null) {
+            String endpoint = context.getString(R.string.alert_endpoint);
+            if (endpoint.isEmpty()) {
+                return null;
+            }
+            URL url;
+            try {
+                url = new URL(endpoint);
+            } catch (MalformedURLException e) {
+                Log.e(TAG, "Invalid alert endpoint: " + endpoint, e);
+                return null;
+            }
+            final DatabaseHelper db = DatabaseHelper.getInstance(context);
+            instance = new AlertDispatcher(new Store() {
+                @Override
+                public List<OutboxEntry> loadDue(long nowMillis, int limit) {
+                    return db.getDueOutboxEntries(nowMillis, limit);
+                }
+
+                @Override
+                public void saveResults(List<OutboxEntry> entries) {
+                    db.saveOutboxResults(entries);
+                }
+
+                @Override
+                public long nextAttemptAt() {
+                    return db.getNextOutboxAttemptAt();
+                }
+            }, new HttpAlertTransport(url), BATCH_SIZE, new Random());
+            DatabaseHelper.registerAlertsObserver(new DatabaseHelper.AlertsObserver() {
+                @Override
+                public void onAlertsChanged() {
+                    instance.kick();
+                }
+            });
+            instance.kick();
+        }
+        return instance;
+    }
+
+    AlertDispatcher(Store store, AlertTransport transport, int batchSize, Random random) {
+        this.store = store;
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.random = random;
+    }
+
+    /** Schedules a drain now. Cheap to call often; drains run one at a time. */
+    public void kick() {
+        executor.execute(drainTask);
+    }
+
+    private void drainAndReschedule() {
+        try {
+            drain(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Outbox drain failed", e);
+        }
+        long next = store.nextAttemptAt();
+        if (retryWakeUp != null) {
+            retryWakeUp.cancel(false);
+            retryWakeUp = null;
+        }
+        if (next != Long.MAX_VALUE) {
+            long delay = Math.max(0, next - System.currentTimeMillis());
+            retryWakeUp = executor.schedule(drainTask, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends everything due at {@code nowMillis}, batch by batch, and records the
+     * outcomes. Stops early if the transport is unreachable. Returns how many
+     * alerts were delivered.
+     */
+    int drain(long nowMillis) {
+        int delivered = 0;
+        while (true) {
+            List<OutboxEntry> batch = store.loadDue(nowMillis, batchSize);
+            if (batch.isEmpty()) {
+                return delivered;
+            }
+            List<AlertTransport.Outcome> outcomes = null;
+            String error = null;
+            try {
+                outcomes = transport.send(batch);
+            } catch (IOException e) {
+                error = e.toString();
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                AlertTransport.Outcome outcome = outcomes != null && i < outcomes.size()
+                        ? outcomes.get(i) : AlertTransport.Outcome.RETRY;
+                if (apply(batch.get(i), outcome, error, nowMillis)) {
+                    delivered++;
+                }
+            }
+            store.saveResults(batch);
+            if (outcomes == null || batch.size() < batchSize) {
+                return delivered;
+            }
+        }
+    }
+
+    private boolean apply(OutboxEntry entry, AlertTransport.Outcome outcome, String error, long nowMillis) {
+        entry.attempts++;
+        switch (outcome) {
+            case DELIVERED:
+                entry.state = OutboxEntry.STATE_DELIVERED;
+                entry.lastError = null;
+                return true;
+            case REJECTED:
+                entry.state = OutboxEntry.STATE_FAILED;
+                entry.lastError = error != null ? error : "rejected";
+                return false;
+            default:
+                entry.lastError = error != null ? error : "retry";
+                if (entry.attempts >= MAX_ATTEMPTS) {
+                    entry.state = OutboxEntry.STATE_FAILED;
+                } else {
+                    entry.state = OutboxEntry.STATE_PENDING;
+                    entry.nextAttemptAt = nowMillis + backoffMillis(entry.attempts, random.nextDouble());
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Delay before retry number {@code attempts}: BASE_BACKOFF_MS doubled per
+     * attempt, capped at MAX_BACKOFF_MS, plus up to 50% jitter ({@code jitter} in
+     * [0, 1)) so many devices coming back online do not retry in lockstep.
+     */
+    static long backoffMillis(int attempts, double jitter) {
+        long delay = BASE_BACKOFF_MS << Math.min(Math.max(attempts - 1, 0), 20);
+        delay = Math.min(delay, MAX_BACKOFF_MS);
+        return delay + (long) (delay * 0.5 * jitter);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.securityalert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the viewer's alert feed (alerts sent to groups they own or belong to) in
+ * fixed-size pages keyed on the last id seen, so the cost of opening the feed
+ * does not depend on how many alerts are stored.
+ * Queries go through {@link DataRepository}, so results arrive on the main thread.
+ *
+ * The pager owns the list the feed shows. {@link #refresh()} reloads the part
+ * already on screen (plus anything newer) after the Alerts table changes, and
+ * every change is reported as a full snapshot for the adapter to diff.
+ */
+public class AlertPager {
+
+    public static final int PAGE_SIZE = 30;
+    // Upper bound for one refresh, so a burst of new alerts cannot load unbounded rows.
+    private static final int MAX_REFRESH = 500;
+
+    public interface Listener {
+        void onAlertsUpdated(List<Alert> alerts);
+    }
+
+    private final DataRepository repository;
+    private final String viewerEmail;
+    private final Listener listener;
+
+    // Only touched on the main thread.
+    private List<Alert> alerts = new ArrayList<>();
+    private long lastId = Long.MAX_VALUE;
+    private boolean loading;
+    private boolean refreshPending;
+    private boolean endReached;
+    private boolean closed;
+
+    public AlertPager(DataRepository repository, String viewerEmail, Listener listener) {
+        this.repository = repository;
+        this.viewerEmail = viewerEmail;
+        this.listener = listener;
+    }
+
+    public void loadNextPage() {
+        if (loading || endReached || closed) {
+            return;
+        }
+        loading = true;
+        repository.getFeedPage(viewerEmail, lastId, PAGE_SIZE, new DataRepository.Callback<List<Alert>>() {
+            @Override
+            public void onResult(List<Alert> page) {
+                onPageLoaded(page);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onLoadFinished();
+            }
+        });
+    }
+
+    /** Re-reads every feed alert from the oldest one shown up to the newest in the table. */
+    public void refresh() {
+        if (closed) {
+            return;
+        }
+        if (alerts.isEmpty()) {
+            endReached = false;
+            loadNextPage();
+            return;
+        }
+        if (loading) {
+            // Runs once the current load lands, so results never interleave.
+            refreshPending = true;
+            return;
+        }
+        loading = true;
+        long oldestId = alerts.get(alerts.size() - 1).id;
+        repository.getFeedFrom(viewerEmail, oldestId, MAX_REFRESH, new DataRepository.Callback<List<Alert>>() {
+            @Override
+            public void onResult(List<Alert> window) {
+                onWindowLoaded(window);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onLoadFinished();
+            }
+        });
+    }
+
+    private void onPageLoaded(List<Alert> page) {
+        if (closed) {
+            return;
+        }
+        if (page.size() < PAGE_SIZE) {
+            endReached = true;
+        }
+        if (!page.isEmpty()) {
+            List<Alert> updated = new ArrayList<>(alerts.size() + page.size());
+            updated.addAll(alerts);
+            updated.addAll(page);
+            publish(updated);
+        }
+        onLoadFinished();
+    }
+
+    private void onWindowLoaded(List<Alert> window) {
+        if (closed) {
+            return;
+        }
+        if (window.size() >= MAX_REFRESH) {
+            // The window was cut short; older rows are paged in again on scroll.
+            endReached = false;
+        }
+        publish(window);
+        onLoadFinished();
+    }
+
+    private void publish(List<Alert> updated) {
+        alerts = updated;
+        lastId = updated.isEmpty() ? Long.MAX_VALUE : updated.get(updated.size() - 1).id;
+        listener.onAlertsUpdated(Collections.unmodifiableList(updated));
+    }
+
+    private void onLoadFinished() {
+        loading = false;
+        if (refreshPending) {
+            refreshPending = false;
+            refresh();
+        }
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasMore() {
+        return !endReached;
+    }
+
+    public void close() {
+        closed = true;
+    }
+}
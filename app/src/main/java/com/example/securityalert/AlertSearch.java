@@ -0,0 +1,105 @@
+package com.example.securityalert;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Query building and ranking for the AlertSearch full-text index.
+ *
+ * The index holds sender, message, location label and group name. A search
+ * takes the newest {@link #MAX_CANDIDATES} matches, so its cost does not grow
+ * with the size of the history, then ranks only those in Java. FTS4 has no
+ * built-in ranking function.
+ */
+public final class AlertSearch {
+
+    /** Matches considered per search, newest first. Older matches are not ranked. */
+    public static final int MAX_CANDIDATES = 1000;
+
+    // Indexed in AlertSearch column order: sender, message, location, group.
+    private static final double[] COLUMN_WEIGHTS = {2.0, 1.0, 1.5, 2.0};
+
+    private AlertSearch() {
+    }
+
+    /**
+     * Turns what the user typed into an FTS MATCH expression in which every word is
+     * a prefix term and all of them must match: "asha camp" becomes "asha* camp*".
+     * Anything the default tokenizer would split on is dropped, so user input can
+     * never form query syntax. Returns null if nothing searchable is left.
+     */
+    public static String toMatchQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (c >= 'A' && c <= 'Z') {
+                // Like the tokenizer, fold ASCII case only.
+                term.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c > 0x7f) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Scores one row from its {@code matchinfo(AlertSearch, 'pcnx')} blob: for each
+     * term and column, a log-damped hit count times the term's rarity across all
+     * rows, times the column weight.
+     */
+    static double score(byte[] matchinfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        int rows = buffer.getInt(8);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int offset = 12 + 12 * (p * columns + c);
+                int hitsInRow = buffer.getInt(offset);
+                int rowsWithHits = buffer.getInt(offset + 8);
+                if (hitsInRow == 0) {
+                    continue;
+                }
+                double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                double rarity = Math.log(1.0 + (double) rows / Math.max(1, rowsWithHits));
+                score += weight * (1.0 + Math.log(hitsInRow)) * rarity;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Orders {@code ids} by descending score. Equal scores keep their given order,
+     * which is newest first.
+     */
+    static long[] rank(final long[] ids, final double[] scores) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(scores[b], scores[a]);
+            }
+        });
+        long[] ranked = new long[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            ranked[i] = ids[order[i]];
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.securityalert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Search counterpart of {@link AlertPager}. A search fetches the ranked ids of
+ * the matching alerts once, then the rows are loaded a page at a time in rank
+ * order. Each new query supersedes the previous one: its pending work is
+ * cancelled and any result that still arrives is dropped.
+ */
+public class AlertSearchPager {
+
+    private final DataRepository repository;
+    private final String viewerEmail;
+    private final AlertPager.Listener listener;
+
+    // Only touched on the main thread.
+    private String query = "";
+    private long[] rankedIds = new long[0];
+    // Position in rankedIds of the next page; rows deleted since the search are skipped.
+    private int nextIndex;
+    private List<Alert> alerts = new ArrayList<>();
+    private int generation;
+    private boolean loading;
+    private Future<?> pending;
+    private boolean closed;
+
+    public AlertSearchPager(DataRepository repository, String viewerEmail, AlertPager.Listener listener) {
+        this.repository = repository;
+        this.viewerEmail = viewerEmail;
+        this.listener = listener;
+    }
+
+    /** Starts a new search; a blank query clears the results. */
+    public void search(String newQuery) {
+        query = newQuery == null ? "" : newQuery.trim();
+        load(AlertPager.PAGE_SIZE);
+    }
+
+    /** Runs the current query again, keeping as many results as are already shown. */
+    public void refresh() {
+        if (isActive()) {
+            load(Math.max(nextIndex, AlertPager.PAGE_SIZE));
+        }
+    }
+
+    public boolean isActive() {
+        return !query.isEmpty();
+    }
+
+    public void loadNextPage() {
+        if (loading || closed || nextIndex >= rankedIds.length) {
+            return;
+        }
+        final int searchGeneration = generation;
+        loading = true;
+        final long[] page = Arrays.copyOfRange(rankedIds, nextIndex,
+                Math.min(rankedIds.length, nextIndex + AlertPager.PAGE_SIZE));
+        pending = repository.getAlertsByIds(page, new DataRepository.Callback<List<Alert>>() {
+            @Override
+            public void onResult(List<Alert> rows) {
+                if (searchGeneration != generation || closed) {
+                    return;
+                }
+                List<Alert> updated = new ArrayList<>(alerts.size() + rows.size());
+                updated.addAll(alerts);
+                updated.addAll(rows);
+                nextIndex += page.length;
+                loading = false;
+                publish(updated);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (searchGeneration == generation) {
+                    loading = false;
+                }
+            }
+        });
+    }
+
+    private void load(final int count) {
+        if (closed) {
+            return;
+        }
+        final int searchGeneration = ++generation;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        loading = false;
+        if (!isActive()) {
+            rankedIds = new long[0];
+            nextIndex = 0;
+            publish(new ArrayList<Alert>());
+            return;
+        }
+        loading = true;
+        pending = repository.searchAlerts(query, viewerEmail, new DataRepository.Callback<long[]>() {
+            @Override
+            public void onResult(final long[] ids) {
+                if (searchGeneration != generation || closed) {
+                    return;
+                }
+                final long[] first = Arrays.copyOf(ids, Math.min(ids.length, count));
+                pending = repository.getAlertsByIds(first, new DataRepository.Callback<List<Alert>>() {
+                    @Override
+                    public void onResult(List<Alert> rows) {
+                        if (searchGeneration != generation || closed) {
+                            return;
+                        }
+                        rankedIds = ids;
+                        nextIndex = first.length;
+                        loading = false;
+                        publish(rows);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (searchGeneration == generation) {
+                            loading = false;
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (searchGeneration == generation) {
+                    loading = false;
+                }
+            }
+        });
+    }
+
+    private void publish(List<Alert> updated) {
+        alerts = updated;
+        listener.onAlertsUpdated(Collections.unmodifiableList(updated));
+    }
+
+    public void close() {
+        closed = true;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.securityalert;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Carries outbox batches off the device. {@link HttpAlertTransport} is the production one. */
+public interface AlertTransport {
+
+    enum Outcome {
+        DELIVERED,
+        // Temporary failure: try again after a backoff.
+        RETRY,
+        // The server will never accept this alert as sent.
+        REJECTED
+    }
+
+    /**
+     * Sends one batch and returns one outcome per entry, in order. Throws when
+     * nothing is known about the batch (e.g. no network); every entry is then retried.
+     */
+    List<Outcome> send(List<OutboxEntry> batch) throws IOException;
+}
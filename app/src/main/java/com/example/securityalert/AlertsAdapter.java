@@ -3,8 +3,6 @@ package com.example.securityalert;
 import android.widget.Toast;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,18 +12,45 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.FileProvider;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import java.io.File;
 import java.util.List;
+import java.util.Objects;
 
 public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewHolder> {
 
+    // Alerts are identified by row id; a changed row (e.g. a photo attached later)
+    // is rebound in place instead of being removed and inserted again.
+    private static final DiffUtil.ItemCallback<Alert> DIFF_CALLBACK = new DiffUtil.ItemCallback<Alert>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Alert oldItem, @NonNull Alert newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Alert oldItem, @NonNull Alert newItem) {
+            return Objects.equals(oldItem.senderEmail, newItem.senderEmail)
+                    && Objects.equals(oldItem.message, newItem.message)
+                    && Objects.equals(oldItem.location, newItem.location)
+                    && Objects.equals(oldItem.timestamp, newItem.timestamp)
+                    && Objects.equals(oldItem.createdAt, newItem.createdAt)
+                    && Objects.equals(oldItem.photoPath, newItem.photoPath)
+                    && Objects.equals(oldItem.groupName, newItem.groupName);
+        }
+    };
+
     private Context context;
-    private List<Alert> alerts;
+    // Diffs each new snapshot on a background thread and applies only the changes.
+    private AsyncListDiffer<Alert> differ;
+    private ThumbnailLoader thumbnailLoader;
 
     public AlertsAdapter(Context context, List<Alert> alerts) {
         this.context = context;
-        this.alerts = alerts;
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
+        differ.submitList(alerts);
     }
 
     @NonNull
@@ -37,85 +62,68 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
 
     @Override
     public void onBindViewHolder(@NonNull AlertViewHolder holder, int position) {
-        Alert alert = alerts.get(position);
-
-        holder.senderText.setText("From: " + alert.senderEmail);
-        holder.messageText.setText(alert.message);
-        holder.locationText.setText("Location: " + alert.location);
-        holder.timestampText.setText(alert.timestamp);
-        holder.groupText.setText("Group: " + alert.groupName);
-
-        if (alert.photoPath != null && !alert.photoPath.isEmpty()
-                && !alert.photoPath.contains("No photo")
-                && !alert.photoPath.contains("cancelled")) {
-            File imgFile = new File(alert.photoPath);
-            if (imgFile.exists()) {
-                Bitmap bitmap = BitmapFactory.decodeFile(imgFile.getAbsolutePath());
-                holder.photoView.setImageBitmap(bitmap);
-                holder.photoView.setVisibility(View.VISIBLE);
-
-
-                final String photoPathFinal = alert.photoPath;
-                holder.photoView.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        openPhotoFullScreen(photoPathFinal);
-                    }
-                });
+        long start = Metrics.start();
+        try {
+            Alert alert = differ.getCurrentList().get(position);
+
+            holder.senderText.setText("From: " + alert.senderEmail);
+            holder.messageText.setText(alert.message);
+            holder.locationText.setText("Location: " + alert.location);
+            holder.timestampText.setText(alert.createdAt != null
+                    ? TimeFormats.formatDisplay(alert.createdAt) : alert.timestamp);
+            holder.groupText.setText("Group: " + alert.groupName);
+
+            if (alert.photoPath != null && !alert.photoPath.isEmpty()
+                    && !alert.photoPath.contains("No photo")
+                    && !alert.photoPath.contains("cancelled")) {
+                File imgFile = new File(alert.photoPath);
+                if (imgFile.exists()) {
+                    holder.photoView.setVisibility(View.VISIBLE);
+                    thumbnailLoader.load(imgFile.getAbsolutePath(), holder.photoView);
+
+
+                    final String photoPathFinal = alert.photoPath;
+                    holder.photoView.setOnClickListener(new View.OnClickListener() {
+                        @Override
+                        public void onClick(View v) {
+                            openPhotoFullScreen(photoPathFinal);
+                        }
+                    });
+                } else {
+                    thumbnailLoader.cancel(holder.photoView);
+                    holder.photoView.setVisibility(View.GONE);
+                }
             } else {
+                thumbnailLoader.cancel(holder.photoView);
                 holder.photoView.setVisibility(View.GONE);
             }
-        } else {
-            holder.photoView.setVisibility(View.GONE);
-        }
-
-        final String locationFinal = alert.location;
-        holder.openMapButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                openLocationInMaps(locationFinal);
-            }
-        });
-    }
 
-    private void openLocationInMaps(String location) {
-        // Check if location exists
-        if (location == null || location.isEmpty()) {
-            Toast.makeText(context, " Location not available for this alert", Toast.LENGTH_LONG).show();
-            return;
+            final Alert alertFinal = alert;
+            holder.openMapButton.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    openLocationInMaps(alertFinal);
+                }
+            });
+        } finally {
+            Metrics.record("ui.bind_alert", start);
         }
+    }
 
-        // Check if location capture failed
-        if (location.contains("unavailable") || location.contains("denied")
-                || location.contains("not found") || location.contains("permission")
-                || location.contains("error")) {
-            Toast.makeText(context, " " + location, Toast.LENGTH_LONG).show();
+    private void openLocationInMaps(Alert alert) {
+        // Alerts without stored coordinates only have the reason in the location text.
+        if (alert.latitude == null || alert.longitude == null) {
+            if (alert.location == null || alert.location.isEmpty()) {
+                Toast.makeText(context, " Location not available for this alert", Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(context, " " + alert.location, Toast.LENGTH_LONG).show();
+            }
             return;
         }
 
         try {
-            // Clean location string
-            location = location.replace("Location:", "").trim();
-
-        //split cordinates
-            String[] coords = location.split(",");
-
-            if (coords.length != 2) {
-                Toast.makeText(context, " Invalid location format", Toast.LENGTH_SHORT).show();
-                return;
-            }
-
-            String lat = coords[0].trim();
-            String lng = coords[1].trim();
-
-            // Validate they are numbers
-            try {
-                Double.parseDouble(lat);
-                Double.parseDouble(lng);
-            } catch (NumberFormatException e) {
-                Toast.makeText(context, " Invalid coordinates: " + lat + ", " + lng, Toast.LENGTH_LONG).show();
-                return;
-            }
+            String lat = String.valueOf(alert.latitude);
+            String lng = String.valueOf(alert.longitude);
 
             Toast.makeText(context, " Opening location in maps...", Toast.LENGTH_SHORT).show();
 
@@ -189,9 +197,21 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull AlertViewHolder holder) {
+        super.onViewRecycled(holder);
+        thumbnailLoader.cancel(holder.photoView);
+        holder.photoView.setImageBitmap(null);
+    }
+
+    /** Shows {@code alerts}, animating only the rows that were inserted, changed or removed. */
+    public void submitAlerts(List<Alert> alerts) {
+        differ.submitList(alerts);
+    }
+
     @Override
     public int getItemCount() {
-        return alerts.size();
+        return differ.getCurrentList().size();
     }
 
     static class AlertViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,41 @@
+package com.example.securityalert;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Time source and timer for components that must be testable without a device.
+ * Modelled on {@link Handler}: tasks run on a single thread, and a task is
+ * cancelled by passing the same Runnable to {@link #removeCallbacks}.
+ */
+public interface Clock {
+
+    /** Milliseconds since boot, on the same timeline as location fixes. */
+    long elapsedRealtime();
+
+    void postDelayed(Runnable task, long delayMillis);
+
+    void removeCallbacks(Runnable task);
+
+    /** Real time, with tasks run on the main thread. */
+    static Clock mainThread() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Clock() {
+            @Override
+            public long elapsedRealtime() {
+                return SystemClock.elapsedRealtime();
+            }
+
+            @Override
+            public void postDelayed(Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+import android.util.Log;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background housekeeping for the database and the evidence photo folder, at
+ * most once a day. It runs in five phases:
+ * <ol>
+ *   <li>archive alerts older than their {@link RetentionPolicy} into AlertArchive;</li>
+ *   <li>merge the full-text index, which only drops deleted rows when merged;</li>
+ *   <li>delete the {@link EvidenceStore} images whose reference count is zero,
+ *       one row per image however many groups it went to;</li>
+ *   <li>delete the remaining photo files (and their thumbnails) that no live or
+ *       archived alert references, such as the ones left behind by a cancelled
+ *       capture or taken before the store existed;</li>
+ *   <li>hand the freed pages back to the file system with incremental vacuum.</li>
+ * </ol>
+ *
+ * Work is done in small steps grouped into time slices of {@link #SLICE_BUDGET_MS},
+ * with a pause between slices. Each write transaction stays short, so an SOS
+ * saved at the same moment waits a few milliseconds at most.
+ */
+public class CompactionJob {
+
+    private static final String TAG = "CompactionJob";
+
+    static final long SLICE_BUDGET_MS = 40;
+    static final long SLICE_PAUSE_MS = 500;
+    static final int ARCHIVE_BATCH_SIZE = 100;
+    static final int PHOTO_BATCH_SIZE = 50;
+    static final int VACUUM_PAGES_PER_STEP = 128;
+    static final int MERGE_BLOCKS_PER_STEP = 64;
+    // A photo file exists before its alert row points at it (progressive SOS), so
+    // only files and stored images older than this are candidates.
+    static final long PHOTO_GRACE_MS = 24L * 60 * 60 * 1000;
+    // Files created before incremental mode get one full VACUUM, once they waste this much.
+    static final double FULL_VACUUM_FREE_RATIO = 0.25;
+
+    private static final long START_DELAY_MS = 30 * 1000;
+    private static final long MIN_INTERVAL_MS = 24L * 60 * 60 * 1000;
+    private static final String PREFS_NAME = "CompactionPrefs";
+    private static final String KEY_LAST_RUN = "lastRunAt";
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "compaction");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    enum Phase { ARCHIVE, MERGE_SEARCH, EVIDENCE, PHOTOS, VACUUM, DONE }
+
+    public static class Stats {
+        public int archived;
+        public int photosDeleted;
+        public long pagesFreed;
+        public boolean fullVacuum;
+        public int slices;
+
+        @Override
+        public String toString() {
+            return "archived=" + archived + " photosDeleted=" + photosDeleted + " pagesFreed=" + pagesFreed
+                    + " fullVacuum=" + fullVacuum + " slices=" + slices;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private final EvidenceStore evidenceStore;
+    private final RetentionPolicy policy;
+    private final File photoDir;
+    private final long nowMillis;
+    private final Stats stats = new Stats();
+
+    private Phase phase = Phase.ARCHIVE;
+    // Keyset position of the retention scan: last (createdAt, id) looked at.
+    private long scanCreatedAt = Long.MIN_VALUE;
+    private long scanId = Long.MIN_VALUE;
+    private File[] photoFiles;
+    private int photoIndex;
+
+    CompactionJob(DatabaseHelper db, RetentionPolicy policy, File photoDir, long nowMillis) {
+        this.db = db;
+        this.evidenceStore = new EvidenceStore(db);
+        this.policy = policy;
+        this.photoDir = photoDir;
+        this.nowMillis = nowMillis;
+    }
+
+    /**
+     * Starts a compaction pass in the background unless one ran in the last day.
+     * The first slice runs a little after startup, off the cold-start path.
+     */
+    public static void scheduleIfDue(Context context) {
+        final Context app = context.getApplicationContext();
+        final SharedPreferences prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_RUN, 0) < MIN_INTERVAL_MS
+                || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                final DatabaseHelper helper = DatabaseHelper.getInstance(app);
+                final CompactionJob job = new CompactionJob(helper, RetentionPolicy.load(app),
+                        app.getExternalFilesDir(Environment.DIRECTORY_PICTURES), System.currentTimeMillis());
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean more;
+                        try {
+                            more = job.runSlice(SLICE_BUDGET_MS);
+                        } catch (RuntimeException e) {
+                            Log.e(TAG, "Compaction failed", e);
+                            more = false;
+                        }
+                        if (more) {
+                            executor.schedule(this, SLICE_PAUSE_MS, TimeUnit.MILLISECONDS);
+                            return;
+                        }
+                        Log.i(TAG, "done: " + job.getStats());
+                        prefs.edit().putLong(KEY_LAST_RUN, System.currentTimeMillis()).apply();
+                        running.set(false);
+                    }
+                });
+            }
+        }, START_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs steps until the budget is spent or there is nothing left to do. Every
+     * step is bounded, so a slice overruns its budget by one step at most.
+     * Returns true if more work remains.
+     */
+    boolean runSlice(long budgetMillis) {
+        long deadline = System.nanoTime() + budgetMillis * 1000000;
+        stats.slices++;
+        do {
+            if (!step()) {
+                return false;
+            }
+        } while (System.nanoTime() < deadline);
+        return true;
+    }
+
+    /** Runs every slice back to back. For tests. */
+    Stats runToCompletion() {
+        while (runSlice(SLICE_BUDGET_MS)) {
+            // keep going
+        }
+        return stats;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    // One bounded unit of work; returns false once every phase is done.
+    private boolean step() {
+        switch (phase) {
+            case ARCHIVE:
+                if (!archiveStep()) {
+                    phase = stats.archived > 0 ? Phase.MERGE_SEARCH : Phase.EVIDENCE;
+                }
+                return true;
+            case MERGE_SEARCH:
+                if (!db.mergeSearchIndex(MERGE_BLOCKS_PER_STEP)) {
+                    phase = Phase.EVIDENCE;
+                }
+                return true;
+            case EVIDENCE:
+                if (!evidenceStep()) {
+                    phase = Phase.PHOTOS;
+                }
+                return true;
+            case PHOTOS:
+                if (!photoStep()) {
+                    phase = Phase.VACUUM;
+                }
+                return true;
+            case VACUUM:
+                if (!vacuumStep()) {
+                    phase = Phase.DONE;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Walks alerts oldest first up to the latest cutoff of any group. Alerts a
+    // longer group retention keeps are stepped over by the keyset position, even
+    // when a whole batch shares one createdAt.
+    private boolean archiveStep() {
+        long latestCutoff = policy.latestCutoff(nowMillis);
+        if (latestCutoff == Long.MIN_VALUE) {
+            return false;
+        }
+        List<RetentionCandidate> candidates = db.getRetentionCandidates(
+                scanCreatedAt, scanId, latestCutoff, ARCHIVE_BATCH_SIZE);
+        long[] due = new long[candidates.size()];
+        int dueCount = 0;
+        for (RetentionCandidate candidate : candidates) {
+            scanCreatedAt = candidate.createdAt;
+            scanId = candidate.id;
+            if (candidate.createdAt < policy.cutoffFor(candidate.groupName, nowMillis)) {
+                due[dueCount++] = candidate.id;
+            }
+        }
+        if (dueCount > 0) {
+            long[] ids = new long[dueCount];
+            System.arraycopy(due, 0, ids, 0, dueCount);
+            stats.archived += db.archiveAlerts(ids, nowMillis);
+        }
+        // A short batch means the scan reached the cutoff.
+        return candidates.size() == ARCHIVE_BATCH_SIZE;
+    }
+
+    private boolean evidenceStep() {
+        int deleted = evidenceStore.collectGarbage(nowMillis - PHOTO_GRACE_MS, PHOTO_BATCH_SIZE);
+        stats.photosDeleted += deleted;
+        return deleted == PHOTO_BATCH_SIZE;
+    }
+
+    // Files the evidence store owns count as referenced and are left to evidenceStep.
+    private boolean photoStep() {
+        if (photoFiles == null) {
+            photoFiles = photoDir != null ? photoDir.listFiles() : null;
+            if (photoFiles == null) {
+                return false;
+            }
+        }
+        int end = Math.min(photoFiles.length, photoIndex + PHOTO_BATCH_SIZE);
+        for (; photoIndex < end; photoIndex++) {
+            File file = photoFiles[photoIndex];
+            if (!file.isFile() || nowMillis - file.lastModified() < PHOTO_GRACE_MS) {
+                continue;
+            }
+            String path = file.getAbsolutePath();
+            String photoPath = PhotoIngestor.photoPathForThumbnail(path);
+            if (!db.isPhotoReferenced(photoPath != null ? photoPath : path) && file.delete()) {
+                stats.photosDeleted++;
+            }
+        }
+        return photoIndex < photoFiles.length;
+    }
+
+    private boolean vacuumStep() {
+        long free = db.getFreePageCount();
+        if (free == 0) {
+            return false;
+        }
+        if (!db.isIncrementalVacuumEnabled()) {
+            // One-off and not sliced: rewrites the file and switches it to incremental mode.
+            if (free > FULL_VACUUM_FREE_RATIO * db.getPageCount()) {
+                db.vacuum();
+                stats.fullVacuum = true;
+                stats.pagesFreed += free;
+            }
+            return false;
+        }
+        db.incrementalVacuum(VACUUM_PAGES_PER_STEP);
+        long remaining = db.getFreePageCount();
+        stats.pagesFreed += free - remaining;
+        return remaining > 0 && remaining < free;
+    }
+}
@@ -3,9 +3,7 @@ package com.example.securityalert;
 import android.Manifest;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
@@ -20,31 +18,56 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
-import com.google.android.gms.tasks.OnSuccessListener;
 import java.io.File;
-import android.os.Handler;
-import com.google.android.gms.tasks.OnFailureListener;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
 
 public class DashboardActivity extends AppCompatActivity {
 
     private static final int REQUEST_PERMISSIONS = 100;
     private static final int REQUEST_IMAGE_CAPTURE = 101;
+    // SOS state kept across recreation, e.g. when the system kills the app while
+    // the camera is in front: the photo must still land on the alert saved before.
+    private static final String STATE_SOS_TRACE_START = "sosTraceStart";
+    private static final String STATE_SOS_ALERT_IDS = "sosAlertIds";
+    // Identifies the rows when the send reports back after this instance is gone.
+    private static final String STATE_SOS_CREATED_AT = "sosCreatedAt";
+    private static final String STATE_SOS_BURST = "sosBurst";
+    private static final String STATE_CURRENT_LOCATION = "currentLocation";
+    // latitude, longitude, accuracy (NaN if unknown), elapsedRealtime of the fix.
+    private static final String STATE_CURRENT_FIX = "currentFix";
+    private static final String STATE_PENDING_LOCATION = "pendingLocation";
+    private static final String STATE_PHOTO_PATH = "currentPhotoPath";
+    private static final String STATE_PENDING_PHOTO_PATH = "pendingPhotoPath";
+    private static final String STATE_PENDING_MESSAGE = "pendingMessage";
+    // How long the SOS waits for a fresh high-accuracy fix before using the cached one.
+    private static final long FRESH_FIX_DEADLINE_MS = 8000;
+    // Older cached fixes are not put on the initial alert row.
+    private static final long MAX_WARM_FIX_AGE_MS = 5 * 60 * 1000;
+    private static final String SOS_MESSAGE = "EMERGENCY! I need help immediately!";
+    // Replaces SOS_MESSAGE once the user keeps pressing SOS.
+    private static final String ESCALATED_SOS_MESSAGE = "URGENT - SOS pressed repeatedly! " + SOS_MESSAGE;
 
     private Button emergencyButton, manageGroupsButton, viewAlertsButton, logoutButton;
-    private TextView welcomeText;
-    private DatabaseHelper db;
-    private SharedPreferences prefs;
-    private FusedLocationProviderClient fusedLocationClient;
-
-    private String currentPhotoPath;
+    private TextView welcomeText, activityText;
+    private DataRepository repository;
+    private SessionCache sessionCache;
+    private LocationWarmCache locationCache;
+    private SosCoalescer sosCoalescer;
+
+    // Package-private, like sosAlertIds, so the recreation test can check them.
+    String currentPhotoPath;
     private String currentLocation = "Location unavailable";
+    // Numeric fix behind currentLocation; null when there is none.
+    private LocationFix currentFix;
+
+    // State of the SOS in progress.
+    private SosTrace sosTrace;
+    long[] sosAlertIds;
+    // createdAt of the rows being sent; 0 before the first SOS.
+    private long sosCreatedAt;
+    private String pendingLocation;
+    private String pendingPhotoPath;
+    private String pendingMessage;
     private String userEmail;
 
     @Override
@@ -57,15 +80,35 @@ public class DashboardActivity extends AppCompatActivity {
         viewAlertsButton = findViewById(R.id.viewAlertsButton);
         logoutButton = findViewById(R.id.logoutButton);
         welcomeText = findViewById(R.id.welcomeText);
+        activityText = findViewById(R.id.activityText);
+
+        repository = new DataRepository(this);
+        sessionCache = SessionCache.getInstance(this);
+        locationCache = new LocationWarmCache(new FusedLocationSource(this), Clock.mainThread());
+        sosCoalescer = new SosCoalescer(Clock.mainThread(), SosCoalescer.Config.DEFAULT);
+        if (savedInstanceState != null) {
+            restoreSosState(savedInstanceState);
+        }
+        // Alerts saved here are sent through the outbox (no-op without an endpoint).
+        AlertDispatcher.getInstance(this);
 
-        db = new DatabaseHelper(this);
-        prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-
-        userEmail = prefs.getString("userEmail", "");
-        User user = db.getUser(userEmail);
-        if (user != null) {
-            welcomeText.setText("Welcome, " + user.name + "!");
+        userEmail = sessionCache.getUserEmail();
+        if (sosAlertIds == null && sosCreatedAt != 0) {
+            recoverSosAlertIds();
+        }
+        User cached = sessionCache.getUser(userEmail);
+        if (cached != null) {
+            showWelcome(cached);
+        } else {
+            repository.getUser(userEmail, new DataRepository.Callback<User>() {
+                @Override
+                public void onResult(User user) {
+                    if (user != null) {
+                        sessionCache.putUser(user);
+                    }
+                    showWelcome(user);
+                }
+            });
         }
 
         checkAndRequestPermissions();
@@ -73,7 +116,12 @@ public class DashboardActivity extends AppCompatActivity {
         emergencyButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                showEmergencyConfirmation();
+                // The alert is already out; another press only adds to it.
+                if (sosCoalescer.inBurst()) {
+                    pressEmergency();
+                } else {
+                    showEmergencyConfirmation();
+                }
             }
         });
 
@@ -97,6 +145,22 @@ public class DashboardActivity extends AppCompatActivity {
                 logout();
             }
         });
+
+        // Hidden entry to the metrics debug screen.
+        welcomeText.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                startActivity(new Intent(DashboardActivity.this, MetricsActivity.class));
+                return true;
+            }
+        });
+    }
+
+    private void showWelcome(User user) {
+        if (user != null) {
+            welcomeText.setText("Welcome, " + user.name + "!");
+        }
+        StartupPipeline.reportDashboardInteractive(this);
     }
 
     private void checkAndRequestPermissions() {
@@ -125,115 +189,151 @@ public class DashboardActivity extends AppCompatActivity {
         builder.setPositiveButton("SEND ALERT", new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                triggerEmergency();
+                pressEmergency();
             }
         });
         builder.setNegativeButton("Cancel", null);
         builder.show();
     }
 
-    private void triggerEmergency() {
-        // Step 1: Show alert that we're getting location
-        Toast.makeText(this, " Getting your location...", Toast.LENGTH_SHORT).show();
-
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
-                != PackageManager.PERMISSION_GRANTED) {
-            currentLocation = "Location permission denied";
-            Toast.makeText(this, " Location permission denied. Please enable in settings.", Toast.LENGTH_LONG).show();
-            // Continue with camera anyway
-            Toast.makeText(this, " Opening camera...", Toast.LENGTH_SHORT).show();
-            dispatchTakePictureIntent();
+    // Repeated presses (or two confirmed dialogs) within the coalescer's window join
+    // the alert already sent instead of writing new rows and opening another camera.
+    // Package-private so the recreation test can drive a real SOS.
+    void pressEmergency() {
+        SosCoalescer.Decision decision = sosCoalescer.press();
+        if (decision.newAlert) {
+            triggerEmergency();
             return;
         }
+        Metrics.increment("sos.coalesced");
+        if (decision.refreshLocation) {
+            requestLocation();
+        }
+        if (decision.escalate) {
+            Metrics.increment("sos.escalated");
+            pendingMessage = ESCALATED_SOS_MESSAGE;
+            attachPendingDetails();
+        }
+        Toast.makeText(this, decision.escalate
+                        ? "Alert escalated: your groups see it as urgent"
+                        : "Alert already sent - updating it with your latest location",
+                Toast.LENGTH_SHORT).show();
+    }
 
-        // Get location with callback
-        fusedLocationClient.getLastLocation()
-                .addOnSuccessListener(this, new OnSuccessListener<Location>() {
-                    @Override
-                    public void onSuccess(Location location) {
-                        if (location != null) {
-                            currentLocation = location.getLatitude() + ", " + location.getLongitude();
-                            Toast.makeText(DashboardActivity.this,
-                                    "Location captured: " + currentLocation,
-                                    Toast.LENGTH_SHORT).show();
-                        } else {
-                            currentLocation = "Location not available";
-                            Toast.makeText(DashboardActivity.this,
-                                    " GPS signal weak. Turn on GPS and wait a moment.",
-                                    Toast.LENGTH_SHORT).show();
-                        }
+    // Progressive SOS: the alert rows are written straight away with whatever is
+    // known, then location and photo are attached to the same rows as they arrive.
+    // Each main-thread stage is timed as "sos.trigger.<stage>"; SosTrace times the rest.
+    private void triggerEmergency() {
+        long started = Metrics.start();
+        Metrics.increment("sos.triggered");
+        sosTrace = SosTrace.start();
+        sosAlertIds = null;
+        pendingLocation = null;
+        pendingPhotoPath = null;
+        pendingMessage = null;
+        // The warm cache is a field read, so the first row can already carry a location.
+        LocationFix warm = locationCache.current();
+        if (warm != null && locationCache.ageMillis() <= MAX_WARM_FIX_AGE_MS) {
+            currentFix = warm;
+            currentLocation = warm.describe();
+        } else {
+            currentFix = null;
+            currentLocation = "Locating...";
+        }
 
-                        // Step 2: Now open camera with alert
-                        Toast.makeText(DashboardActivity.this,
-                                " Opening camera for evidence photo...",
-                                Toast.LENGTH_LONG).show();
-
-                        // Small delay so user can see the message
-                        new Handler().postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                dispatchTakePictureIntent();
-                            }
-                        }, 1000); // 1 second delay
-                    }
-                })
-                .addOnFailureListener(this, new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        currentLocation = "Location error";
-                        Toast.makeText(DashboardActivity.this,
-                                " Location error: " + e.getMessage(),
-                                Toast.LENGTH_LONG).show();
-
-                        // Continue with camera
-                        Toast.makeText(DashboardActivity.this,
-                                " Opening camera...",
-                                Toast.LENGTH_SHORT).show();
-                        dispatchTakePictureIntent();
-                    }
-                });
+        long stage = Metrics.start();
+        persistAlert();
+        Metrics.record("sos.trigger.persist", stage);
+
+        stage = Metrics.start();
+        requestLocation();
+        Metrics.record("sos.trigger.location", stage);
+
+        Toast.makeText(this, " Opening camera for evidence photo...", Toast.LENGTH_SHORT).show();
+        stage = Metrics.start();
+        dispatchTakePictureIntent();
+        Metrics.record("sos.trigger.camera", stage);
+        Metrics.record("sos.trigger", started);
     }
 
-    private void getLocation() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            currentLocation = "Location permission denied";
+    private void requestLocation() {
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, " Location permission denied. Please enable in settings.", Toast.LENGTH_LONG).show();
+            onLocationResolved("Location permission denied", null);
             return;
         }
 
-        fusedLocationClient.getLastLocation().addOnSuccessListener(this, new OnSuccessListener<Location>() {
+        final SosTrace trace = sosTrace;
+        locationCache.acquire(FRESH_FIX_DEADLINE_MS, new LocationWarmCache.Callback() {
             @Override
-            public void onSuccess(Location location) {
-                if (location != null) {
-                    currentLocation = location.getLatitude() + ", " + location.getLongitude();
+            public void onLocation(LocationFix fix) {
+                if (trace != sosTrace) {
+                    return;
+                }
+                if (fix != null) {
+                    onLocationResolved(fix.describe(), fix);
+                    Toast.makeText(DashboardActivity.this,
+                            "Location captured: " + currentLocation,
+                            Toast.LENGTH_SHORT).show();
                 } else {
-                    currentLocation = "Location not found";
+                    onLocationResolved("Location not available", null);
+                    Toast.makeText(DashboardActivity.this,
+                            " GPS signal weak. Turn on GPS and wait a moment.",
+                            Toast.LENGTH_SHORT).show();
                 }
             }
         });
     }
 
+    private void onLocationResolved(String location, LocationFix fix) {
+        currentLocation = location;
+        currentFix = fix;
+        pendingLocation = location;
+        attachPendingDetails();
+    }
+
+    private void onPhotoResolved(String photoPath) {
+        pendingPhotoPath = photoPath;
+        attachPendingDetails();
+    }
+
     private void dispatchTakePictureIntent() {
         Intent takePictureIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
-        if (takePictureIntent.resolveActivity(getPackageManager()) != null) {
+        long stage = Metrics.start();
+        boolean hasCamera = takePictureIntent.resolveActivity(getPackageManager()) != null;
+        Metrics.record("sos.camera.resolve", stage);
+        if (hasCamera) {
             File photoFile = null;
+            stage = Metrics.start();
             try {
                 photoFile = createImageFile();
             } catch (IOException ex) {
                 Toast.makeText(this, "Error creating photo file", Toast.LENGTH_SHORT).show();
             }
+            Metrics.record("sos.camera.create_file", stage);
 
             if (photoFile != null) {
+                stage = Metrics.start();
                 Uri photoURI = FileProvider.getUriForFile(this, "com.example.securityalert.fileprovider", photoFile);
                 takePictureIntent.putExtra(MediaStore.EXTRA_OUTPUT, photoURI);
                 startActivityForResult(takePictureIntent, REQUEST_IMAGE_CAPTURE);
+                Metrics.record("sos.camera.launch", stage);
+                if (sosTrace != null) {
+                    sosTrace.mark(SosTrace.STAGE_CAMERA_OPENED);
+                }
+            } else {
+                Metrics.increment("sos.camera.unavailable");
+                onPhotoResolved("No photo captured");
             }
         } else {
-            sendAlertToGroups("No photo captured");
+            Metrics.increment("sos.camera.unavailable");
+            onPhotoResolved("No photo captured");
         }
     }
 
     private File createImageFile() throws IOException {
-        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        String timeStamp = TimeFormats.formatFileStamp(System.currentTimeMillis());
         String imageFileName = "ALERT_" + timeStamp + "_";
         File storageDir = getExternalFilesDir(Environment.DIRECTORY_PICTURES);
         File image = File.createTempFile(imageFileName, ".jpg", storageDir);
@@ -242,6 +342,65 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (sosTrace != null) {
+            outState.putLong(STATE_SOS_TRACE_START, sosTrace.startNanos());
+        }
+        outState.putLongArray(STATE_SOS_ALERT_IDS, sosAlertIds);
+        outState.putLong(STATE_SOS_CREATED_AT, sosCreatedAt);
+        outState.putLongArray(STATE_SOS_BURST, sosCoalescer.saveState());
+        outState.putString(STATE_PHOTO_PATH, currentPhotoPath);
+        outState.putString(STATE_CURRENT_LOCATION, currentLocation);
+        if (currentFix != null) {
+            outState.putDoubleArray(STATE_CURRENT_FIX, new double[]{currentFix.latitude, currentFix.longitude,
+                    currentFix.accuracyMeters != null ? currentFix.accuracyMeters : Double.NaN,
+                    currentFix.elapsedRealtimeMillis});
+        }
+        outState.putString(STATE_PENDING_LOCATION, pendingLocation);
+        outState.putString(STATE_PENDING_PHOTO_PATH, pendingPhotoPath);
+        outState.putString(STATE_PENDING_MESSAGE, pendingMessage);
+    }
+
+    private void restoreSosState(Bundle state) {
+        if (state.containsKey(STATE_SOS_TRACE_START)) {
+            sosTrace = SosTrace.resume(state.getLong(STATE_SOS_TRACE_START));
+        }
+        sosAlertIds = state.getLongArray(STATE_SOS_ALERT_IDS);
+        sosCreatedAt = state.getLong(STATE_SOS_CREATED_AT);
+        sosCoalescer.restoreState(state.getLongArray(STATE_SOS_BURST));
+        currentPhotoPath = state.getString(STATE_PHOTO_PATH);
+        currentLocation = state.getString(STATE_CURRENT_LOCATION, currentLocation);
+        double[] fix = state.getDoubleArray(STATE_CURRENT_FIX);
+        if (fix != null) {
+            currentFix = new LocationFix(fix[0], fix[1], Double.isNaN(fix[2]) ? null : (float) fix[2], (long) fix[3]);
+        }
+        pendingLocation = state.getString(STATE_PENDING_LOCATION);
+        pendingPhotoPath = state.getString(STATE_PENDING_PHOTO_PATH);
+        pendingMessage = state.getString(STATE_PENDING_MESSAGE);
+    }
+
+    // The send's callback went to the instance that was destroyed, so the rows it
+    // wrote are looked up by sender and createdAt instead.
+    private void recoverSosAlertIds() {
+        final SosTrace trace = sosTrace;
+        repository.findSentAlert(userEmail, sosCreatedAt, new DataRepository.Callback<long[]>() {
+            @Override
+            public void onResult(long[] alertIds) {
+                if (trace != sosTrace || sosAlertIds != null) {
+                    return;
+                }
+                sosAlertIds = alertIds;
+                if (alertIds.length == 0) {
+                    // Nothing was saved; a later press should try again.
+                    sosCoalescer.reset();
+                }
+                attachPendingDetails();
+            }
+        });
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -249,40 +408,108 @@ public class DashboardActivity extends AppCompatActivity {
             if (resultCode == RESULT_OK) {
                 // Photo captured successfully
                 Toast.makeText(this, "✅ Photo saved!", Toast.LENGTH_SHORT).show();
-                sendAlertToGroups(currentPhotoPath); // Make sure currentPhotoPath is set
+                onPhotoResolved(currentPhotoPath);
+                // Shrink, re-encode and store in the background; the alert is already on its way.
+                PhotoIngestor.getInstance().enqueue(currentPhotoPath, EvidenceStore.getInstance(this));
             } else {
-                // User cancelled
+                // User cancelled; the empty file the camera was given is never used.
+                if (currentPhotoPath != null) {
+                    new File(currentPhotoPath).delete();
+                    currentPhotoPath = null;
+                }
+                Metrics.increment("sos.photo.cancelled");
                 Toast.makeText(this, "⚠️ Photo cancelled", Toast.LENGTH_SHORT).show();
-                sendAlertToGroups("Photo capture cancelled");
+                onPhotoResolved("Photo capture cancelled");
             }
         }
     }
 
-    private void sendAlertToGroups(String photoPath) {
-        List<String> groups = db.getUserGroups(userEmail);
+    private void persistAlert() {
+        long now = System.currentTimeMillis();
+        final String timestamp = TimeFormats.formatDisplay(now);
+        Alert alert = new Alert(0, userEmail, SOS_MESSAGE, currentLocation, timestamp, null, null);
+        alert.createdAt = now;
+        sosCreatedAt = now;
 
-        if (groups.isEmpty()) {
-            Toast.makeText(this, "No groups found. Please create groups first.", Toast.LENGTH_LONG).show();
+        final SosTrace trace = sosTrace;
+        repository.sendAlert(alert,
+                new DataRepository.Callback<DataRepository.DispatchResult>() {
+                    @Override
+                    public void onResult(DataRepository.DispatchResult result) {
+                        trace.mark(SosTrace.STAGE_PERSISTED);
+                        if (trace != sosTrace) {
+                            // A newer SOS has started; its details must not land on these rows.
+                            return;
+                        }
+                        sosAlertIds = result.alertIds;
+                        if (sosAlertIds.length == 0) {
+                            // No group got it; a later press should try again.
+                            sosCoalescer.reset();
+                        }
+                        showDispatchResult(result, timestamp);
+                        attachPendingDetails();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(DashboardActivity.this, "Failed to send alerts", Toast.LENGTH_SHORT).show();
+                        if (trace == sosTrace) {
+                            // Nothing was written, so the next press must send a new alert.
+                            sosCoalescer.reset();
+                        }
+                    }
+                });
+    }
+
+    // Sends whatever location/photo/escalation arrived before the alert ids did, or as soon as
+    // it arrives once they exist.
+    private void attachPendingDetails() {
+        if (sosAlertIds == null || sosAlertIds.length == 0) {
             return;
         }
+        final SosTrace trace = sosTrace;
+        if (pendingLocation != null) {
+            Double latitude = currentFix != null ? currentFix.latitude : null;
+            Double longitude = currentFix != null ? currentFix.longitude : null;
+            Float accuracy = currentFix != null ? currentFix.accuracyMeters : null;
+            repository.updateAlertLocation(sosAlertIds, pendingLocation, latitude, longitude, accuracy,
+                    new DataRepository.Callback<Void>() {
+                        @Override
+                        public void onResult(Void ignored) {
+                            trace.mark(SosTrace.STAGE_LOCATION_ATTACHED);
+                        }
+                    });
+            pendingLocation = null;
+        }
+        if (pendingPhotoPath != null) {
+            repository.updateAlertPhoto(sosAlertIds, pendingPhotoPath, new DataRepository.Callback<Void>() {
+                @Override
+                public void onResult(Void ignored) {
+                    trace.mark(SosTrace.STAGE_PHOTO_ATTACHED);
+                }
+            });
+            pendingPhotoPath = null;
+        }
+        if (pendingMessage != null) {
+            repository.updateAlertMessage(sosAlertIds, pendingMessage, null);
+            pendingMessage = null;
+        }
+    }
 
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
-        String message = "EMERGENCY! I need help immediately!";
-
-        int alertsSent = 0;
-        for (String group : groups) {
-            boolean saved = db.saveAlert(userEmail, message, currentLocation, timestamp, photoPath, group);
-            if (saved) {
-                alertsSent++;
-            }
+    private void showDispatchResult(DataRepository.DispatchResult result, String timestamp) {
+        if (result.groups.isEmpty()) {
+            Toast.makeText(this, "No groups found. Please create groups first.", Toast.LENGTH_LONG).show();
+            return;
         }
 
+        int alertsSent = result.sentCount();
         if (alertsSent > 0) {
             Toast.makeText(this, "Emergency alert sent to " + alertsSent + " group(s)!", Toast.LENGTH_LONG).show();
 
             AlertDialog.Builder builder = new AlertDialog.Builder(this);
             builder.setTitle("Alert Sent Successfully");
-            builder.setMessage("Your emergency alert has been sent to:\n\nGroups: " + alertsSent + "\nLocation: " + currentLocation + "\nTime: " + timestamp);
+            builder.setMessage("Your emergency alert has been sent to:\n\nGroups: " + alertsSent + "\nTime: " + timestamp
+                    + "\n\nYour location and photo are added to the alert as soon as they are available.");
             builder.setPositiveButton("OK", null);
             builder.show();
         } else {
@@ -291,15 +518,56 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     private void logout() {
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.clear();
-        editor.apply();
+        sessionCache.signOut();
 
         Intent intent = new Intent(DashboardActivity.this, LoginActivity.class);
         startActivity(intent);
         finish();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        locationCache.start();
+        // Constant-time per group, so it is simply re-read whenever the dashboard shows.
+        repository.getDashboardSummary(userEmail, new DataRepository.Callback<DashboardSummary>() {
+            @Override
+            public void onResult(DashboardSummary summary) {
+                showActivity(summary);
+            }
+        });
+    }
+
+    private void showActivity(DashboardSummary summary) {
+        StringBuilder text = new StringBuilder();
+        text.append(summary.unreadCount).append(" unread, ")
+                .append(summary.lastDayCount).append(" in the last 24h");
+        if (summary.lastAlertAt != null) {
+            text.append("\nLast alert: ").append(TimeFormats.formatDisplay(summary.lastAlertAt));
+        }
+        for (GroupActivity group : summary.groups) {
+            if (group.alertCount == 0) {
+                continue;
+            }
+            text.append("\n").append(group.groupName).append(": ")
+                    .append(group.unreadCount).append(" unread, ")
+                    .append(group.lastDayCount).append(" in 24h");
+        }
+        activityText.setText(text);
+    }
+
+    @Override
+    protected void onStop() {
+        locationCache.stop();
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.close();
+        super.onDestroy();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -314,6 +582,8 @@ public class DashboardActivity extends AppCompatActivity {
             if (!allGranted) {
                 Toast.makeText(this, "Permissions are required for emergency alerts", Toast.LENGTH_LONG).show();
             }
+            // Begins warming now if location was just granted.
+            locationCache.start();
         }
     }
 }
\ No newline at end of file
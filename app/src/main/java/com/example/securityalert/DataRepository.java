@@ -0,0 +1,471 @@
+package com.example.securityalert;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous front for {@link DatabaseHelper}. Reads run on a small shared pool,
+ * writes on one shared writer thread and member imports on a thread of their own,
+ * so an SOS never waits behind screen loads or a roster file; every call reports
+ * back on the main thread.
+ *
+ * Each screen owns one instance and calls {@link #close()} from onDestroy. Reads
+ * that have not started yet are then cancelled; writes always run to completion
+ * (an SOS must never be dropped), but no callback reaches a destroyed screen.
+ * Reads beyond a bounded backlog are refused through {@link Callback#onError}.
+ */
+public class DataRepository {
+
+    private static final String TAG = "DataRepository";
+    private static final int READ_THREAD_COUNT = 2;
+    // Queued reads beyond this are refused rather than piling up behind a slow query.
+    private static final int READ_QUEUE_CAPACITY = 32;
+
+    private static final ExecutorService READ_EXECUTOR = createReadExecutor();
+    // One thread: writes keep their order and never queue behind reads.
+    private static final ExecutorService WRITE_EXECUTOR = createSerialExecutor("db-writer-");
+    // Imports read a whole file, possibly a slow cloud document, before their
+    // short write; see DatabaseHelper#importMembers.
+    private static final ExecutorService IMPORT_EXECUTOR = createSerialExecutor("db-import-");
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+        }
+    }
+
+    /** Outcome of {@link #sendAlert}: the groups looked up and the alert id written for each. */
+    public static class DispatchResult {
+        public final List<String> groups;
+        public final long[] alertIds;
+
+        DispatchResult(List<String> groups, long[] alertIds) {
+            this.groups = groups;
+            this.alertIds = alertIds;
+        }
+
+        public int sentCount() {
+            int sent = 0;
+            for (long alertId : alertIds) {
+                if (alertId != -1) {
+                    sent++;
+                }
+            }
+            return sent;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private final ContentResolver contentResolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<Future<?>> pendingReads = Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+    private volatile boolean closed;
+
+    public DataRepository(Context context) {
+        this.db = DatabaseHelper.getInstance(context);
+        this.contentResolver = context.getContentResolver();
+    }
+
+    // ---- Users ----
+
+    /** Delivers the user's profile if the credentials match, else null. */
+    public Future<?> login(final String email, final String password, Callback<User> callback) {
+        return read(new Callable<User>() {
+            @Override
+            public User call() {
+                return db.authenticate(email, password);
+            }
+        }, callback);
+    }
+
+    public Future<?> getUser(final String email, Callback<User> callback) {
+        return read(new Callable<User>() {
+            @Override
+            public User call() {
+                return db.getUser(email);
+            }
+        }, callback);
+    }
+
+    /** Delivers the new user's profile, or null if the email is already registered. */
+    public Future<?> registerUser(final String name, final String email, final String phone,
+                                  final String password, Callback<User> callback) {
+        return write(new Callable<User>() {
+            @Override
+            public User call() {
+                long id = db.registerUser(name, email, phone, password);
+                return id != -1 ? new User((int) id, name, email, phone, null) : null;
+            }
+        }, callback);
+    }
+
+    // ---- Groups ----
+
+    /** Loads every group owned by {@code ownerEmail} with its member count, in one query. */
+    public Future<?> getGroupSummaries(final String ownerEmail, Callback<List<GroupSummary>> callback) {
+        return read(new Callable<List<GroupSummary>>() {
+            @Override
+            public List<GroupSummary> call() {
+                return db.getGroupSummaries(ownerEmail);
+            }
+        }, callback);
+    }
+
+    public Future<?> getGroupMembers(final long groupId, Callback<List<String>> callback) {
+        return read(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                return db.getGroupMembers(groupId);
+            }
+        }, callback);
+    }
+
+    public Future<?> addGroup(final String groupName, final String ownerEmail, final String memberEmail,
+                              Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return db.addGroup(groupName, ownerEmail, memberEmail);
+            }
+        }, callback);
+    }
+
+    /**
+     * Imports every member in the CSV or vCard file at {@code source} into the group
+     * in one transaction. The file is streamed, never loaded whole.
+     */
+    public Future<?> importMembers(final String groupName, final String ownerEmail, final Uri source,
+                                   Callback<MemberImporter.Result> callback) {
+        return submit(new Callable<MemberImporter.Result>() {
+            @Override
+            public MemberImporter.Result call() throws IOException {
+                InputStream in = contentResolver.openInputStream(source);
+                if (in == null) {
+                    throw new FileNotFoundException(source.toString());
+                }
+                try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    return db.importMembers(groupName, ownerEmail, reader);
+                }
+            }
+        }, callback, false, IMPORT_EXECUTOR);
+    }
+
+    public Future<?> removeMember(final String groupName, final String ownerEmail, final String memberEmail,
+                                  Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return db.removeMember(groupName, ownerEmail, memberEmail);
+            }
+        }, callback);
+    }
+
+    // ---- Alerts ----
+
+    /**
+     * Looks up the sender's groups and writes {@code alert} to all of them in one
+     * transaction. The alert's id and group name are ignored.
+     */
+    public Future<?> sendAlert(final Alert alert, Callback<DispatchResult> callback) {
+        final long submitted = Metrics.start();
+        return write(new Callable<DispatchResult>() {
+            @Override
+            public DispatchResult call() {
+                // Time spent behind other writes, then the whole send.
+                Metrics.record("sos.send.queued", submitted);
+                long start = Metrics.start();
+                List<String> groups = db.getUserGroups(alert.senderEmail);
+                long[] alertIds = groups.isEmpty()
+                        ? new long[0]
+                        : db.saveAlertToGroups(alert, groups);
+                Metrics.record("sos.send", start);
+                return new DispatchResult(groups, alertIds);
+            }
+        }, callback);
+    }
+
+    /**
+     * Delivers the ids {@link #sendAlert} wrote for {@code alert}'s sender and createdAt,
+     * for a screen recreated before that send reported back. Queued behind the
+     * writes, so a send still in flight has committed by the time this reads.
+     */
+    public Future<?> findSentAlert(final String senderEmail, final long createdAt, Callback<long[]> callback) {
+        return write(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return db.getSentAlertIds(senderEmail, createdAt);
+            }
+        }, callback);
+    }
+
+    public Future<?> updateAlertLocation(final long[] alertIds, final String location, final Double latitude,
+                                         final Double longitude, final Float accuracy, Callback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                db.updateAlertLocation(alertIds, location, latitude, longitude, accuracy);
+                return null;
+            }
+        }, callback);
+    }
+
+    public Future<?> updateAlertPhoto(final long[] alertIds, final String photoPath, Callback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                db.updateAlertPhoto(alertIds, photoPath);
+                return null;
+            }
+        }, callback);
+    }
+
+    public Future<?> updateAlertMessage(final long[] alertIds, final String message, Callback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                db.updateAlertMessage(alertIds, message);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Runs a full-text prefix search for what the user typed over the alerts
+     * {@code viewerEmail} may see and delivers the ids of the best matches, best
+     * first; an empty array if nothing is searchable.
+     */
+    public Future<?> searchAlerts(final String input, final String viewerEmail, Callback<long[]> callback) {
+        return read(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                String matchQuery = AlertSearch.toMatchQuery(input);
+                return matchQuery == null
+                        ? new long[0]
+                        : db.searchVisibleAlertIds(matchQuery, viewerEmail, AlertSearch.MAX_CANDIDATES);
+            }
+        }, callback);
+    }
+
+    public Future<?> getAlertsByIds(final long[] ids, Callback<List<Alert>> callback) {
+        return read(new Callable<List<Alert>>() {
+            @Override
+            public List<Alert> call() {
+                return db.getAlertsByIds(ids);
+            }
+        }, callback);
+    }
+
+    public Future<?> getAlertsBetween(final long fromMillis, final long toMillis, final int limit,
+                                      Callback<List<Alert>> callback) {
+        return read(new Callable<List<Alert>>() {
+            @Override
+            public List<Alert> call() {
+                return db.getAlertsBetween(fromMillis, toMillis, limit);
+            }
+        }, callback);
+    }
+
+    public Future<?> getAlertsNear(final double latitude, final double longitude, final double radiusKm,
+                                   final int limit, Callback<List<Alert>> callback) {
+        return read(new Callable<List<Alert>>() {
+            @Override
+            public List<Alert> call() {
+                return db.getAlertsNear(latitude, longitude, radiusKm, limit);
+            }
+        }, callback);
+    }
+
+    /** Counts, last alert time and unread totals for the viewer's groups; see {@link DatabaseHelper#getDashboardSummary}. */
+    public Future<?> getDashboardSummary(final String viewerEmail, Callback<DashboardSummary> callback) {
+        return read(new Callable<DashboardSummary>() {
+            @Override
+            public DashboardSummary call() {
+                return db.getDashboardSummary(viewerEmail, System.currentTimeMillis());
+            }
+        }, callback);
+    }
+
+    public Future<?> markAlertsRead(final long[] alertIds) {
+        return write(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return db.markAlertsRead(alertIds);
+            }
+        }, null);
+    }
+
+    public Future<?> getFeedPage(final String viewerEmail, final long beforeId, final int limit,
+                                 Callback<List<Alert>> callback) {
+        return read(new Callable<List<Alert>>() {
+            @Override
+            public List<Alert> call() {
+                return db.getFeedPage(viewerEmail, beforeId, limit);
+            }
+        }, callback);
+    }
+
+    public Future<?> getFeedFrom(final String viewerEmail, final long oldestId, final int limit,
+                                 Callback<List<Alert>> callback) {
+        return read(new Callable<List<Alert>>() {
+            @Override
+            public List<Alert> call() {
+                return db.getFeedFrom(viewerEmail, oldestId, limit);
+            }
+        }, callback);
+    }
+
+    // ---- Plumbing ----
+
+    /** Cancels reads that have not started and stops delivering callbacks. Call from onDestroy. */
+    public void close() {
+        closed = true;
+        for (Future<?> future : pendingReads) {
+            future.cancel(false);
+        }
+        pendingReads.clear();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private <T> Future<?> read(Callable<T> work, Callback<T> callback) {
+        return submit(work, callback, true, READ_EXECUTOR);
+    }
+
+    private <T> Future<?> write(Callable<T> work, Callback<T> callback) {
+        return submit(work, callback, false, WRITE_EXECUTOR);
+    }
+
+    private <T> Future<?> submit(Callable<T> work, Callback<T> callback, boolean cancellable,
+                                 ExecutorService executor) {
+        Task<T> task = new Task<>(work, callback, cancellable);
+        if (closed && cancellable) {
+            task.cancel(false);
+            return task;
+        }
+        if (cancellable) {
+            pendingReads.add(task);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    private class Task<T> extends FutureTask<T> {
+        private final Callback<T> callback;
+        private final boolean cancellable;
+
+        Task(Callable<T> work, Callback<T> callback, boolean cancellable) {
+            super(work);
+            this.callback = callback;
+            this.cancellable = cancellable;
+        }
+
+        // Fails the task without running it, so the caller hears about it in onError.
+        void reject() {
+            setException(new RejectedExecutionException("Too many queued database reads"));
+        }
+
+        @Override
+        protected void done() {
+            if (cancellable) {
+                pendingReads.remove(this);
+            }
+            if (isCancelled() || closed || callback == null) {
+                return;
+            }
+            try {
+                final T result = get();
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResult(result);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Database task failed", e.getCause());
+                final Exception error = e.getCause() instanceof Exception
+                        ? (Exception) e.getCause() : new RuntimeException(e.getCause());
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onError(error);
+                    }
+                });
+            }
+        }
+
+        private void deliver(final Runnable action) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!closed) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static ExecutorService createReadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(READ_THREAD_COUNT, READ_THREAD_COUNT,
+                30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(READ_QUEUE_CAPACITY),
+                threadFactory("db-reader-"), new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                ((Task<?>) runnable).reject();
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Unbounded: a write is never refused.
+    private static ExecutorService createSerialExecutor(String namePrefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory threadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -3,15 +3,45 @@ package com.example.securityalert;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+// Every public query and write is timed into Metrics as "db.<method>".
 public class DatabaseHelper extends SQLiteOpenHelper {
 
+    /** Told after every committed write to the Alerts table, on the writing thread. */
+    public interface AlertsObserver {
+        void onAlertsChanged();
+    }
+
+    // The exact shape a geo query asked for, tested against cell candidates.
+    private interface AlertFilter {
+        boolean accept(Alert alert);
+    }
+
+    // Static so observers can register without a helper; a write through any helper notifies them.
+    private static final Set<AlertsObserver> alertsObservers = new CopyOnWriteArraySet<>();
+
     private static final String DATABASE_NAME = "SecurityAlert.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 12;
+    // Longest padded id list; see idSlots.
+    private static final int MAX_ID_SLOTS = 512;
+    // Fewest cell candidates read per page; see getAlertsInCells.
+    static final int MIN_CELL_PAGE = 50;
 
     private static final String TABLE_USERS = "Users";
     private static final String COL_USER_ID = "id";
@@ -20,11 +50,28 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COL_USER_PHONE = "phone";
     private static final String COL_USER_PASSWORD = "password";
 
-    private static final String TABLE_GROUPS = "Groups";
+    // One row per group; names are unique per owner.
+    private static final String TABLE_GROUPS = "ContactGroups";
     private static final String COL_GROUP_ID = "id";
     private static final String COL_GROUP_NAME = "groupName";
     private static final String COL_GROUP_OWNER = "ownerEmail";
-    private static final String COL_GROUP_MEMBER = "memberEmail";
+
+    // One row per (group, member); the UNIQUE key doubles as the lookup index.
+    private static final String TABLE_MEMBERS = "GroupMembers";
+    private static final String COL_MEMBER_ID = "id";
+    private static final String COL_MEMBER_GROUP = "groupId";
+    private static final String COL_MEMBER_EMAIL = "memberEmail";
+    // Which groups a viewer belongs to, for the membership feed.
+    private static final String INDEX_MEMBERS_EMAIL = "idx_members_email";
+
+    // Connection-private staging for importMembers: the file is read into it with
+    // no transaction open, then copied into the group in one short transaction.
+    private static final String TABLE_IMPORT_SPOOL = "ImportSpool";
+    private static final String COL_SPOOL_MEMBER = "member";
+
+    // Schema v1/v2 kept one denormalized row per (groupName, ownerEmail, memberEmail).
+    private static final String LEGACY_TABLE_GROUPS = "Groups";
+    private static final String LEGACY_COL_GROUP_MEMBER = "memberEmail";
 
     private static final String TABLE_ALERTS = "Alerts";
     private static final String COL_ALERT_ID = "id";
@@ -34,9 +81,284 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COL_ALERT_TIMESTAMP = "timestamp";
     private static final String COL_ALERT_PHOTO = "photoPath";
     private static final String COL_ALERT_GROUP = "groupName";
+    private static final String COL_ALERT_LATITUDE = "latitude";
+    private static final String COL_ALERT_LONGITUDE = "longitude";
+    private static final String COL_ALERT_ACCURACY = "accuracy";
+    // GeoGrid cell of (latitude, longitude); NULL when the alert has no fix.
+    private static final String COL_ALERT_GEO_CELL = "geoCell";
+
+    // When the alert was raised, in epoch milliseconds. The timestamp column keeps
+    // the text shown to users by earlier versions.
+    private static final String COL_ALERT_CREATED_AT = "createdAt";
+    // Evidence row of the photo, once it has been stored; NULL for alerts without
+    // one and for photos taken before schema v9.
+    private static final String COL_ALERT_EVIDENCE = "evidenceId";
+    // ContactGroups id of the group the row was sent to. groupName alone is only
+    // unique per owner; NULL for old rows whose group no longer existed at v10.
+    private static final String COL_ALERT_GROUP_ID = "groupId";
+    // 0 until the row has been shown in the feed on this device.
+    private static final String COL_ALERT_IS_READ = "isRead";
+
+    private static final String INDEX_ALERTS_GEO_CELL = "idx_alerts_geo_cell";
+    private static final String INDEX_ALERTS_CREATED_AT = "idx_alerts_created_at";
+    // Partial: most alerts have no photo. Lets photo GC ask "is this file used?" per file.
+    private static final String INDEX_ALERTS_PHOTO = "idx_alerts_photo";
+    // The rowid is the last key of every index, so one group's alerts are read
+    // newest first straight from the index, from any id down.
+    private static final String INDEX_ALERTS_GROUP = "idx_alerts_group";
+
+    // Per-group activity kept by triggers on Alerts, so the dashboard never reads
+    // alert rows: totals and the newest alert per group, and counts per hour for
+    // the last STATS_HOURS_KEPT hours.
+    private static final String TABLE_GROUP_STATS = "GroupAlertStats";
+    private static final String COL_STATS_GROUP = "groupId";
+    private static final String COL_STATS_ALERTS = "alertCount";
+    private static final String COL_STATS_UNREAD = "unreadCount";
+    private static final String COL_STATS_LAST_ALERT = "lastAlertId";
+    private static final String TABLE_GROUP_HOURS = "GroupAlertHours";
+    private static final String COL_HOURS_GROUP = "groupId";
+    private static final String COL_HOURS_HOUR = "hour";
+    private static final String COL_HOURS_ALERTS = "alertCount";
+    static final long HOUR_MS = 60L * 60 * 1000;
+    static final int STATS_HOURS_KEPT = 48;
+
+    // Alerts past their retention period, moved out of the live table by CompactionJob.
+    // Same columns as Alerts minus geoCell, groupId and isRead, keyed by the original alert id.
+    private static final String TABLE_ARCHIVE = "AlertArchive";
+    private static final String COL_ARCHIVED_AT = "archivedAt";
+    private static final String INDEX_ARCHIVE_PHOTO = "idx_archive_photo";
+    private static final String ARCHIVE_COLUMNS = COL_ALERT_ID + ", " + COL_ALERT_SENDER + ", " +
+            COL_ALERT_MESSAGE + ", " + COL_ALERT_LOCATION + ", " + COL_ALERT_TIMESTAMP + ", " +
+            COL_ALERT_PHOTO + ", " + COL_ALERT_GROUP + ", " + COL_ALERT_LATITUDE + ", " +
+            COL_ALERT_LONGITUDE + ", " + COL_ALERT_ACCURACY + ", " + COL_ALERT_CREATED_AT + ", " +
+            COL_ALERT_EVIDENCE;
+
+    // Evidence photos, one row per distinct image keyed by its SHA-256, however
+    // many alert rows (one per group) show it. refCount is the number of live and
+    // archived alert rows pointing at it; triggers keep it, like the search index.
+    private static final String TABLE_EVIDENCE = "Evidence";
+    private static final String COL_EVIDENCE_ID = "id";
+    private static final String COL_EVIDENCE_HASH = "sha256";
+    private static final String COL_EVIDENCE_PATH = "path";
+    private static final String COL_EVIDENCE_SIZE = "size";
+    private static final String COL_EVIDENCE_REF_COUNT = "refCount";
+    private static final String COL_EVIDENCE_CREATED_AT = "createdAt";
+    // Partial: only evidence no alert uses any more, oldest first, for garbage collection.
+    private static final String INDEX_EVIDENCE_UNREFERENCED = "idx_evidence_unreferenced";
+
+    // Outbox: one row per alert row that still has to reach (or has reached) the server.
+    private static final String TABLE_OUTBOX = "AlertOutbox";
+    private static final String COL_OUTBOX_ID = "id";
+    private static final String COL_OUTBOX_ALERT_ID = "alertId";
+    private static final String COL_OUTBOX_KEY = "idempotencyKey";
+    private static final String COL_OUTBOX_REVISION = "revision";
+    private static final String COL_OUTBOX_STATE = "state";
+    private static final String COL_OUTBOX_ATTEMPTS = "attempts";
+    private static final String COL_OUTBOX_NEXT_ATTEMPT = "nextAttemptAt";
+    private static final String COL_OUTBOX_LAST_ERROR = "lastError";
+    private static final String INDEX_OUTBOX_DUE = "idx_outbox_due";
+
+    // Full-text index over the searchable Alerts columns. It is an external-content
+    // FTS4 table (docid = Alerts.id), so the text is not stored twice; triggers on
+    // Alerts keep it in sync with every writer. Prefix indexes make "asha*" cheap.
+    private static final String TABLE_ALERT_SEARCH = "AlertSearch";
+    private static final String SEARCH_COLUMNS = COL_ALERT_SENDER + ", " + COL_ALERT_MESSAGE + ", " +
+            COL_ALERT_LOCATION + ", " + COL_ALERT_GROUP;
+
+    // Schema v2 index on the legacy Groups table; it goes away with the table in v3.
+    private static final String INDEX_GROUPS_OWNER_NAME_MEMBER = "idx_groups_owner_name_member";
+
+    // Statements are kept here so the query-plan tests run exactly what the app runs.
+    // checkUser/getUser are served by the implicit UNIQUE index on Users.email.
+    // Profile reads never select the password column.
+    private static final String USER_PROFILE_COLUMNS =
+            COL_USER_ID + ", " + COL_USER_NAME + ", " + COL_USER_EMAIL + ", " + COL_USER_PHONE;
+    static final String SQL_CHECK_USER = "SELECT 1 FROM " + TABLE_USERS +
+            " WHERE " + COL_USER_EMAIL + "=? AND " + COL_USER_PASSWORD + "=? LIMIT 1";
+    static final String SQL_AUTHENTICATE = "SELECT " + USER_PROFILE_COLUMNS + " FROM " + TABLE_USERS +
+            " WHERE " + COL_USER_EMAIL + "=? AND " + COL_USER_PASSWORD + "=? LIMIT 1";
+    static final String SQL_GET_USER = "SELECT " + USER_PROFILE_COLUMNS + " FROM " + TABLE_USERS +
+            " WHERE " + COL_USER_EMAIL + "=?";
+    // Group lookups use the UNIQUE (ownerEmail, groupName) index; member lookups
+    // use the UNIQUE (groupId, memberEmail) index.
+    static final String SQL_GET_USER_GROUPS = "SELECT " + COL_GROUP_NAME + " FROM " + TABLE_GROUPS +
+            " WHERE " + COL_GROUP_OWNER + "=? ORDER BY " + COL_GROUP_NAME;
+    static final String SQL_GET_GROUP_ID = "SELECT " + COL_GROUP_ID + " FROM " + TABLE_GROUPS +
+            " WHERE " + COL_GROUP_OWNER + "=? AND " + COL_GROUP_NAME + "=?";
+    // One round trip for the whole groups screen: the member count is a covering
+    // index count per group, so there is no GROUP BY over the members table.
+    static final String SQL_GET_GROUP_SUMMARIES = "SELECT g." + COL_GROUP_ID + ", g." + COL_GROUP_NAME +
+            ", (SELECT COUNT(*) FROM " + TABLE_MEMBERS + " m WHERE m." + COL_MEMBER_GROUP + " = g." + COL_GROUP_ID + ") AS memberCount" +
+            " FROM " + TABLE_GROUPS + " g WHERE g." + COL_GROUP_OWNER + "=? ORDER BY g." + COL_GROUP_NAME;
+    static final String SQL_GET_MEMBERS_BY_GROUP_ID = "SELECT " + COL_MEMBER_EMAIL + " FROM " + TABLE_MEMBERS +
+            " WHERE " + COL_MEMBER_GROUP + "=? ORDER BY " + COL_MEMBER_EMAIL;
+    static final String SQL_GET_GROUP_MEMBERS = "SELECT m." + COL_MEMBER_EMAIL + " FROM " + TABLE_MEMBERS + " m" +
+            " JOIN " + TABLE_GROUPS + " g ON g." + COL_GROUP_ID + " = m." + COL_MEMBER_GROUP +
+            " WHERE g." + COL_GROUP_NAME + "=? AND g." + COL_GROUP_OWNER + "=? ORDER BY m." + COL_MEMBER_EMAIL;
+    static final String WHERE_GROUP_MEMBER = COL_MEMBER_GROUP + " = (" + SQL_GET_GROUP_ID + ") AND " +
+            COL_MEMBER_EMAIL + "=?";
+    // Writes go to the primary connection, so the TEMP table is always the same one.
+    static final String SQL_CREATE_IMPORT_SPOOL = "CREATE TEMP TABLE IF NOT EXISTS " + TABLE_IMPORT_SPOOL +
+            " (" + COL_SPOOL_MEMBER + " TEXT PRIMARY KEY)";
+    // Repeats within the file fall to the spool's primary key.
+    static final String SQL_SPOOL_MEMBER = "INSERT OR IGNORE INTO " + TABLE_IMPORT_SPOOL + " (" +
+            COL_SPOOL_MEMBER + ") VALUES (?)";
+    // Members already in the group fall to the UNIQUE (groupId, memberEmail) constraint.
+    // The spool is read once in file order; it is the only table scanned.
+    static final String SQL_IMPORT_SPOOL = "INSERT OR IGNORE INTO " + TABLE_MEMBERS + " (" +
+            COL_MEMBER_GROUP + ", " + COL_MEMBER_EMAIL + ") SELECT ?, " + COL_SPOOL_MEMBER + " FROM " +
+            TABLE_IMPORT_SPOOL + " ORDER BY rowid";
+    static final String SQL_CLEAR_IMPORT_SPOOL = "DELETE FROM " + TABLE_IMPORT_SPOOL;
+    static final String SQL_REMOVE_MEMBER = "DELETE FROM " + TABLE_MEMBERS + " WHERE " + WHERE_GROUP_MEMBER;
+    // Walks the rowid b-tree backwards, so no index and no sort step is needed.
+    static final String SQL_GET_ALL_ALERTS = "SELECT * FROM " + TABLE_ALERTS +
+            " ORDER BY " + COL_ALERT_ID + " DESC";
+    // The evidence id is looked up from the photo path, so it does not matter
+    // whether the photo or the alert rows are stored first.
+    private static final String EVIDENCE_FOR_PATH = "(SELECT " + COL_EVIDENCE_ID + " FROM " + TABLE_EVIDENCE +
+            " WHERE " + COL_EVIDENCE_PATH + "=?)";
+    // Alerts go to the sender's own groups, so (sender, group name) finds the group id.
+    static final String SQL_INSERT_ALERT = "INSERT INTO " + TABLE_ALERTS + " (" +
+            COL_ALERT_SENDER + ", " + COL_ALERT_MESSAGE + ", " + COL_ALERT_LOCATION + ", " +
+            COL_ALERT_TIMESTAMP + ", " + COL_ALERT_PHOTO + ", " + COL_ALERT_LATITUDE + ", " +
+            COL_ALERT_LONGITUDE + ", " + COL_ALERT_ACCURACY + ", " + COL_ALERT_GEO_CELL + ", " +
+            COL_ALERT_CREATED_AT + ", " + COL_ALERT_GROUP + ", " + COL_ALERT_EVIDENCE + ", " + COL_ALERT_GROUP_ID +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " + EVIDENCE_FOR_PATH + ", (" + SQL_GET_GROUP_ID + "))";
+    // Everything from the oldest alert a screen already shows up to the newest one.
+    static final String SQL_GET_ALERTS_FROM = "SELECT * FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_ID + ">=? ORDER BY " + COL_ALERT_ID + " DESC LIMIT ?";
+    // Keyset page: a range search on the rowid, so every page costs the same.
+    static final String SQL_GET_ALERTS_PAGE = "SELECT * FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_ID + "<? ORDER BY " + COL_ALERT_ID + " DESC LIMIT ?";
+    // Membership feed: the groups a viewer owns or is a member of (by email or
+    // phone). UNION ALL avoids a temp b-tree; IN and the feed ignore duplicates.
+    static final String SQL_GET_VIEWER_GROUP_IDS = "SELECT " + COL_GROUP_ID + " FROM " + TABLE_GROUPS +
+            " WHERE " + COL_GROUP_OWNER + "=? UNION ALL SELECT " + COL_MEMBER_GROUP + " FROM " + TABLE_MEMBERS +
+            " WHERE " + COL_MEMBER_EMAIL + " IN (?, ?)";
+    // Each group's ids in [from, before), newest first, straight from idx_alerts_group.
+    static final String SQL_GET_GROUP_ALERT_IDS = "SELECT " + COL_ALERT_ID + " FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_GROUP_ID + "=? AND " + COL_ALERT_ID + ">=? AND " + COL_ALERT_ID + "<?" +
+            " ORDER BY " + COL_ALERT_ID + " DESC LIMIT ?";
+    // Every viewer group with its newest id in range, one index seek each, so the
+    // merge starts without a round trip per group. Binds from, before, then the viewer.
+    static final String SQL_GET_VIEWER_GROUP_HEADS = "SELECT v." + COL_GROUP_ID + ", (SELECT " + COL_ALERT_ID +
+            " FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_GROUP_ID + "=v." + COL_GROUP_ID + " AND " +
+            COL_ALERT_ID + ">=? AND " + COL_ALERT_ID + "<? ORDER BY " + COL_ALERT_ID + " DESC LIMIT 1) AS newestId" +
+            " FROM (" + SQL_GET_VIEWER_GROUP_IDS + ") v";
+    // Dashboard: one row per viewer group from the summary tables, at most
+    // STATS_HOURS_KEPT + 1 hour rows summed per group. Binds the first hour of
+    // the window, then the viewer.
+    static final String SQL_GET_GROUP_ACTIVITY = "SELECT v." + COL_GROUP_ID + ", g." + COL_GROUP_NAME +
+            ", g." + COL_GROUP_OWNER + ", s." + COL_STATS_ALERTS + ", s." + COL_STATS_UNREAD + ", a." + COL_ALERT_CREATED_AT + " AS lastAlertAt" +
+            ", (SELECT SUM(h." + COL_HOURS_ALERTS + ") FROM " + TABLE_GROUP_HOURS + " h WHERE h." + COL_HOURS_GROUP +
+            "=v." + COL_GROUP_ID + " AND h." + COL_HOURS_HOUR + ">=?) AS lastDayCount" +
+            " FROM (" + SQL_GET_VIEWER_GROUP_IDS + ") v JOIN " + TABLE_GROUPS + " g ON g." + COL_GROUP_ID + "=v." + COL_GROUP_ID +
+            " LEFT JOIN " + TABLE_GROUP_STATS + " s ON s." + COL_STATS_GROUP + "=v." + COL_GROUP_ID +
+            " LEFT JOIN " + TABLE_ALERTS + " a ON a." + COL_ALERT_ID + "=s." + COL_STATS_LAST_ALERT;
+    // Only a row still unread changes, so each one fires the unread trigger once.
+    static final String SQL_MARK_ALERT_READ = "UPDATE " + TABLE_ALERTS + " SET " + COL_ALERT_IS_READ + "=1" +
+            " WHERE " + COL_ALERT_ID + "=? AND " + COL_ALERT_IS_READ + "=0";
+    // Progressive SOS: details that arrive after the alert rows were written.
+    static final String SQL_UPDATE_ALERT_LOCATION = "UPDATE " + TABLE_ALERTS + " SET " +
+            COL_ALERT_LOCATION + "=?, " + COL_ALERT_LATITUDE + "=?, " + COL_ALERT_LONGITUDE + "=?, " +
+            COL_ALERT_ACCURACY + "=?, " + COL_ALERT_GEO_CELL + "=? WHERE " + COL_ALERT_ID + "=?";
+    static final String SQL_UPDATE_ALERT_PHOTO = "UPDATE " + TABLE_ALERTS + " SET " +
+            COL_ALERT_PHOTO + "=?, " + COL_ALERT_EVIDENCE + "=" + EVIDENCE_FOR_PATH + " WHERE " + COL_ALERT_ID + "=?";
+    // Escalates an alert already sent, e.g. when SOS is pressed again.
+    static final String SQL_UPDATE_ALERT_MESSAGE = "UPDATE " + TABLE_ALERTS + " SET " +
+            COL_ALERT_MESSAGE + "=? WHERE " + COL_ALERT_ID + "=?";
+    static final String SQL_ENQUEUE_OUTBOX = "INSERT INTO " + TABLE_OUTBOX + " (" +
+            COL_OUTBOX_ALERT_ID + ", " + COL_OUTBOX_KEY + ", " + COL_OUTBOX_NEXT_ATTEMPT + ") VALUES (?, ?, ?)";
+    // A changed alert is sent again under the same key with a higher revision.
+    static final String SQL_REQUEUE_OUTBOX = "UPDATE " + TABLE_OUTBOX + " SET " +
+            COL_OUTBOX_REVISION + "=" + COL_OUTBOX_REVISION + "+1, " + COL_OUTBOX_STATE + "=" + OutboxEntry.STATE_PENDING + ", " +
+            COL_OUTBOX_ATTEMPTS + "=0, " + COL_OUTBOX_NEXT_ATTEMPT + "=? WHERE " + COL_OUTBOX_ALERT_ID + "=?";
+    // a.* first, so "id" names the alert rather than the outbox row.
+    static final String SQL_GET_DUE_OUTBOX = "SELECT a.*, o." + COL_OUTBOX_ID + " AS outboxId, o." + COL_OUTBOX_KEY +
+            ", o." + COL_OUTBOX_REVISION + ", o." + COL_OUTBOX_ATTEMPTS + ", e." + COL_EVIDENCE_HASH + " AS photoSha256" +
+            " FROM " + TABLE_OUTBOX + " o JOIN " + TABLE_ALERTS + " a ON a." + COL_ALERT_ID + "=o." + COL_OUTBOX_ALERT_ID +
+            " LEFT JOIN " + TABLE_EVIDENCE + " e ON e." + COL_EVIDENCE_ID + "=a." + COL_ALERT_EVIDENCE +
+            " WHERE o." + COL_OUTBOX_STATE + "=" + OutboxEntry.STATE_PENDING + " AND o." + COL_OUTBOX_NEXT_ATTEMPT + "<=?" +
+            " ORDER BY o." + COL_OUTBOX_NEXT_ATTEMPT + " LIMIT ?";
+    static final String SQL_GET_NEXT_OUTBOX_ATTEMPT = "SELECT MIN(" + COL_OUTBOX_NEXT_ATTEMPT + ") FROM " + TABLE_OUTBOX +
+            " WHERE " + COL_OUTBOX_STATE + "=" + OutboxEntry.STATE_PENDING;
+    static final String SQL_SAVE_OUTBOX_RESULT = "UPDATE " + TABLE_OUTBOX + " SET " +
+            COL_OUTBOX_STATE + "=?, " + COL_OUTBOX_ATTEMPTS + "=?, " + COL_OUTBOX_NEXT_ATTEMPT + "=?, " +
+            COL_OUTBOX_LAST_ERROR + "=? WHERE " + COL_OUTBOX_ID + "=? AND " + COL_OUTBOX_REVISION + "=?";
+    // Retention walks Alerts oldest first along idx_alerts_created_at, whose entries
+    // are ordered by (createdAt, rowid): a keyset after (createdAt, id), so rows
+    // sharing a timestamp are paged through too. Binds after-createdAt, before,
+    // after-createdAt again, after-id. Spelled as one range with a filter rather
+    // than "createdAt>? OR (createdAt=? AND id>?)", which plans as two index
+    // lookups and a sort.
+    static final String SQL_GET_RETENTION_CANDIDATES = "SELECT " + COL_ALERT_ID + ", " + COL_ALERT_GROUP + ", " +
+            COL_ALERT_CREATED_AT + " FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_CREATED_AT + ">=? AND " +
+            COL_ALERT_CREATED_AT + "<? AND (" + COL_ALERT_CREATED_AT + ">? OR " + COL_ALERT_ID + ">?)" +
+            " ORDER BY " + COL_ALERT_CREATED_AT + ", " + COL_ALERT_ID + " LIMIT ?";
+    // Outbox rows go with their alert (ON DELETE CASCADE). An alert past its
+    // retention that is still pending will not be delivered any more.
+    static final String SQL_ARCHIVE_ALERT = "INSERT OR IGNORE INTO " + TABLE_ARCHIVE + " (" + ARCHIVE_COLUMNS + ", " +
+            COL_ARCHIVED_AT + ") SELECT " + ARCHIVE_COLUMNS + ", ? FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_ID + "=?";
+    static final String SQL_DELETE_ARCHIVED_ALERT = "DELETE FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_ID + "=?";
+    // Files in Evidence count as referenced: they are collected by refCount instead.
+    static final String SQL_IS_PHOTO_REFERENCED = "SELECT 1 FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_PHOTO + "=?" +
+            " UNION ALL SELECT 1 FROM " + TABLE_ARCHIVE + " WHERE " + COL_ALERT_PHOTO + "=?" +
+            " UNION ALL SELECT 1 FROM " + TABLE_EVIDENCE + " WHERE " + COL_EVIDENCE_PATH + "=? LIMIT 1";
+    static final String SQL_INSERT_EVIDENCE = "INSERT OR IGNORE INTO " + TABLE_EVIDENCE + " (" +
+            COL_EVIDENCE_HASH + ", " + COL_EVIDENCE_PATH + ", " + COL_EVIDENCE_SIZE + ", " +
+            COL_EVIDENCE_CREATED_AT + ") VALUES (?, ?, ?, ?)";
+    static final String SQL_GET_EVIDENCE_BY_HASH = "SELECT " + COL_EVIDENCE_ID + ", " + COL_EVIDENCE_PATH +
+            " FROM " + TABLE_EVIDENCE + " WHERE " + COL_EVIDENCE_HASH + "=?";
+    // The file at a registered path was rewritten since; it keeps its row.
+    static final String SQL_REHASH_EVIDENCE = "UPDATE " + TABLE_EVIDENCE + " SET " + COL_EVIDENCE_HASH + "=?, " +
+            COL_EVIDENCE_SIZE + "=? WHERE " + COL_EVIDENCE_PATH + "=?";
+    static final String SQL_GET_ALERTS_BY_PHOTO = "SELECT " + COL_ALERT_ID + " FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_PHOTO + "=?";
+    static final String SQL_SET_ALERT_EVIDENCE = "UPDATE " + TABLE_ALERTS + " SET " + COL_ALERT_PHOTO + "=?, " +
+            COL_ALERT_EVIDENCE + "=? WHERE " + COL_ALERT_ID + "=?";
+    static final String SQL_GET_UNREFERENCED_EVIDENCE = "SELECT " + COL_EVIDENCE_ID + ", " + COL_EVIDENCE_HASH +
+            ", " + COL_EVIDENCE_PATH + " FROM " + TABLE_EVIDENCE + " WHERE " + COL_EVIDENCE_REF_COUNT + "=0 AND " +
+            COL_EVIDENCE_CREATED_AT + "<? ORDER BY " + COL_EVIDENCE_CREATED_AT + " LIMIT ?";
+    // Re-checks the count, so evidence that gained an alert since it was listed stays.
+    static final String SQL_DELETE_EVIDENCE = "DELETE FROM " + TABLE_EVIDENCE + " WHERE " + COL_EVIDENCE_ID +
+            "=? AND " + COL_EVIDENCE_REF_COUNT + "=0";
+    // Newest matches first: FTS4 walks the doclist backwards for ORDER BY docid DESC.
+    static final String SQL_SEARCH_ALERTS = "SELECT docid, matchinfo(" + TABLE_ALERT_SEARCH + ", 'pcnx') AS matches FROM " +
+            TABLE_ALERT_SEARCH + " WHERE " + TABLE_ALERT_SEARCH + " MATCH ? ORDER BY docid DESC LIMIT ?";
+    // The same, limited to the viewer's groups before the limit applies: one rowid
+    // lookup per match and a membership list built once.
+    static final String SQL_SEARCH_VISIBLE_ALERTS = "SELECT s.docid, matchinfo(" + TABLE_ALERT_SEARCH + ", 'pcnx') AS matches" +
+            " FROM " + TABLE_ALERT_SEARCH + " s JOIN " + TABLE_ALERTS + " a ON a." + COL_ALERT_ID + "=s.docid" +
+            " WHERE " + TABLE_ALERT_SEARCH + " MATCH ? AND a." + COL_ALERT_GROUP_ID + " IN (" + SQL_GET_VIEWER_GROUP_IDS +
+            ") ORDER BY s.docid DESC LIMIT ?";
+    // Half-open time window [from, to), newest first, walked backwards along idx_alerts_created_at.
+    static final String SQL_GET_ALERTS_BETWEEN = "SELECT * FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_CREATED_AT + ">=? AND " + COL_ALERT_CREATED_AT + "<?" +
+            " ORDER BY " + COL_ALERT_CREATED_AT + " DESC, " + COL_ALERT_ID + " DESC LIMIT ?";
+    // The rows one saveAlertToGroups call wrote: they share sender and createdAt.
+    static final String SQL_GET_SENT_ALERT_IDS = "SELECT " + COL_ALERT_ID + " FROM " + TABLE_ALERTS +
+            " WHERE " + COL_ALERT_CREATED_AT + "=? AND " + COL_ALERT_SENDER + "=? ORDER BY " + COL_ALERT_ID;
+
+    private static DatabaseHelper instance;
+
+    // Guards the import spool; see importMembers.
+    private final Object importLock = new Object();
+
+    /**
+     * The helper every caller in the process shares: one connection pool, one
+     * statement cache and one writer for the database file. Do not close it.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // A null name opens a private in-memory database (used by the instrumented tests).
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
     }
 
     @Override
@@ -48,12 +370,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_USER_PHONE + " TEXT, " +
                 COL_USER_PASSWORD + " TEXT)";
 
-        String createGroupsTable = "CREATE TABLE " + TABLE_GROUPS + " (" +
-                COL_GROUP_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                COL_GROUP_NAME + " TEXT, " +
-                COL_GROUP_OWNER + " TEXT, " +
-                COL_GROUP_MEMBER + " TEXT)";
-
         String createAlertsTable = "CREATE TABLE " + TABLE_ALERTS + " (" +
                 COL_ALERT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
                 COL_ALERT_SENDER + " TEXT, " +
@@ -61,138 +377,1857 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_ALERT_LOCATION + " TEXT, " +
                 COL_ALERT_TIMESTAMP + " TEXT, " +
                 COL_ALERT_PHOTO + " TEXT, " +
-                COL_ALERT_GROUP + " TEXT)";
+                COL_ALERT_GROUP + " TEXT, " +
+                COL_ALERT_LATITUDE + " REAL, " +
+                COL_ALERT_LONGITUDE + " REAL, " +
+                COL_ALERT_ACCURACY + " REAL, " +
+                COL_ALERT_GEO_CELL + " INTEGER, " +
+                COL_ALERT_CREATED_AT + " INTEGER, " +
+                COL_ALERT_EVIDENCE + " INTEGER, " +
+                COL_ALERT_GROUP_ID + " INTEGER, " +
+                COL_ALERT_IS_READ + " INTEGER NOT NULL DEFAULT 0)";
 
         db.execSQL(createUsersTable);
-        db.execSQL(createGroupsTable);
+        createGroupTables(db);
         db.execSQL(createAlertsTable);
+        createAlertIndexes(db);
+        createOutboxTable(db);
+        createSearchIndex(db);
+        createArchive(db);
+        createEvidence(db);
+        createFeedIndexes(db);
+        createActivitySummary(db);
+    }
+
+    private void createFeedIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_GROUP + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_GROUP_ID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_MEMBERS_EMAIL + " ON " + TABLE_MEMBERS +
+                " (" + COL_MEMBER_EMAIL + ")");
+    }
+
+    private void createActivitySummary(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_GROUP_STATS + " (" +
+                COL_STATS_GROUP + " INTEGER PRIMARY KEY, " +
+                COL_STATS_ALERTS + " INTEGER NOT NULL DEFAULT 0, " +
+                COL_STATS_UNREAD + " INTEGER NOT NULL DEFAULT 0, " +
+                COL_STATS_LAST_ALERT + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE TABLE " + TABLE_GROUP_HOURS + " (" +
+                COL_HOURS_GROUP + " INTEGER NOT NULL, " +
+                COL_HOURS_HOUR + " INTEGER NOT NULL, " +
+                COL_HOURS_ALERTS + " INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (" + COL_HOURS_GROUP + ", " + COL_HOURS_HOUR + "))");
+
+        // Alerts without a group id (see COL_ALERT_GROUP_ID) are not counted.
+        String newHour = "new." + COL_ALERT_CREATED_AT + "/" + HOUR_MS;
+        String oldHour = "old." + COL_ALERT_CREATED_AT + "/" + HOUR_MS;
+        String newStats = " WHERE " + COL_STATS_GROUP + "=new." + COL_ALERT_GROUP_ID + ";";
+        String oldStats = " WHERE " + COL_STATS_GROUP + "=old." + COL_ALERT_GROUP_ID + ";";
+        db.execSQL("CREATE TRIGGER alerts_stats_ai AFTER INSERT ON " + TABLE_ALERTS +
+                " WHEN new." + COL_ALERT_GROUP_ID + " IS NOT NULL BEGIN " +
+                "INSERT OR IGNORE INTO " + TABLE_GROUP_STATS + " (" + COL_STATS_GROUP + ") VALUES (new." + COL_ALERT_GROUP_ID + "); " +
+                "UPDATE " + TABLE_GROUP_STATS + " SET " + COL_STATS_ALERTS + "=" + COL_STATS_ALERTS + "+1, " +
+                COL_STATS_UNREAD + "=" + COL_STATS_UNREAD + "+(new." + COL_ALERT_IS_READ + "=0), " +
+                COL_STATS_LAST_ALERT + "=MAX(" + COL_STATS_LAST_ALERT + ", new." + COL_ALERT_ID + ")" + newStats + " END");
+        // Hour buckets older than STATS_HOURS_KEPT are dropped as the group receives new ones.
+        db.execSQL("CREATE TRIGGER alerts_hours_ai AFTER INSERT ON " + TABLE_ALERTS +
+                " WHEN new." + COL_ALERT_GROUP_ID + " IS NOT NULL AND new." + COL_ALERT_CREATED_AT + " IS NOT NULL BEGIN " +
+                "INSERT OR IGNORE INTO " + TABLE_GROUP_HOURS + " (" + COL_HOURS_GROUP + ", " + COL_HOURS_HOUR + ")" +
+                " VALUES (new." + COL_ALERT_GROUP_ID + ", " + newHour + "); " +
+                "UPDATE " + TABLE_GROUP_HOURS + " SET " + COL_HOURS_ALERTS + "=" + COL_HOURS_ALERTS + "+1" +
+                " WHERE " + COL_HOURS_GROUP + "=new." + COL_ALERT_GROUP_ID + " AND " + COL_HOURS_HOUR + "=" + newHour + "; " +
+                "DELETE FROM " + TABLE_GROUP_HOURS + " WHERE " + COL_HOURS_GROUP + "=new." + COL_ALERT_GROUP_ID +
+                " AND " + COL_HOURS_HOUR + "<" + newHour + "-" + STATS_HOURS_KEPT + "; END");
+        // Archiving deletes rows; the newest one is looked up again only if it was the one removed.
+        db.execSQL("CREATE TRIGGER alerts_stats_ad AFTER DELETE ON " + TABLE_ALERTS +
+                " WHEN old." + COL_ALERT_GROUP_ID + " IS NOT NULL BEGIN " +
+                "UPDATE " + TABLE_GROUP_STATS + " SET " + COL_STATS_ALERTS + "=" + COL_STATS_ALERTS + "-1, " +
+                COL_STATS_UNREAD + "=" + COL_STATS_UNREAD + "-(old." + COL_ALERT_IS_READ + "=0)" + oldStats + " " +
+                "UPDATE " + TABLE_GROUP_STATS + " SET " + COL_STATS_LAST_ALERT + "=COALESCE((SELECT MAX(" + COL_ALERT_ID +
+                ") FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_GROUP_ID + "=old." + COL_ALERT_GROUP_ID + "), 0)" +
+                " WHERE " + COL_STATS_GROUP + "=old." + COL_ALERT_GROUP_ID + " AND " + COL_STATS_LAST_ALERT + "=old." + COL_ALERT_ID + "; " +
+                "UPDATE " + TABLE_GROUP_HOURS + " SET " + COL_HOURS_ALERTS + "=" + COL_HOURS_ALERTS + "-1" +
+                " WHERE " + COL_HOURS_GROUP + "=old." + COL_ALERT_GROUP_ID + " AND " + COL_HOURS_HOUR + "=" + oldHour + "; END");
+        db.execSQL("CREATE TRIGGER alerts_stats_au AFTER UPDATE OF " + COL_ALERT_IS_READ + " ON " + TABLE_ALERTS +
+                " WHEN old." + COL_ALERT_GROUP_ID + " IS NOT NULL AND new." + COL_ALERT_IS_READ + "<>old." + COL_ALERT_IS_READ +
+                " BEGIN UPDATE " + TABLE_GROUP_STATS + " SET " + COL_STATS_UNREAD + "=" + COL_STATS_UNREAD +
+                "+(new." + COL_ALERT_IS_READ + "=0)-(old." + COL_ALERT_IS_READ + "=0)" + oldStats + " END");
+    }
+
+    private void createArchive(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARCHIVE + " (" +
+                COL_ALERT_ID + " INTEGER PRIMARY KEY, " +
+                COL_ALERT_SENDER + " TEXT, " +
+                COL_ALERT_MESSAGE + " TEXT, " +
+                COL_ALERT_LOCATION + " TEXT, " +
+                COL_ALERT_TIMESTAMP + " TEXT, " +
+                COL_ALERT_PHOTO + " TEXT, " +
+                COL_ALERT_GROUP + " TEXT, " +
+                COL_ALERT_LATITUDE + " REAL, " +
+                COL_ALERT_LONGITUDE + " REAL, " +
+                COL_ALERT_ACCURACY + " REAL, " +
+                COL_ALERT_CREATED_AT + " INTEGER, " +
+                COL_ARCHIVED_AT + " INTEGER NOT NULL, " +
+                COL_ALERT_EVIDENCE + " INTEGER)");
+        db.execSQL("CREATE INDEX " + INDEX_ARCHIVE_PHOTO + " ON " + TABLE_ARCHIVE +
+                " (" + COL_ALERT_PHOTO + ") WHERE " + COL_ALERT_PHOTO + " IS NOT NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_PHOTO + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_PHOTO + ") WHERE " + COL_ALERT_PHOTO + " IS NOT NULL");
+    }
+
+    // Needs the evidenceId column on Alerts and AlertArchive. Archiving moves a row
+    // from one table to the other, which leaves the count unchanged.
+    private void createEvidence(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVIDENCE + " (" +
+                COL_EVIDENCE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_EVIDENCE_HASH + " TEXT NOT NULL UNIQUE, " +
+                COL_EVIDENCE_PATH + " TEXT NOT NULL UNIQUE, " +
+                COL_EVIDENCE_SIZE + " INTEGER NOT NULL, " +
+                COL_EVIDENCE_REF_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                COL_EVIDENCE_CREATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX " + INDEX_EVIDENCE_UNREFERENCED + " ON " + TABLE_EVIDENCE +
+                " (" + COL_EVIDENCE_CREATED_AT + ") WHERE " + COL_EVIDENCE_REF_COUNT + "=0");
+        createEvidenceTriggers(db, TABLE_ALERTS, "alerts");
+        createEvidenceTriggers(db, TABLE_ARCHIVE, "archive");
+    }
+
+    private void createEvidenceTriggers(SQLiteDatabase db, String table, String prefix) {
+        String add = " BEGIN UPDATE " + TABLE_EVIDENCE + " SET " + COL_EVIDENCE_REF_COUNT + "=" +
+                COL_EVIDENCE_REF_COUNT + "+1 WHERE " + COL_EVIDENCE_ID + "=new." + COL_ALERT_EVIDENCE + "; END";
+        String remove = " BEGIN UPDATE " + TABLE_EVIDENCE + " SET " + COL_EVIDENCE_REF_COUNT + "=" +
+                COL_EVIDENCE_REF_COUNT + "-1 WHERE " + COL_EVIDENCE_ID + "=old." + COL_ALERT_EVIDENCE + "; END";
+        String hasNew = " WHEN new." + COL_ALERT_EVIDENCE + " IS NOT NULL";
+        String hasOld = " WHEN old." + COL_ALERT_EVIDENCE + " IS NOT NULL";
+        String changed = "UPDATE OF " + COL_ALERT_EVIDENCE + " ON " + table;
+        db.execSQL("CREATE TRIGGER " + prefix + "_evidence_ai AFTER INSERT ON " + table + hasNew + add);
+        db.execSQL("CREATE TRIGGER " + prefix + "_evidence_ad AFTER DELETE ON " + table + hasOld + remove);
+        // An update is a removal of the old reference and an addition of the new one.
+        db.execSQL("CREATE TRIGGER " + prefix + "_evidence_au_old AFTER " + changed + hasOld + remove);
+        db.execSQL("CREATE TRIGGER " + prefix + "_evidence_au_new AFTER " + changed + hasNew + add);
+    }
+
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_ALERT_SEARCH + " USING fts4(content=\"" + TABLE_ALERTS + "\", " +
+                SEARCH_COLUMNS + ", prefix=\"2,3\")");
+        String newRow = "new." + COL_ALERT_ID + ", new." + COL_ALERT_SENDER + ", new." + COL_ALERT_MESSAGE +
+                ", new." + COL_ALERT_LOCATION + ", new." + COL_ALERT_GROUP;
+        String removeOld = " BEGIN DELETE FROM " + TABLE_ALERT_SEARCH + " WHERE docid=old." + COL_ALERT_ID + "; END";
+        String insertNew = " BEGIN INSERT INTO " + TABLE_ALERT_SEARCH + " (docid, " + SEARCH_COLUMNS + ")" +
+                " VALUES (" + newRow + "); END";
+        // Only updates of indexed columns touch the index; photo and outbox updates do not.
+        String indexedUpdate = "UPDATE OF " + SEARCH_COLUMNS + " ON " + TABLE_ALERTS;
+        db.execSQL("CREATE TRIGGER alerts_search_ai AFTER INSERT ON " + TABLE_ALERTS + insertNew);
+        db.execSQL("CREATE TRIGGER alerts_search_bd BEFORE DELETE ON " + TABLE_ALERTS + removeOld);
+        db.execSQL("CREATE TRIGGER alerts_search_bu BEFORE " + indexedUpdate + removeOld);
+        db.execSQL("CREATE TRIGGER alerts_search_au AFTER " + indexedUpdate + insertNew);
+    }
+
+    private void createOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " (" +
+                COL_OUTBOX_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_OUTBOX_ALERT_ID + " INTEGER NOT NULL UNIQUE REFERENCES " + TABLE_ALERTS +
+                "(" + COL_ALERT_ID + ") ON DELETE CASCADE, " +
+                COL_OUTBOX_KEY + " TEXT NOT NULL UNIQUE, " +
+                COL_OUTBOX_REVISION + " INTEGER NOT NULL DEFAULT 0, " +
+                COL_OUTBOX_STATE + " INTEGER NOT NULL DEFAULT " + OutboxEntry.STATE_PENDING + ", " +
+                COL_OUTBOX_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                COL_OUTBOX_NEXT_ATTEMPT + " INTEGER NOT NULL, " +
+                COL_OUTBOX_LAST_ERROR + " TEXT)");
+        db.execSQL("CREATE INDEX " + INDEX_OUTBOX_DUE + " ON " + TABLE_OUTBOX +
+                " (" + COL_OUTBOX_STATE + ", " + COL_OUTBOX_NEXT_ATTEMPT + ")");
+    }
+
+    private void createAlertIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_GEO_CELL + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_GEO_CELL + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_CREATED_AT + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_CREATED_AT + ")");
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setForeignKeyConstraintsEnabled(true);
+        // Takes effect when the file is created; older files are converted by
+        // CompactionJob's one-off VACUUM. Lets compaction hand free pages back.
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        // After auto_vacuum: switching a new file to WAL writes its header. Reads
+        // then run on their own connections alongside the writer. Ignored for
+        // in-memory databases.
+        db.enableWriteAheadLogging();
+        // Every statement below fits in each connection's cache, so compiled
+        // statements are reused instead of being prepared again on every call.
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_GROUPS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ALERTS);
-        onCreate(db);
+        // Upgrade step by step so existing users, groups and alerts are kept.
+        if (oldVersion < 2) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_GROUPS_OWNER_NAME_MEMBER + " ON " + LEGACY_TABLE_GROUPS +
+                    " (" + COL_GROUP_OWNER + ", " + COL_GROUP_NAME + ", " + LEGACY_COL_GROUP_MEMBER + ")");
+        }
+        if (oldVersion < 3) {
+            migrateGroupsToV3(db);
+        }
+        if (oldVersion < 4) {
+            migrateAlertsToV4(db);
+        }
+        if (oldVersion < 5) {
+            migrateAlertsToV5(db);
+        }
+        if (oldVersion < 6) {
+            // Alerts saved before the outbox existed are not sent retroactively.
+            createOutboxTable(db);
+        }
+        if (oldVersion < 7) {
+            createSearchIndex(db);
+            db.execSQL("INSERT INTO " + TABLE_ALERT_SEARCH + " (" + TABLE_ALERT_SEARCH + ") VALUES ('rebuild')");
+        }
+        if (oldVersion < 8) {
+            createArchive(db);
+        }
+        if (oldVersion < 9) {
+            // Photos taken earlier stay outside the store; CompactionJob still
+            // collects them file by file.
+            db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_EVIDENCE + " INTEGER");
+            if (oldVersion >= 8) {
+                // An archive created by the step above already has the column.
+                db.execSQL("ALTER TABLE " + TABLE_ARCHIVE + " ADD COLUMN " + COL_ALERT_EVIDENCE + " INTEGER");
+            }
+            createEvidence(db);
+        }
+        if (oldVersion < 10) {
+            // Every alert was sent by the owner of its group.
+            db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_GROUP_ID + " INTEGER");
+            db.execSQL("UPDATE " + TABLE_ALERTS + " SET " + COL_ALERT_GROUP_ID + "=(SELECT g." + COL_GROUP_ID +
+                    " FROM " + TABLE_GROUPS + " g WHERE g." + COL_GROUP_OWNER + "=" + TABLE_ALERTS + "." +
+                    COL_ALERT_SENDER + " AND g." + COL_GROUP_NAME + "=" + TABLE_ALERTS + "." + COL_ALERT_GROUP + ")");
+            createFeedIndexes(db);
+        }
+        if (oldVersion < 11) {
+            // History from before the summary counts as read; only new alerts start unread.
+            db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_IS_READ + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE " + TABLE_ALERTS + " SET " + COL_ALERT_IS_READ + "=1");
+            createActivitySummary(db);
+            db.execSQL("INSERT INTO " + TABLE_GROUP_STATS + " (" + COL_STATS_GROUP + ", " + COL_STATS_ALERTS + ", " +
+                    COL_STATS_LAST_ALERT + ") SELECT " + COL_ALERT_GROUP_ID + ", COUNT(*), MAX(" + COL_ALERT_ID + ")" +
+                    " FROM " + TABLE_ALERTS + " WHERE " + COL_ALERT_GROUP_ID + " IS NOT NULL GROUP BY " + COL_ALERT_GROUP_ID);
+            db.execSQL("INSERT INTO " + TABLE_GROUP_HOURS + " SELECT " + COL_ALERT_GROUP_ID + ", " +
+                    COL_ALERT_CREATED_AT + "/" + HOUR_MS + " AS h, COUNT(*) FROM " + TABLE_ALERTS +
+                    " WHERE " + COL_ALERT_GROUP_ID + " IS NOT NULL AND " + COL_ALERT_CREATED_AT + ">=?" +
+                    " GROUP BY " + COL_ALERT_GROUP_ID + ", h",
+                    new Object[]{(System.currentTimeMillis() / HOUR_MS - STATS_HOURS_KEPT) * HOUR_MS});
+        }
+        if (oldVersion < 12) {
+            normalizeMembersToV12(db);
+        }
     }
 
-    public boolean registerUser(String name, String email, String phone, String password) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COL_USER_NAME, name);
-        values.put(COL_USER_EMAIL, email);
-        values.put(COL_USER_PHONE, phone);
-        values.put(COL_USER_PASSWORD, password);
-        long result = db.insert(TABLE_USERS, null, values);
-        return result != -1;
+    private void createGroupTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_GROUPS + " (" +
+                COL_GROUP_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_GROUP_NAME + " TEXT NOT NULL, " +
+                COL_GROUP_OWNER + " TEXT NOT NULL, " +
+                "UNIQUE (" + COL_GROUP_OWNER + ", " + COL_GROUP_NAME + "))");
+        db.execSQL("CREATE TABLE " + TABLE_MEMBERS + " (" +
+                COL_MEMBER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_MEMBER_GROUP + " INTEGER NOT NULL REFERENCES " + TABLE_GROUPS + " (" + COL_GROUP_ID + ") ON DELETE CASCADE, " +
+                COL_MEMBER_EMAIL + " TEXT NOT NULL, " +
+                "UNIQUE (" + COL_MEMBER_GROUP + ", " + COL_MEMBER_EMAIL + "))");
+    }
+
+    // Splits the legacy Groups rows into one group row per (owner, name) and one
+    // membership row per distinct member, in first-seen order, then drops Groups.
+    private void migrateGroupsToV3(SQLiteDatabase db) {
+        createGroupTables(db);
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_GROUPS + " (" + COL_GROUP_NAME + ", " + COL_GROUP_OWNER + ")" +
+                " SELECT " + COL_GROUP_NAME + ", " + COL_GROUP_OWNER + " FROM " + LEGACY_TABLE_GROUPS +
+                " WHERE " + COL_GROUP_NAME + " IS NOT NULL AND " + COL_GROUP_OWNER + " IS NOT NULL" +
+                " GROUP BY " + COL_GROUP_OWNER + ", " + COL_GROUP_NAME + " ORDER BY MIN(" + COL_GROUP_ID + ")");
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_MEMBERS + " (" + COL_MEMBER_GROUP + ", " + COL_MEMBER_EMAIL + ")" +
+                " SELECT g." + COL_GROUP_ID + ", o." + LEGACY_COL_GROUP_MEMBER +
+                " FROM " + LEGACY_TABLE_GROUPS + " o JOIN " + TABLE_GROUPS + " g" +
+                " ON g." + COL_GROUP_NAME + " = o." + COL_GROUP_NAME + " AND g." + COL_GROUP_OWNER + " = o." + COL_GROUP_OWNER +
+                " WHERE o." + LEGACY_COL_GROUP_MEMBER + " IS NOT NULL ORDER BY o." + COL_GROUP_ID);
+        db.execSQL("DROP TABLE IF EXISTS " + LEGACY_TABLE_GROUPS);
+    }
+
+    // Adds numeric coordinates and fills them in from the "lat, lng" text that
+    // older versions stored; rows holding an error message keep NULLs.
+    private void migrateAlertsToV4(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_LATITUDE + " REAL");
+        db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_LONGITUDE + " REAL");
+        db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_ACCURACY + " REAL");
+        db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_GEO_CELL + " INTEGER");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_GEO_CELL + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_GEO_CELL + ")");
+
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_ALERTS + " SET " +
+                COL_ALERT_LATITUDE + "=?, " + COL_ALERT_LONGITUDE + "=?, " + COL_ALERT_GEO_CELL + "=?" +
+                " WHERE " + COL_ALERT_ID + "=?");
+        Cursor cursor = db.rawQuery("SELECT " + COL_ALERT_ID + ", " + COL_ALERT_LOCATION + " FROM " + TABLE_ALERTS +
+                " WHERE " + COL_ALERT_LOCATION + " IS NOT NULL", null);
+        try {
+            while (cursor.moveToNext()) {
+                double[] coordinates = GeoGrid.parseCoordinates(cursor.getString(1));
+                if (coordinates == null) {
+                    continue;
+                }
+                update.bindDouble(1, coordinates[0]);
+                update.bindDouble(2, coordinates[1]);
+                update.bindLong(3, GeoGrid.cellOf(coordinates[0], coordinates[1]));
+                update.bindLong(4, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+    }
+
+    // Converts the formatted timestamp text into epoch millis. Rows whose text does
+    // not parse keep a NULL createdAt and drop out of time-window queries.
+    private void migrateAlertsToV5(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_ALERTS + " ADD COLUMN " + COL_ALERT_CREATED_AT + " INTEGER");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ALERTS_CREATED_AT + " ON " + TABLE_ALERTS +
+                " (" + COL_ALERT_CREATED_AT + ")");
+
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_ALERTS + " SET " +
+                COL_ALERT_CREATED_AT + "=? WHERE " + COL_ALERT_ID + "=?");
+        Cursor cursor = db.rawQuery("SELECT " + COL_ALERT_ID + ", " + COL_ALERT_TIMESTAMP + " FROM " + TABLE_ALERTS +
+                " WHERE " + COL_ALERT_TIMESTAMP + " IS NOT NULL", null);
+        try {
+            while (cursor.moveToNext()) {
+                Long createdAt = TimeFormats.parseDisplay(cursor.getString(1));
+                if (createdAt == null) {
+                    continue;
+                }
+                update.bindLong(1, createdAt);
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+    }
+
+    // Members copied from the legacy Groups table kept whatever was typed, but the
+    // feed looks members up in normalized form. A row that normalizes to a member
+    // its group already has is dropped; values that are neither an email nor a
+    // phone number are left alone.
+    private void normalizeMembersToV12(SQLiteDatabase db) {
+        List<Long> ids = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        // Collected first: rows are deleted below, which would shift a live cursor.
+        Cursor cursor = db.rawQuery("SELECT " + COL_MEMBER_ID + ", " + COL_MEMBER_EMAIL + " FROM " + TABLE_MEMBERS +
+                " ORDER BY " + COL_MEMBER_ID, null);
+        try {
+            while (cursor.moveToNext()) {
+                String member = cursor.getString(1);
+                String normalized = MemberImporter.normalize(member);
+                if (normalized != null && !normalized.equals(member)) {
+                    ids.add(cursor.getLong(0));
+                    members.add(normalized);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        SQLiteStatement update = db.compileStatement("UPDATE OR IGNORE " + TABLE_MEMBERS + " SET " +
+                COL_MEMBER_EMAIL + "=? WHERE " + COL_MEMBER_ID + "=?");
+        SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLE_MEMBERS + " WHERE " + COL_MEMBER_ID + "=?");
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                long id = ids.get(i);
+                update.bindString(1, members.get(i));
+                update.bindLong(2, id);
+                if (update.executeUpdateDelete() == 0) {
+                    delete.bindLong(1, id);
+                    delete.executeUpdateDelete();
+                }
+            }
+        } finally {
+            update.close();
+            delete.close();
+        }
+    }
+
+    // The form a member is stored and looked up in, as imports store it.
+    private static String storedMember(String member) {
+        String normalized = MemberImporter.normalize(member);
+        return normalized != null ? normalized : member;
+    }
+
+    /** Returns the new user's id, or -1 if the email is already registered. */
+    public long registerUser(String name, String email, String phone, String password) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(COL_USER_NAME, name);
+            values.put(COL_USER_EMAIL, email);
+            values.put(COL_USER_PHONE, phone);
+            values.put(COL_USER_PASSWORD, password);
+            return db.insert(TABLE_USERS, null, values);
+        } finally {
+            Metrics.record("db.registerUser", start);
+        }
     }
 
     public boolean checkUser(String email, String password) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT * FROM " + TABLE_USERS + " WHERE " + COL_USER_EMAIL + "=? AND " + COL_USER_PASSWORD + "=?";
-        Cursor cursor = db.rawQuery(query, new String[]{email, password});
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        return exists;
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_CHECK_USER, new String[]{email, password});
+            boolean exists = cursor.moveToFirst();
+            cursor.close();
+            return exists;
+        } finally {
+            Metrics.record("db.checkUser", start);
+        }
+    }
+
+    /** The user's profile if the credentials match, else null. Checked and read in one query. */
+    public User authenticate(String email, String password) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_AUTHENTICATE, new String[]{email, password});
+            User user = cursor.moveToFirst() ? readUser(cursor) : null;
+            cursor.close();
+            return user;
+        } finally {
+            Metrics.record("db.authenticate", start);
+        }
     }
 
     public User getUser(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT * FROM " + TABLE_USERS + " WHERE " + COL_USER_EMAIL + "=?";
-        Cursor cursor = db.rawQuery(query, new String[]{email});
-        User user = null;
-        if (cursor.moveToFirst()) {
-            user = new User(
-                    cursor.getInt(0),
-                    cursor.getString(1),
-                    cursor.getString(2),
-                    cursor.getString(3),
-                    cursor.getString(4)
-            );
-        }
-        cursor.close();
-        return user;
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_USER, new String[]{email});
+            User user = cursor.moveToFirst() ? readUser(cursor) : null;
+            cursor.close();
+            return user;
+        } finally {
+            Metrics.record("db.getUser", start);
+        }
+    }
+
+    // Reads USER_PROFILE_COLUMNS; the password is left null.
+    private User readUser(Cursor cursor) {
+        return new User(
+                cursor.getInt(cursor.getColumnIndexOrThrow(COL_USER_ID)),
+                cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_NAME)),
+                cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_EMAIL)),
+                cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_PHONE)),
+                null
+        );
     }
 
+    /**
+     * Adds {@code memberEmail} to the owner's group, creating the group on first use.
+     * Returns false if the member is already in the group.
+     */
     public boolean addGroup(String groupName, String ownerEmail, String memberEmail) {
-        SQLiteDatabase db = this.getWritableDatabase();
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                long groupId = getOrCreateGroupId(db, groupName, ownerEmail);
+                ContentValues values = new ContentValues();
+                values.put(COL_MEMBER_GROUP, groupId);
+                values.put(COL_MEMBER_EMAIL, storedMember(memberEmail));
+                long result = db.insertWithOnConflict(TABLE_MEMBERS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+                db.setTransactionSuccessful();
+                return result != -1;
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            Metrics.record("db.addGroup", start);
+        }
+    }
+
+    /**
+     * Streams members from a CSV or vCard file into the owner's group, creating the
+     * group on first use. The file is read into a TEMP spool table with no
+     * transaction open, so a slow file never holds the write lock; the spool is
+     * then copied into the group in one short transaction. Members already in the
+     * group are counted as duplicates, and a failed read leaves the group unchanged.
+     */
+    public MemberImporter.Result importMembers(String groupName, String ownerEmail, Reader reader)
+            throws IOException {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            // One spool per connection, so imports take turns.
+            synchronized (importLock) {
+                db.execSQL(SQL_CREATE_IMPORT_SPOOL);
+                final SQLiteStatement spool = db.compileStatement(SQL_SPOOL_MEMBER);
+                SQLiteStatement copy = db.compileStatement(SQL_IMPORT_SPOOL);
+                try {
+                    MemberImporter.Result result = MemberImporter.read(reader, new MemberImporter.Sink() {
+                        @Override
+                        public boolean add(String member) {
+                            spool.bindString(1, member);
+                            return spool.executeInsert() != -1;
+                        }
+                    });
+                    int copied;
+                    db.beginTransaction();
+                    try {
+                        copy.bindLong(1, getOrCreateGroupId(db, groupName, ownerEmail));
+                        copied = copy.executeUpdateDelete();
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    result.duplicates += result.added - copied;
+                    result.added = copied;
+                    return result;
+                } finally {
+                    spool.close();
+                    copy.close();
+                    db.execSQL(SQL_CLEAR_IMPORT_SPOOL);
+                }
+            }
+        } finally {
+            Metrics.record("db.importMembers", start);
+        }
+    }
+
+    private long getOrCreateGroupId(SQLiteDatabase db, String groupName, String ownerEmail) {
         ContentValues values = new ContentValues();
         values.put(COL_GROUP_NAME, groupName);
         values.put(COL_GROUP_OWNER, ownerEmail);
-        values.put(COL_GROUP_MEMBER, memberEmail);
-        long result = db.insert(TABLE_GROUPS, null, values);
-        return result != -1;
+        long groupId = db.insertWithOnConflict(TABLE_GROUPS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        if (groupId != -1) {
+            return groupId;
+        }
+        return findGroupId(db, ownerEmail, groupName);
+    }
+
+    private static Long findGroupId(SQLiteDatabase db, String ownerEmail, String groupName) {
+        if (ownerEmail == null || groupName == null) {
+            return null;
+        }
+        Cursor cursor = db.rawQuery(SQL_GET_GROUP_ID, new String[]{ownerEmail, groupName});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        } finally {
+            cursor.close();
+        }
     }
 
     public List<String> getUserGroups(String ownerEmail) {
-        List<String> groups = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT DISTINCT " + COL_GROUP_NAME + " FROM " + TABLE_GROUPS + " WHERE " + COL_GROUP_OWNER + "=?";
-        Cursor cursor = db.rawQuery(query, new String[]{ownerEmail});
-        if (cursor.moveToFirst()) {
-            do {
-                groups.add(cursor.getString(0));
-            } while (cursor.moveToNext());
+        long start = Metrics.start();
+        try {
+            List<String> groups = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_USER_GROUPS, new String[]{ownerEmail});
+            if (cursor.moveToFirst()) {
+                do {
+                    groups.add(cursor.getString(0));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return groups;
+        } finally {
+            Metrics.record("db.getUserGroups", start);
         }
-        cursor.close();
-        return groups;
     }
 
     public List<String> getGroupMembers(String groupName, String ownerEmail) {
-        List<String> members = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT " + COL_GROUP_MEMBER + " FROM " + TABLE_GROUPS + " WHERE " + COL_GROUP_NAME + "=? AND " + COL_GROUP_OWNER + "=?";
-        Cursor cursor = db.rawQuery(query, new String[]{groupName, ownerEmail});
-        if (cursor.moveToFirst()) {
-            do {
-                members.add(cursor.getString(0));
-            } while (cursor.moveToNext());
+        long start = Metrics.start();
+        try {
+            List<String> members = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_GROUP_MEMBERS, new String[]{groupName, ownerEmail});
+            if (cursor.moveToFirst()) {
+                do {
+                    members.add(cursor.getString(0));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return members;
+        } finally {
+            Metrics.record("db.getGroupMembers", start);
+        }
+    }
+
+    /** Every group the owner has, with its member count, in a single query. */
+    public List<GroupSummary> getGroupSummaries(String ownerEmail) {
+        long start = Metrics.start();
+        try {
+            List<GroupSummary> groups = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_GROUP_SUMMARIES, new String[]{ownerEmail});
+            int id = cursor.getColumnIndexOrThrow(COL_GROUP_ID);
+            int name = cursor.getColumnIndexOrThrow(COL_GROUP_NAME);
+            int memberCount = cursor.getColumnIndexOrThrow("memberCount");
+            if (cursor.moveToFirst()) {
+                do {
+                    groups.add(new GroupSummary(cursor.getLong(id), cursor.getString(name), cursor.getInt(memberCount)));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return groups;
+        } finally {
+            Metrics.record("db.getGroupSummaries", start);
         }
-        cursor.close();
-        return members;
     }
+
+    public List<String> getGroupMembers(long groupId) {
+        long start = Metrics.start();
+        try {
+            List<String> members = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_MEMBERS_BY_GROUP_ID, new String[]{String.valueOf(groupId)});
+            if (cursor.moveToFirst()) {
+                do {
+                    members.add(cursor.getString(0));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return members;
+        } finally {
+            Metrics.record("db.getGroupMembersById", start);
+        }
+    }
+
     public boolean removeMember(String groupName, String ownerEmail, String memberEmail) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int deletedRows = db.delete(TABLE_GROUPS,
-                COL_GROUP_NAME + "=? AND " + COL_GROUP_OWNER + "=? AND " + COL_GROUP_MEMBER + "=?",
-                new String[]{groupName, ownerEmail, memberEmail});
-        return deletedRows > 0;
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            int deletedRows = db.delete(TABLE_MEMBERS, WHERE_GROUP_MEMBER,
+                    new String[]{ownerEmail, groupName, storedMember(memberEmail)});
+            return deletedRows > 0;
+        } finally {
+            Metrics.record("db.removeMember", start);
+        }
     }
     public boolean saveAlert(String senderEmail, String message, String location, String timestamp, String photoPath, String groupName) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COL_ALERT_SENDER, senderEmail);
-        values.put(COL_ALERT_MESSAGE, message);
-        values.put(COL_ALERT_LOCATION, location);
-        values.put(COL_ALERT_TIMESTAMP, timestamp);
-        values.put(COL_ALERT_PHOTO, photoPath);
-        values.put(COL_ALERT_GROUP, groupName);
-        long result = db.insert(TABLE_ALERTS, null, values);
-        return result != -1;
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(COL_ALERT_SENDER, senderEmail);
+            values.put(COL_ALERT_MESSAGE, message);
+            values.put(COL_ALERT_LOCATION, location);
+            values.put(COL_ALERT_TIMESTAMP, timestamp);
+            values.put(COL_ALERT_PHOTO, photoPath);
+            values.put(COL_ALERT_GROUP, groupName);
+            Long groupId = findGroupId(db, senderEmail, groupName);
+            if (groupId != null) {
+                values.put(COL_ALERT_GROUP_ID, groupId);
+            }
+            double[] coordinates = GeoGrid.parseCoordinates(location);
+            if (coordinates != null) {
+                values.put(COL_ALERT_LATITUDE, coordinates[0]);
+                values.put(COL_ALERT_LONGITUDE, coordinates[1]);
+                values.put(COL_ALERT_GEO_CELL, GeoGrid.cellOf(coordinates[0], coordinates[1]));
+            }
+            Long createdAt = TimeFormats.parseDisplay(timestamp);
+            values.put(COL_ALERT_CREATED_AT, createdAt != null ? createdAt : System.currentTimeMillis());
+            long result;
+            SQLiteStatement enqueue = db.compileStatement(SQL_ENQUEUE_OUTBOX);
+            db.beginTransaction();
+            try {
+                result = db.insert(TABLE_ALERTS, null, values);
+                if (result != -1) {
+                    enqueue(enqueue, result);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                enqueue.close();
+            }
+            if (result != -1) {
+                notifyAlertsChanged();
+            }
+            return result != -1;
+        } finally {
+            Metrics.record("db.saveAlert", start);
+        }
+    }
+
+    /**
+     * Writes the same alert once per group inside a single transaction, reusing one
+     * compiled INSERT. {@code alert} supplies every column except id and group name.
+     * When it has no coordinates they are parsed from its location text; a missing
+     * createdAt means now.
+     * Returns the new alert id for each group, in the order given, or -1 where that
+     * group's row could not be written.
+     */
+    public long[] saveAlertToGroups(Alert alert, List<String> groupNames) {
+        long start = Metrics.start();
+        try {
+            long[] alertIds = new long[groupNames.size()];
+            Double latitude = alert.latitude;
+            Double longitude = alert.longitude;
+            if (latitude == null || longitude == null) {
+                double[] coordinates = GeoGrid.parseCoordinates(alert.location);
+                latitude = coordinates != null ? coordinates[0] : null;
+                longitude = coordinates != null ? coordinates[1] : null;
+            }
+            Long geoCell = latitude != null && longitude != null ? GeoGrid.cellOf(latitude, longitude) : null;
+            long createdAt = alert.createdAt != null ? alert.createdAt : System.currentTimeMillis();
+
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement(SQL_INSERT_ALERT);
+            SQLiteStatement enqueue = db.compileStatement(SQL_ENQUEUE_OUTBOX);
+            db.beginTransaction();
+            try {
+                bindNullable(insert, 1, alert.senderEmail);
+                bindNullable(insert, 2, alert.message);
+                bindNullable(insert, 3, alert.location);
+                bindNullable(insert, 4, alert.timestamp);
+                bindNullable(insert, 5, alert.photoPath);
+                bindNullable(insert, 12, alert.photoPath);
+                bindNullable(insert, 13, alert.senderEmail);
+                bindNullable(insert, 6, latitude);
+                bindNullable(insert, 7, longitude);
+                bindNullable(insert, 8, alert.accuracy != null ? Double.valueOf(alert.accuracy) : null);
+                bindNullable(insert, 9, geoCell);
+                insert.bindLong(10, createdAt);
+                for (int i = 0; i < groupNames.size(); i++) {
+                    bindNullable(insert, 11, groupNames.get(i));
+                    bindNullable(insert, 14, groupNames.get(i));
+                    try {
+                        alertIds[i] = insert.executeInsert();
+                    } catch (SQLException e) {
+                        alertIds[i] = -1;
+                    }
+                    if (alertIds[i] != -1) {
+                        // Queued in the same transaction, so a saved alert is always sent eventually.
+                        enqueue(enqueue, alertIds[i]);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                enqueue.close();
+            }
+            notifyAlertsChanged();
+            return alertIds;
+        } finally {
+            Metrics.record("db.saveAlertToGroups", start);
+        }
+    }
+
+    /**
+     * Sets the location of alerts that were saved before a fix was available.
+     * {@code latitude}/{@code longitude} may be null when {@code location} only
+     * explains why there is no fix. Ids of -1 are skipped.
+     */
+    public void updateAlertLocation(long[] alertIds, String location, Double latitude, Double longitude,
+                                    Float accuracy) {
+        long start = Metrics.start();
+        try {
+            Long geoCell = latitude != null && longitude != null ? GeoGrid.cellOf(latitude, longitude) : null;
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement update = db.compileStatement(SQL_UPDATE_ALERT_LOCATION);
+            SQLiteStatement requeue = db.compileStatement(SQL_REQUEUE_OUTBOX);
+            db.beginTransaction();
+            try {
+                bindNullable(update, 1, location);
+                bindNullable(update, 2, latitude);
+                bindNullable(update, 3, longitude);
+                bindNullable(update, 4, accuracy != null ? Double.valueOf(accuracy) : null);
+                bindNullable(update, 5, geoCell);
+                for (long alertId : alertIds) {
+                    if (alertId == -1) {
+                        continue;
+                    }
+                    update.bindLong(6, alertId);
+                    update.executeUpdateDelete();
+                    requeue(requeue, alertId);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                update.close();
+                requeue.close();
+            }
+            notifyAlertsChanged();
+        } finally {
+            Metrics.record("db.updateAlertLocation", start);
+        }
+    }
+
+    /**
+     * Attaches the evidence photo (or the reason there is none) to alerts already
+     * saved. If the photo is already in the evidence store the rows reference it.
+     */
+    public void updateAlertPhoto(long[] alertIds, String photoPath) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement update = db.compileStatement(SQL_UPDATE_ALERT_PHOTO);
+            SQLiteStatement requeue = db.compileStatement(SQL_REQUEUE_OUTBOX);
+            db.beginTransaction();
+            try {
+                bindNullable(update, 1, photoPath);
+                bindNullable(update, 2, photoPath);
+                for (long alertId : alertIds) {
+                    if (alertId == -1) {
+                        continue;
+                    }
+                    update.bindLong(3, alertId);
+                    update.executeUpdateDelete();
+                    requeue(requeue, alertId);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                update.close();
+                requeue.close();
+            }
+            notifyAlertsChanged();
+        } finally {
+            Metrics.record("db.updateAlertPhoto", start);
+        }
+    }
+
+    /**
+     * Replaces the message of alerts already saved, keeping their rows and outbox
+     * keys so receivers update the alert rather than get a second one. Ids of -1
+     * are skipped.
+     */
+    public void updateAlertMessage(long[] alertIds, String message) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement update = db.compileStatement(SQL_UPDATE_ALERT_MESSAGE);
+            SQLiteStatement requeue = db.compileStatement(SQL_REQUEUE_OUTBOX);
+            db.beginTransaction();
+            try {
+                update.bindString(1, message);
+                for (long alertId : alertIds) {
+                    if (alertId == -1) {
+                        continue;
+                    }
+                    update.bindLong(2, alertId);
+                    update.executeUpdateDelete();
+                    requeue(requeue, alertId);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                update.close();
+                requeue.close();
+            }
+            notifyAlertsChanged();
+        } finally {
+            Metrics.record("db.updateAlertMessage", start);
+        }
+    }
+
+    private static void enqueue(SQLiteStatement enqueue, long alertId) {
+        enqueue.bindLong(1, alertId);
+        enqueue.bindString(2, UUID.randomUUID().toString());
+        enqueue.bindLong(3, System.currentTimeMillis());
+        enqueue.executeInsert();
+    }
+
+    private static void requeue(SQLiteStatement requeue, long alertId) {
+        requeue.bindLong(1, System.currentTimeMillis());
+        requeue.bindLong(2, alertId);
+        requeue.executeUpdateDelete();
+    }
+
+    // ---- Outbox (read and written by AlertDispatcher) ----
+
+    public List<OutboxEntry> getDueOutboxEntries(long nowMillis, int limit) {
+        long start = Metrics.start();
+        try {
+            List<OutboxEntry> entries = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_DUE_OUTBOX,
+                    new String[]{String.valueOf(nowMillis), String.valueOf(limit)});
+            try {
+                int outboxId = cursor.getColumnIndexOrThrow("outboxId");
+                int key = cursor.getColumnIndexOrThrow(COL_OUTBOX_KEY);
+                int revision = cursor.getColumnIndexOrThrow(COL_OUTBOX_REVISION);
+                int attempts = cursor.getColumnIndexOrThrow(COL_OUTBOX_ATTEMPTS);
+                int photoSha256 = cursor.getColumnIndexOrThrow("photoSha256");
+                AlertColumns columns = new AlertColumns(cursor);
+                while (cursor.moveToNext()) {
+                    Alert alert = readAlert(cursor, columns);
+                    alert.photoSha256 = cursor.getString(photoSha256);
+                    entries.add(new OutboxEntry(cursor.getLong(outboxId), alert, cursor.getString(key),
+                            cursor.getInt(revision), cursor.getInt(attempts)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return entries;
+        } finally {
+            Metrics.record("db.getDueOutboxEntries", start);
+        }
+    }
+
+    /** Writes back delivery outcomes; rows requeued since they were loaded are left alone. */
+    public void saveOutboxResults(List<OutboxEntry> entries) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement save = db.compileStatement(SQL_SAVE_OUTBOX_RESULT);
+            db.beginTransaction();
+            try {
+                for (OutboxEntry entry : entries) {
+                    save.bindLong(1, entry.state);
+                    save.bindLong(2, entry.attempts);
+                    save.bindLong(3, entry.nextAttemptAt);
+                    bindNullable(save, 4, entry.lastError);
+                    save.bindLong(5, entry.outboxId);
+                    save.bindLong(6, entry.revision);
+                    save.executeUpdateDelete();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                save.close();
+            }
+        } finally {
+            Metrics.record("db.saveOutboxResults", start);
+        }
+    }
+
+    /** Earliest retry time among pending entries, or Long.MAX_VALUE if nothing is pending. */
+    public long getNextOutboxAttemptAt() {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_NEXT_OUTBOX_ATTEMPT, null);
+            try {
+                return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : Long.MAX_VALUE;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.record("db.getNextOutboxAttemptAt", start);
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, Double value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindDouble(index, value);
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, Long value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
     }
 
     public List<Alert> getAllAlerts() {
-        List<Alert> alerts = new ArrayList<>();
+        long start = Metrics.start();
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_ALL_ALERTS, null);
+            AlertColumns columns = new AlertColumns(cursor);
+            if (cursor.moveToFirst()) {
+                do {
+                    alerts.add(readAlert(cursor, columns));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return alerts;
+        } finally {
+            Metrics.record("db.getAllAlerts", start);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} alerts older than {@code beforeId}, newest first.
+     * Pass {@link Long#MAX_VALUE} for the first page and the id of the last alert
+     * received for the following ones.
+     */
+    public List<Alert> getAlertsPage(long beforeId, int limit) {
+        long start = Metrics.start();
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_ALERTS_PAGE,
+                    new String[]{String.valueOf(beforeId), String.valueOf(limit)});
+            AlertColumns columns = new AlertColumns(cursor);
+            if (cursor.moveToFirst()) {
+                do {
+                    alerts.add(readAlert(cursor, columns));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return alerts;
+        } finally {
+            Metrics.record("db.getAlertsPage", start);
+        }
+    }
+
+    /**
+     * Returns alerts with an id of at least {@code oldestId}, newest first, capped at
+     * {@code limit}. Used to refresh the part of the feed a screen already shows.
+     */
+    public List<Alert> getAlertsFrom(long oldestId, int limit) {
+        long start = Metrics.start();
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_ALERTS_FROM,
+                    new String[]{String.valueOf(oldestId), String.valueOf(limit)});
+            AlertColumns columns = new AlertColumns(cursor);
+            if (cursor.moveToFirst()) {
+                do {
+                    alerts.add(readAlert(cursor, columns));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return alerts;
+        } finally {
+            Metrics.record("db.getAlertsFrom", start);
+        }
+    }
+
+    /**
+     * Like {@link #getAlertsPage}, but only alerts sent to groups {@code viewerEmail}
+     * owns or is a member of, by email or by the phone number on their account.
+     */
+    public List<Alert> getFeedPage(String viewerEmail, long beforeId, int limit) {
+        long start = Metrics.start();
+        try {
+            return getFeed(viewerEmail, 0, beforeId, limit);
+        } finally {
+            Metrics.record("db.getFeedPage", start);
+        }
+    }
+
+    /** Like {@link #getAlertsFrom}, limited to the groups of {@code viewerEmail}. */
+    public List<Alert> getFeedFrom(String viewerEmail, long oldestId, int limit) {
+        long start = Metrics.start();
+        try {
+            return getFeed(viewerEmail, oldestId, Long.MAX_VALUE, limit);
+        } finally {
+            Metrics.record("db.getFeedFrom", start);
+        }
+    }
+
+    // One query finds the viewer's groups and where each starts; FeedMerge then
+    // reads further only from the groups that fill the page, and never sorts.
+    private List<Alert> getFeed(String viewerEmail, long fromId, long beforeId, int limit) {
+        final SQLiteDatabase db = this.getReadableDatabase();
+        String[] viewer = viewerArgs(db, viewerEmail);
+        Map<Long, Long> newestByGroup = new HashMap<>();
+        Cursor cursor = db.rawQuery(SQL_GET_VIEWER_GROUP_HEADS, new String[]{
+                String.valueOf(fromId), String.valueOf(beforeId), viewer[0], viewer[1], viewer[2]});
+        try {
+            int groupId = cursor.getColumnIndexOrThrow(COL_GROUP_ID);
+            int newestId = cursor.getColumnIndexOrThrow("newestId");
+            while (cursor.moveToNext()) {
+                // Groups with nothing in range drop out here; an owner can also be a member.
+                if (!cursor.isNull(newestId)) {
+                    newestByGroup.put(cursor.getLong(groupId), cursor.getLong(newestId));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        long[] groupIds = new long[newestByGroup.size()];
+        long[] newestIds = new long[groupIds.length];
+        int i = 0;
+        for (Map.Entry<Long, Long> head : newestByGroup.entrySet()) {
+            groupIds[i] = head.getKey();
+            newestIds[i++] = head.getValue();
+        }
+        long[] ids = FeedMerge.newestIds(groupIds, newestIds, fromId, beforeId, limit, new FeedMerge.Source() {
+            @Override
+            public long[] read(long groupId, long fromId, long beforeId, int limit) {
+                Cursor cursor = db.rawQuery(SQL_GET_GROUP_ALERT_IDS, new String[]{String.valueOf(groupId),
+                        String.valueOf(fromId), String.valueOf(beforeId), String.valueOf(limit)});
+                try {
+                    long[] ids = new long[cursor.getCount()];
+                    for (int i = 0; cursor.moveToNext(); i++) {
+                        ids[i] = cursor.getLong(0);
+                    }
+                    return ids;
+                } finally {
+                    cursor.close();
+                }
+            }
+        });
+        return readAlertsByIds(db, ids);
+    }
+
+    /**
+     * Per-group counts, last alert time and unread totals for the groups
+     * {@code viewerEmail} owns or belongs to. Reads only the summary tables, so the
+     * cost depends on the number of groups, not on how many alerts are stored.
+     */
+    public DashboardSummary getDashboardSummary(String viewerEmail, long nowMillis) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            String[] viewer = viewerArgs(db, viewerEmail);
+            long firstHour = (nowMillis - 24 * HOUR_MS) / HOUR_MS;
+            Map<Long, GroupActivity> byGroup = new HashMap<>();
+            Cursor cursor = db.rawQuery(SQL_GET_GROUP_ACTIVITY,
+                    new String[]{String.valueOf(firstHour), viewer[0], viewer[1], viewer[2]});
+            try {
+                int groupId = cursor.getColumnIndexOrThrow(COL_GROUP_ID);
+                int groupName = cursor.getColumnIndexOrThrow(COL_GROUP_NAME);
+                int owner = cursor.getColumnIndexOrThrow(COL_GROUP_OWNER);
+                int alertCount = cursor.getColumnIndexOrThrow(COL_STATS_ALERTS);
+                int unreadCount = cursor.getColumnIndexOrThrow(COL_STATS_UNREAD);
+                int lastAlertAt = cursor.getColumnIndexOrThrow("lastAlertAt");
+                int lastDayCount = cursor.getColumnIndexOrThrow("lastDayCount");
+                while (cursor.moveToNext()) {
+                    GroupActivity group = new GroupActivity(cursor.getLong(groupId), cursor.getString(groupName),
+                            cursor.getString(owner));
+                    group.alertCount = cursor.getInt(alertCount);
+                    group.unreadCount = cursor.getInt(unreadCount);
+                    group.lastAlertAt = cursor.isNull(lastAlertAt) ? null : cursor.getLong(lastAlertAt);
+                    group.lastDayCount = cursor.getInt(lastDayCount);
+                    // An owner can also be a member of their own group.
+                    byGroup.put(group.groupId, group);
+                }
+            } finally {
+                cursor.close();
+            }
+            List<GroupActivity> groups = new ArrayList<>(byGroup.values());
+            Collections.sort(groups, MOST_RECENTLY_ACTIVE);
+            return new DashboardSummary(groups);
+        } finally {
+            Metrics.record("db.getDashboardSummary", start);
+        }
+    }
+
+    private static final Comparator<GroupActivity> MOST_RECENTLY_ACTIVE = new Comparator<GroupActivity>() {
+        @Override
+        public int compare(GroupActivity a, GroupActivity b) {
+            long aTime = a.lastAlertAt != null ? a.lastAlertAt : Long.MIN_VALUE;
+            long bTime = b.lastAlertAt != null ? b.lastAlertAt : Long.MIN_VALUE;
+            int byTime = Long.compare(bTime, aTime);
+            return byTime != 0 ? byTime : a.groupName.compareTo(b.groupName);
+        }
+    };
+
+    /**
+     * Marks the given alerts as read and returns how many were still unread. The
+     * rows look the same in the feed, so alert observers are not notified.
+     */
+    public int markAlertsRead(long[] alertIds) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement update = db.compileStatement(SQL_MARK_ALERT_READ);
+            int marked = 0;
+            db.beginTransaction();
+            try {
+                for (long alertId : alertIds) {
+                    update.bindLong(1, alertId);
+                    marked += update.executeUpdateDelete();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                update.close();
+            }
+            return marked;
+        } finally {
+            Metrics.record("db.markAlertsRead", start);
+        }
+    }
+
+    // Binds SQL_GET_VIEWER_GROUP_IDS: owner email, then the two forms a member row
+    // can hold for this user (see MemberImporter#normalize).
+    private String[] viewerArgs(SQLiteDatabase db, String viewerEmail) {
+        String email = MemberImporter.normalizeEmail(viewerEmail);
+        String phone = null;
+        Cursor cursor = db.rawQuery(SQL_GET_USER, new String[]{viewerEmail});
+        try {
+            if (cursor.moveToFirst()) {
+                phone = MemberImporter.normalizePhone(cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_PHONE)));
+            }
+        } finally {
+            cursor.close();
+        }
+        String member = email != null ? email : viewerEmail;
+        return new String[]{viewerEmail, member, phone != null ? phone : member};
+    }
+
+    /** Alerts raised in [{@code fromMillis}, {@code toMillis}), newest first, at most {@code limit}. */
+    public List<Alert> getAlertsBetween(long fromMillis, long toMillis, int limit) {
+        long start = Metrics.start();
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_ALERTS_BETWEEN,
+                    new String[]{String.valueOf(fromMillis), String.valueOf(toMillis), String.valueOf(limit)});
+            AlertColumns columns = new AlertColumns(cursor);
+            if (cursor.moveToFirst()) {
+                do {
+                    alerts.add(readAlert(cursor, columns));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            return alerts;
+        } finally {
+            Metrics.record("db.getAlertsBetween", start);
+        }
+    }
+
+    /**
+     * Ids of the alert rows {@code senderEmail} saved with {@code createdAt}, i.e. one
+     * SOS fan-out, in insert order; empty if nothing was saved.
+     */
+    public long[] getSentAlertIds(String senderEmail, long createdAt) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_SENT_ALERT_IDS,
+                    new String[]{String.valueOf(createdAt), senderEmail});
+            try {
+                long[] ids = new long[cursor.getCount()];
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    ids[i] = cursor.getLong(0);
+                }
+                return ids;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.record("db.getSentAlertIds", start);
+        }
+    }
+
+    /** Alerts raised in the last {@code windowMillis}, e.g. 24 hours. */
+    public List<Alert> getRecentAlerts(long windowMillis, int limit) {
+        long start = Metrics.start();
+        try {
+            long now = System.currentTimeMillis();
+            return getAlertsBetween(now - windowMillis, Long.MAX_VALUE, limit);
+        } finally {
+            Metrics.record("db.getRecentAlerts", start);
+        }
+    }
+
+    /** Alerts within {@code radiusKm} of a point, newest first, at most {@code limit}. */
+    public List<Alert> getAlertsNear(final double latitude, final double longitude, final double radiusKm,
+                                     int limit) {
+        long start = Metrics.start();
+        try {
+            double[] box = GeoGrid.boundingBox(latitude, longitude, radiusKm);
+            return getAlertsInCells(GeoGrid.cellRanges(box[0], box[1], box[2], box[3]), limit, new AlertFilter() {
+                @Override
+                public boolean accept(Alert alert) {
+                    return GeoGrid.distanceKm(latitude, longitude, alert.latitude, alert.longitude) <= radiusKm;
+                }
+            });
+        } finally {
+            Metrics.record("db.getAlertsNear", start);
+        }
+    }
+
+    /**
+     * Alerts inside a latitude/longitude box, newest first, at most {@code limit}.
+     * A box with {@code minLng > maxLng} crosses the antimeridian.
+     */
+    public List<Alert> getAlertsInBox(final double minLat, final double maxLat, final double minLng,
+                                      final double maxLng, int limit) {
+        long start = Metrics.start();
+        try {
+            return getAlertsInCells(GeoGrid.cellRanges(minLat, maxLat, minLng, maxLng), limit, new AlertFilter() {
+                @Override
+                public boolean accept(Alert alert) {
+                    return GeoGrid.inBox(alert.latitude, alert.longitude, minLat, maxLat, minLng, maxLng);
+                }
+            });
+        } finally {
+            Metrics.record("db.getAlertsInBox", start);
+        }
+    }
+
+    // Up to limit cell candidates that pass the filter, newest first. Candidates are
+    // read a page at a time below the last id seen, so only about limit rows are
+    // held however many alerts share the cells; SQLite keeps just the page while
+    // sorting.
+    private List<Alert> getAlertsInCells(List<long[]> ranges, int limit, AlertFilter filter) {
+        List<Alert> matches = new ArrayList<>();
+        if (limit <= 0) {
+            return matches;
+        }
+        int pageSize = Math.max(limit, MIN_CELL_PAGE);
+        int cellArgs = ranges.size() * 2;
+        String[] args = new String[cellArgs + 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            args[i * 2] = String.valueOf(ranges.get(i)[0]);
+            args[i * 2 + 1] = String.valueOf(ranges.get(i)[1]);
+        }
+        args[cellArgs + 1] = String.valueOf(pageSize);
+        String sql = buildCellQuery(ranges.size());
         SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT * FROM " + TABLE_ALERTS + " ORDER BY " + COL_ALERT_ID + " DESC";
-        Cursor cursor = db.rawQuery(query, null);
-        if (cursor.moveToFirst()) {
-            do {
-                Alert alert = new Alert(
-                        cursor.getInt(0),
-                        cursor.getString(1),
-                        cursor.getString(2),
-                        cursor.getString(3),
-                        cursor.getString(4),
-                        cursor.getString(5),
-                        cursor.getString(6)
-                );
+        long beforeId = Long.MAX_VALUE;
+        while (true) {
+            args[cellArgs] = String.valueOf(beforeId);
+            int read = 0;
+            Cursor cursor = db.rawQuery(sql, args);
+            try {
+                AlertColumns columns = new AlertColumns(cursor);
+                while (cursor.moveToNext()) {
+                    Alert alert = readAlert(cursor, columns);
+                    read++;
+                    beforeId = alert.id;
+                    if (filter.accept(alert)) {
+                        matches.add(alert);
+                        if (matches.size() == limit) {
+                            return matches;
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            if (read < pageSize) {
+                return matches;
+            }
+        }
+    }
+
+    // ---- Compaction ----
+
+    /**
+     * Up to {@code limit} alerts created before {@code beforeMillis} that come after
+     * ({@code afterCreatedAt}, {@code afterId}) in (createdAt, id) order, oldest
+     * first, as (id, group name, createdAt). Only what retention needs is read.
+     */
+    public List<RetentionCandidate> getRetentionCandidates(long afterCreatedAt, long afterId, long beforeMillis,
+                                                           int limit) {
+        long start = Metrics.start();
+        try {
+            List<RetentionCandidate> candidates = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_RETENTION_CANDIDATES, new String[]{
+                    String.valueOf(afterCreatedAt), String.valueOf(beforeMillis), String.valueOf(afterCreatedAt),
+                    String.valueOf(afterId), String.valueOf(limit)});
+            try {
+                int id = cursor.getColumnIndexOrThrow(COL_ALERT_ID);
+                int group = cursor.getColumnIndexOrThrow(COL_ALERT_GROUP);
+                int createdAt = cursor.getColumnIndexOrThrow(COL_ALERT_CREATED_AT);
+                while (cursor.moveToNext()) {
+                    candidates.add(new RetentionCandidate(cursor.getLong(id), cursor.getString(group),
+                            cursor.getLong(createdAt)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return candidates;
+        } finally {
+            Metrics.record("db.getRetentionCandidates", start);
+        }
+    }
+
+    /**
+     * Moves the given alerts into AlertArchive in one transaction, dropping them
+     * from the search index and the outbox. Returns how many were moved.
+     */
+    public int archiveAlerts(long[] alertIds, long archivedAt) {
+        long start = Metrics.start();
+        try {
+            if (alertIds.length == 0) {
+                return 0;
+            }
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement archive = db.compileStatement(SQL_ARCHIVE_ALERT);
+            SQLiteStatement delete = db.compileStatement(SQL_DELETE_ARCHIVED_ALERT);
+            int moved = 0;
+            db.beginTransaction();
+            try {
+                for (long alertId : alertIds) {
+                    archive.bindLong(1, archivedAt);
+                    archive.bindLong(2, alertId);
+                    archive.executeInsert();
+                    delete.bindLong(1, alertId);
+                    moved += delete.executeUpdateDelete();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                archive.close();
+                delete.close();
+            }
+            if (moved > 0) {
+                notifyAlertsChanged();
+            }
+            return moved;
+        } finally {
+            Metrics.record("db.archiveAlerts", start);
+        }
+    }
+
+    /** Whether any live or archived alert points at {@code photoPath}, or the evidence store owns it. */
+    public boolean isPhotoReferenced(String photoPath) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_IS_PHOTO_REFERENCED, new String[]{photoPath, photoPath, photoPath});
+            try {
+                return cursor.moveToFirst();
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.record("db.isPhotoReferenced", start);
+        }
+    }
+
+    // ---- Evidence store (written by EvidenceStore) ----
+
+    /**
+     * Registers the photo at {@code path} under its content hash and points every
+     * alert row showing that path at it, in one transaction. If the same image is
+     * already stored those rows are moved over to the stored copy instead.
+     * Returns the path that now holds the image.
+     */
+    public String addEvidence(String sha256, String path, long size, long createdAt) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement(SQL_INSERT_EVIDENCE);
+            SQLiteStatement update = db.compileStatement(SQL_SET_ALERT_EVIDENCE);
+            SQLiteStatement requeue = db.compileStatement(SQL_REQUEUE_OUTBOX);
+            String storedPath;
+            int updated = 0;
+            db.beginTransaction();
+            try {
+                insert.bindString(1, sha256);
+                insert.bindString(2, path);
+                insert.bindLong(3, size);
+                insert.bindLong(4, createdAt);
+                if (insert.executeInsert() == -1 && !hasEvidence(db, sha256)) {
+                    SQLiteStatement rehash = db.compileStatement(SQL_REHASH_EVIDENCE);
+                    try {
+                        rehash.bindString(1, sha256);
+                        rehash.bindLong(2, size);
+                        rehash.bindString(3, path);
+                        rehash.executeUpdateDelete();
+                    } finally {
+                        rehash.close();
+                    }
+                }
+
+                long evidenceId;
+                Cursor cursor = db.rawQuery(SQL_GET_EVIDENCE_BY_HASH, new String[]{sha256});
+                try {
+                    cursor.moveToFirst();
+                    evidenceId = cursor.getLong(cursor.getColumnIndexOrThrow(COL_EVIDENCE_ID));
+                    storedPath = cursor.getString(cursor.getColumnIndexOrThrow(COL_EVIDENCE_PATH));
+                } finally {
+                    cursor.close();
+                }
+
+                // The send payload now carries the hash, so changed rows go out again.
+                update.bindString(1, storedPath);
+                update.bindLong(2, evidenceId);
+                for (long alertId : getAlertIdsByPhoto(db, path)) {
+                    update.bindLong(3, alertId);
+                    update.executeUpdateDelete();
+                    requeue(requeue, alertId);
+                    updated++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                update.close();
+                requeue.close();
+            }
+            if (updated > 0) {
+                notifyAlertsChanged();
+            }
+            return storedPath;
+        } finally {
+            Metrics.record("db.addEvidence", start);
+        }
+    }
+
+    private static boolean hasEvidence(SQLiteDatabase db, String sha256) {
+        Cursor cursor = db.rawQuery(SQL_GET_EVIDENCE_BY_HASH, new String[]{sha256});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static List<Long> getAlertIdsByPhoto(SQLiteDatabase db, String path) {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = db.rawQuery(SQL_GET_ALERTS_BY_PHOTO, new String[]{path});
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /** Up to {@code limit} stored images no alert references, created before {@code beforeMillis}, oldest first. */
+    public List<Evidence> getUnreferencedEvidence(long beforeMillis, int limit) {
+        long start = Metrics.start();
+        try {
+            List<Evidence> evidence = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_GET_UNREFERENCED_EVIDENCE,
+                    new String[]{String.valueOf(beforeMillis), String.valueOf(limit)});
+            try {
+                int id = cursor.getColumnIndexOrThrow(COL_EVIDENCE_ID);
+                int hash = cursor.getColumnIndexOrThrow(COL_EVIDENCE_HASH);
+                int path = cursor.getColumnIndexOrThrow(COL_EVIDENCE_PATH);
+                while (cursor.moveToNext()) {
+                    evidence.add(new Evidence(cursor.getLong(id), cursor.getString(hash), cursor.getString(path)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return evidence;
+        } finally {
+            Metrics.record("db.getUnreferencedEvidence", start);
+        }
+    }
+
+    /** Forgets a stored image if still nothing references it. Returns whether it was removed. */
+    public boolean deleteEvidence(long evidenceId) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement delete = db.compileStatement(SQL_DELETE_EVIDENCE);
+            try {
+                delete.bindLong(1, evidenceId);
+                return delete.executeUpdateDelete() > 0;
+            } finally {
+                delete.close();
+            }
+        } finally {
+            Metrics.record("db.deleteEvidence", start);
+        }
+    }
+
+    /**
+     * Runs one bounded FTS4 incremental merge over the search index. Deleting from
+     * an FTS4 table only appends delete markers, so after archiving the index keeps
+     * growing until its segments are merged. Returns false once nothing is left to
+     * merge. {@code blocks} bounds the work of one call.
+     */
+    public boolean mergeSearchIndex(int blocks) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            // total_changes() is per connection; the transaction keeps all three on one.
+            db.beginTransaction();
+            try {
+                long before = DatabaseUtils.longForQuery(db, "SELECT total_changes()", null);
+                db.execSQL("INSERT INTO " + TABLE_ALERT_SEARCH + " (" + TABLE_ALERT_SEARCH + ") VALUES ('merge=" +
+                        blocks + ",2')");
+                long after = DatabaseUtils.longForQuery(db, "SELECT total_changes()", null);
+                db.setTransactionSuccessful();
+                // Fewer than two changes means the merge found no work.
+                return after - before >= 2;
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            Metrics.record("db.mergeSearchIndex", start);
+        }
+    }
+
+    /** Pages on the freelist, i.e. space the file holds but does not use. */
+    public long getFreePageCount() {
+        long start = Metrics.start();
+        try {
+            return queryPragma("freelist_count");
+        } finally {
+            Metrics.record("db.getFreePageCount", start);
+        }
+    }
+
+    public long getPageCount() {
+        long start = Metrics.start();
+        try {
+            return queryPragma("page_count");
+        } finally {
+            Metrics.record("db.getPageCount", start);
+        }
+    }
+
+    /** True once the file is in auto_vacuum = INCREMENTAL mode. */
+    public boolean isIncrementalVacuumEnabled() {
+        long start = Metrics.start();
+        try {
+            return queryPragma("auto_vacuum") == 2;
+        } finally {
+            Metrics.record("db.isIncrementalVacuumEnabled", start);
+        }
+    }
+
+    /**
+     * Returns up to {@code pages} free pages to the file system. The pragma frees
+     * one page per step, so its cursor has to be drained (execSQL would step once).
+     */
+    public void incrementalVacuum(int pages) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + pages + ")", null);
+            try {
+                while (cursor.moveToNext()) {
+                    // each step frees a page
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.record("db.incrementalVacuum", start);
+        }
+    }
+
+    /** Rewrites the whole file; used once to switch an old file to incremental mode. */
+    public void vacuum() {
+        long start = Metrics.start();
+        try {
+            this.getWritableDatabase().execSQL("VACUUM");
+        } finally {
+            Metrics.record("db.vacuum", start);
+        }
+    }
+
+    private long queryPragma(String pragma) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Full-text search over sender, message, location and group name. Takes the
+     * newest {@code maxCandidates} rows matching {@code matchQuery} (see
+     * {@link AlertSearch#toMatchQuery}) and returns their ids, best match first.
+     */
+    public long[] searchAlertIds(String matchQuery, int maxCandidates) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_SEARCH_ALERTS, new String[]{matchQuery, String.valueOf(maxCandidates)});
+            long[] ids;
+            double[] scores;
+            try {
+                ids = new long[cursor.getCount()];
+                scores = new double[ids.length];
+                int docid = cursor.getColumnIndexOrThrow("docid");
+                int matches = cursor.getColumnIndexOrThrow("matches");
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    ids[i] = cursor.getLong(docid);
+                    scores[i] = AlertSearch.score(cursor.getBlob(matches));
+                }
+            } finally {
+                cursor.close();
+            }
+            return AlertSearch.rank(ids, scores);
+        } finally {
+            Metrics.record("db.searchAlertIds", start);
+        }
+    }
+
+    /** {@link #searchAlertIds} over the alerts {@code viewerEmail} may see (see {@link #getFeedPage}). */
+    public long[] searchVisibleAlertIds(String matchQuery, String viewerEmail, int maxCandidates) {
+        long start = Metrics.start();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            String[] viewer = viewerArgs(db, viewerEmail);
+            Cursor cursor = db.rawQuery(SQL_SEARCH_VISIBLE_ALERTS,
+                    new String[]{matchQuery, viewer[0], viewer[1], viewer[2], String.valueOf(maxCandidates)});
+            long[] ids;
+            double[] scores;
+            try {
+                ids = new long[cursor.getCount()];
+                scores = new double[ids.length];
+                int docid = cursor.getColumnIndexOrThrow("docid");
+                int matches = cursor.getColumnIndexOrThrow("matches");
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    ids[i] = cursor.getLong(docid);
+                    scores[i] = AlertSearch.score(cursor.getBlob(matches));
+                }
+            } finally {
+                cursor.close();
+            }
+            return AlertSearch.rank(ids, scores);
+        } finally {
+            Metrics.record("db.searchVisibleAlertIds", start);
+        }
+    }
+
+    /** The alerts with the given ids, in the order given. Ids no longer stored are skipped. */
+    public List<Alert> getAlertsByIds(long[] ids) {
+        long start = Metrics.start();
+        try {
+            return readAlertsByIds(this.getReadableDatabase(), ids);
+        } finally {
+            Metrics.record("db.getAlertsByIds", start);
+        }
+    }
+
+    private List<Alert> readAlertsByIds(SQLiteDatabase db, long[] ids) {
+        List<Alert> alerts = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return alerts;
+        }
+        // Unused slots repeat the last id, which IN ignores.
+        String[] args = new String[idSlots(ids.length)];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = String.valueOf(ids[Math.min(i, ids.length - 1)]);
+        }
+        Map<Long, Alert> byId = new HashMap<>();
+        Cursor cursor = db.rawQuery(buildIdQuery(args.length), args);
+        try {
+            AlertColumns columns = new AlertColumns(cursor);
+            while (cursor.moveToNext()) {
+                Alert alert = readAlert(cursor, columns);
+                byId.put((long) alert.id, alert);
+            }
+        } finally {
+            cursor.close();
+        }
+        for (long id : ids) {
+            Alert alert = byId.get(id);
+            if (alert != null) {
                 alerts.add(alert);
-            } while (cursor.moveToNext());
+            }
         }
-        cursor.close();
         return alerts;
     }
+
+    // Id lists are padded to a power of two, so a handful of statement texts
+    // covers every page and refresh size and they stay in the statement cache.
+    // Longer lists are left as they are, below SQLite's 999 bind arguments.
+    static int idSlots(int idCount) {
+        int slots = 1;
+        while (slots < idCount) {
+            slots <<= 1;
+        }
+        return slots <= MAX_ID_SLOTS ? slots : idCount;
+    }
+
+    // One rowid lookup per id.
+    static String buildIdQuery(int idCount) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(TABLE_ALERTS)
+                .append(" WHERE ").append(COL_ALERT_ID).append(" IN (");
+        for (int i = 0; i < idCount; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        return sql.append(')').toString();
+    }
+
+    // One geo cell index range per grid row, then a page below an id, newest first.
+    // The unary + keeps SQLite from walking the rowid range instead, which would
+    // read every older alert; it also drops the column's affinity, so the bound
+    // is cast. The sort SQLite needs is bounded by the LIMIT.
+    static String buildCellQuery(int rangeCount) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(TABLE_ALERTS).append(" WHERE (");
+        for (int i = 0; i < rangeCount; i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append('(').append(COL_ALERT_GEO_CELL).append(" BETWEEN ? AND ?)");
+        }
+        return sql.append(") AND +").append(COL_ALERT_ID).append("<CAST(? AS INTEGER) ORDER BY ").append(COL_ALERT_ID)
+                .append(" DESC LIMIT ?").toString();
+    }
+
+    public static void registerAlertsObserver(AlertsObserver observer) {
+        alertsObservers.add(observer);
+    }
+
+    public static void unregisterAlertsObserver(AlertsObserver observer) {
+        alertsObservers.remove(observer);
+    }
+
+    private static void notifyAlertsChanged() {
+        for (AlertsObserver observer : alertsObservers) {
+            observer.onAlertsChanged();
+        }
+    }
+
+    // Where each alert column is in a result, looked up by name once per cursor,
+    // so a query may select the columns in any order and next to others.
+    private static final class AlertColumns {
+        final int id;
+        final int sender;
+        final int message;
+        final int location;
+        final int timestamp;
+        final int photo;
+        final int group;
+        final int latitude;
+        final int longitude;
+        final int accuracy;
+        final int createdAt;
+        final int isRead;
+
+        AlertColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(COL_ALERT_ID);
+            sender = cursor.getColumnIndexOrThrow(COL_ALERT_SENDER);
+            message = cursor.getColumnIndexOrThrow(COL_ALERT_MESSAGE);
+            location = cursor.getColumnIndexOrThrow(COL_ALERT_LOCATION);
+            timestamp = cursor.getColumnIndexOrThrow(COL_ALERT_TIMESTAMP);
+            photo = cursor.getColumnIndexOrThrow(COL_ALERT_PHOTO);
+            group = cursor.getColumnIndexOrThrow(COL_ALERT_GROUP);
+            latitude = cursor.getColumnIndexOrThrow(COL_ALERT_LATITUDE);
+            longitude = cursor.getColumnIndexOrThrow(COL_ALERT_LONGITUDE);
+            accuracy = cursor.getColumnIndexOrThrow(COL_ALERT_ACCURACY);
+            createdAt = cursor.getColumnIndexOrThrow(COL_ALERT_CREATED_AT);
+            isRead = cursor.getColumnIndexOrThrow(COL_ALERT_IS_READ);
+        }
+    }
+
+    private Alert readAlert(Cursor cursor, AlertColumns columns) {
+        Alert alert = new Alert(
+                cursor.getInt(columns.id),
+                cursor.getString(columns.sender),
+                cursor.getString(columns.message),
+                cursor.getString(columns.location),
+                cursor.getString(columns.timestamp),
+                cursor.getString(columns.photo),
+                cursor.getString(columns.group)
+        );
+        alert.latitude = cursor.isNull(columns.latitude) ? null : cursor.getDouble(columns.latitude);
+        alert.longitude = cursor.isNull(columns.longitude) ? null : cursor.getDouble(columns.longitude);
+        alert.accuracy = cursor.isNull(columns.accuracy) ? null : cursor.getFloat(columns.accuracy);
+        alert.createdAt = cursor.isNull(columns.createdAt) ? null : cursor.getLong(columns.createdAt);
+        alert.isRead = cursor.getInt(columns.isRead) != 0;
+        return alert;
+    }
 }
 
 class User {
@@ -208,9 +2243,54 @@ class User {
     }
 }
 
+class GroupSummary {
+    long id;
+    String name;
+    int memberCount;
+
+    public GroupSummary(long id, String name, int memberCount) {
+        this.id = id;
+        this.name = name;
+        this.memberCount = memberCount;
+    }
+}
+
+class RetentionCandidate {
+    long id;
+    String groupName;
+    long createdAt;
+
+    public RetentionCandidate(long id, String groupName, long createdAt) {
+        this.id = id;
+        this.groupName = groupName;
+        this.createdAt = createdAt;
+    }
+}
+
+class Evidence {
+    long id;
+    String sha256;
+    String path;
+
+    public Evidence(long id, String sha256, String path) {
+        this.id = id;
+        this.sha256 = sha256;
+        this.path = path;
+    }
+}
+
 class Alert {
     int id;
     String senderEmail, message, location, timestamp, photoPath, groupName;
+    // Null when no fix was available; location then holds the reason as text.
+    Double latitude, longitude;
+    Float accuracy;
+    // Epoch millis; null only for rows migrated from text that did not parse.
+    Long createdAt;
+    // Content hash of the stored photo. Only read for the outbox; null elsewhere.
+    String photoSha256;
+    // Shown in the feed on this device already.
+    boolean isRead;
 
     public Alert(int id, String senderEmail, String message, String location, String timestamp, String photoPath, String groupName) {
         this.id = id;
@@ -221,4 +2301,41 @@ class Alert {
         this.photoPath = photoPath;
         this.groupName = groupName;
     }
-}
\ No newline at end of file
+}
+
+/** Recent activity of one group, from the summary tables. */
+class GroupActivity {
+    long groupId;
+    String groupName, ownerEmail;
+    int alertCount;
+    int unreadCount;
+    // Alerts in the last 24 hours, to the hour.
+    int lastDayCount;
+    // createdAt of the newest alert still in the group; null if it has none.
+    Long lastAlertAt;
+
+    public GroupActivity(long groupId, String groupName, String ownerEmail) {
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.ownerEmail = ownerEmail;
+    }
+}
+
+/** What the dashboard shows: the viewer's groups, most recently active first, and totals. */
+class DashboardSummary {
+    final List<GroupActivity> groups;
+    int unreadCount;
+    int lastDayCount;
+    Long lastAlertAt;
+
+    public DashboardSummary(List<GroupActivity> groups) {
+        this.groups = groups;
+        for (GroupActivity group : groups) {
+            unreadCount += group.unreadCount;
+            lastDayCount += group.lastDayCount;
+            if (group.lastAlertAt != null && (lastAlertAt == null || group.lastAlertAt > lastAlertAt)) {
+                lastAlertAt = group.lastAlertAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Content-addressed store for evidence photos. A photo is registered once it is
+ * final (after {@link PhotoIngestor}) under the SHA-256 of its bytes, and every
+ * alert row showing it, one per group, references that single entry. Work done
+ * per image, such as cleanup or sending the hash with the alert, goes through the
+ * store and touches each file once, however many groups received it.
+ *
+ * Files stay where the camera wrote them, so paths already shown keep working;
+ * only a byte-identical duplicate is removed in favour of the stored copy.
+ * Reference counts live in the Evidence table and are kept by triggers.
+ */
+public class EvidenceStore {
+
+    private static final String TAG = "EvidenceStore";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static EvidenceStore instance;
+
+    private final DatabaseHelper db;
+
+    EvidenceStore(DatabaseHelper db) {
+        this.db = db;
+    }
+
+    public static synchronized EvidenceStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new EvidenceStore(DatabaseHelper.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Hashes {@code photo} and registers it. Returns the path that holds the image
+     * from now on: {@code photo} itself, or the stored copy it duplicated, in which
+     * case {@code photo} is deleted.
+     */
+    public String add(File photo) throws IOException {
+        String path = photo.getAbsolutePath();
+        String storedPath = db.addEvidence(sha256(photo), path, photo.length(), System.currentTimeMillis());
+        if (!storedPath.equals(path)) {
+            deleteWithThumbnail(path);
+        }
+        return storedPath;
+    }
+
+    /** {@link #add} for background callers that can only log a failure. */
+    public void addQuietly(File photo) {
+        try {
+            add(photo);
+        } catch (IOException e) {
+            // The alert rows keep the plain path; CompactionJob still sees the file.
+            Log.w(TAG, "Could not store " + photo, e);
+        }
+    }
+
+    /**
+     * Deletes up to {@code limit} images that no live or archived alert references
+     * and that were stored before {@code beforeMillis}, with their thumbnails.
+     * Returns how many were deleted; fewer than {@code limit} means none are left
+     * (or an alert took one over meanwhile, which keeps it).
+     */
+    public int collectGarbage(long beforeMillis, int limit) {
+        List<Evidence> unreferenced = db.getUnreferencedEvidence(beforeMillis, limit);
+        int deleted = 0;
+        for (Evidence evidence : unreferenced) {
+            // Row first: once it is gone no new alert can be pointed at the file.
+            if (db.deleteEvidence(evidence.id)) {
+                deleteWithThumbnail(evidence.path);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private static void deleteWithThumbnail(String path) {
+        new File(path).delete();
+        new File(PhotoIngestor.thumbnailPathFor(path)).delete();
+    }
+
+    /** Lowercase hex SHA-256 of the file's bytes. */
+    static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
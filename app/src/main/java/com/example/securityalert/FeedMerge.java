@@ -0,0 +1,112 @@
+package com.example.securityalert;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Newest-first merge of per-group alert ids for the membership feed. The caller
+ * supplies each group's newest id in range (one index seek per group), and a heap
+ * picks the next newest id across all groups. A group is read further, from its
+ * own range of idx_alerts_group and in growing chunks, only once its next id may
+ * be the newest left. A page of n ids therefore costs at most about n small reads
+ * however many groups or alerts there are, fewer when a few groups are busy, and
+ * never sorts.
+ */
+final class FeedMerge {
+
+    /** Reads up to {@code limit} ids of one group in [fromId, beforeId), newest first. */
+    interface Source {
+        long[] read(long groupId, long fromId, long beforeId, int limit);
+    }
+
+    static final int MIN_CHUNK = 4;
+
+    private FeedMerge() {
+    }
+
+    /**
+     * The newest {@code limit} ids in [fromId, beforeId) across {@code groupIds},
+     * newest first. {@code newestIds[i]} is the newest id of {@code groupIds[i]} in
+     * that range; groups without one are not passed in.
+     */
+    static long[] newestIds(long[] groupIds, long[] newestIds, long fromId, long beforeId, int limit,
+                            Source source) {
+        if (limit <= 0 || groupIds.length == 0) {
+            return new long[0];
+        }
+        // Spread the first read over the groups; a group that keeps winning reads more.
+        int chunk = Math.max(MIN_CHUNK, (limit + groupIds.length - 1) / groupIds.length);
+        PriorityQueue<Stream> heap = new PriorityQueue<>(groupIds.length, NEWEST_FIRST);
+        for (int i = 0; i < groupIds.length; i++) {
+            heap.add(new Stream(groupIds[i], newestIds[i], chunk));
+        }
+
+        long[] ids = new long[limit];
+        int count = 0;
+        while (count < limit && !heap.isEmpty()) {
+            Stream stream = heap.poll();
+            if (stream.hasNext()) {
+                ids[count++] = stream.next();
+                heap.add(stream);
+            } else if (stream.read(source, fromId, limit - count)) {
+                heap.add(stream);
+            }
+        }
+        if (count == limit) {
+            return ids;
+        }
+        long[] shorter = new long[count];
+        System.arraycopy(ids, 0, shorter, 0, count);
+        return shorter;
+    }
+
+    // Streams not read yet are ordered by the bound on their next id.
+    private static final Comparator<Stream> NEWEST_FIRST = new Comparator<Stream>() {
+        @Override
+        public int compare(Stream a, Stream b) {
+            return Long.compare(b.key(), a.key());
+        }
+    };
+
+    // The ids of one group read so far, and how much the next read asks for.
+    private static final class Stream {
+        final long groupId;
+        long[] ids;
+        int position;
+        int nextChunk;
+        boolean mayHaveMore = true;
+
+        Stream(long groupId, long newestId, int firstChunk) {
+            this.groupId = groupId;
+            this.ids = new long[]{newestId};
+            this.nextChunk = firstChunk;
+        }
+
+        // Reads the ids below the last one returned; false once the group has none left.
+        boolean read(Source source, long fromId, int remaining) {
+            if (!mayHaveMore) {
+                return false;
+            }
+            int limit = Math.min(remaining, nextChunk);
+            ids = source.read(groupId, fromId, ids[ids.length - 1], limit);
+            position = 0;
+            nextChunk *= 2;
+            // A short read means the group has nothing older in range.
+            mayHaveMore = ids.length == limit;
+            return ids.length > 0;
+        }
+
+        boolean hasNext() {
+            return position < ids.length;
+        }
+
+        long next() {
+            return ids[position++];
+        }
+
+        // The next id if read, else an upper bound on it: ids are unique and descending.
+        long key() {
+            return hasNext() ? ids[position] : ids[ids.length - 1] - 1;
+        }
+    }
+}
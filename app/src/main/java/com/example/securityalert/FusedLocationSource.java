@@ -0,0 +1,111 @@
+package com.example.securityalert;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Looper;
+import android.util.Log;
+import androidx.core.content.ContextCompat;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.OnSuccessListener;
+
+/**
+ * {@link LocationSource} backed by the fused location provider: balanced-power
+ * periodic updates for the warm cache, and a high-accuracy current-location
+ * request for the SOS. Does nothing without a location permission.
+ */
+public class FusedLocationSource implements LocationSource {
+
+    private static final String TAG = "FusedLocationSource";
+    private static final long UPDATE_INTERVAL_MS = 30 * 1000;
+    private static final long MIN_UPDATE_INTERVAL_MS = 10 * 1000;
+
+    private final Context context;
+    private final FusedLocationProviderClient client;
+    private LocationCallback updates;
+
+    public FusedLocationSource(Context context) {
+        this.context = context.getApplicationContext();
+        this.client = LocationServices.getFusedLocationProviderClient(this.context);
+    }
+
+    @Override
+    public void startUpdates(final Listener listener) {
+        if (updates != null || !hasPermission()) {
+            return;
+        }
+        updates = new LocationCallback() {
+            @Override
+            public void onLocationResult(LocationResult result) {
+                Location location = result.getLastLocation();
+                if (location != null) {
+                    listener.onFix(toFix(location));
+                }
+            }
+        };
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_BALANCED_POWER_ACCURACY, UPDATE_INTERVAL_MS)
+                .setMinUpdateIntervalMillis(MIN_UPDATE_INTERVAL_MS)
+                .build();
+        try {
+            // Seed the cache with whatever the provider already has.
+            client.getLastLocation().addOnSuccessListener(new OnSuccessListener<Location>() {
+                @Override
+                public void onSuccess(Location location) {
+                    if (location != null) {
+                        listener.onFix(toFix(location));
+                    }
+                }
+            });
+            client.requestLocationUpdates(request, updates, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission revoked", e);
+            updates = null;
+        }
+    }
+
+    @Override
+    public void stopUpdates() {
+        if (updates != null) {
+            client.removeLocationUpdates(updates);
+            updates = null;
+        }
+    }
+
+    @Override
+    public void requestFresh(final Listener listener) {
+        if (!hasPermission()) {
+            return;
+        }
+        try {
+            client.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, new CancellationTokenSource().getToken())
+                    .addOnSuccessListener(new OnSuccessListener<Location>() {
+                        @Override
+                        public void onSuccess(Location location) {
+                            if (location != null) {
+                                listener.onFix(toFix(location));
+                            }
+                        }
+                    });
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission revoked", e);
+        }
+    }
+
+    private boolean hasPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static LocationFix toFix(Location location) {
+        return new LocationFix(location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : null,
+                location.getElapsedRealtimeNanos() / 1000000);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.securityalert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed latitude/longitude grid used as a spatial index for alerts.
+ *
+ * Each point maps to one integer cell id, numbered row by row (south to north,
+ * then west to east), so the cells of one grid row form a contiguous id range.
+ * A bounding box therefore becomes one BETWEEN range per row, which SQLite
+ * answers from an ordinary index on the cell column. Callers then filter the
+ * candidates by exact coordinates.
+ */
+final class GeoGrid {
+
+    /** Cell size in degrees, about 5.5 km of latitude. */
+    static final double CELL_DEGREES = 0.05;
+    static final int LNG_CELLS = (int) Math.ceil(360 / CELL_DEGREES) + 1;
+    // Past this many ranges the query collapses to one covering range (over-fetch, then filter).
+    static final int MAX_RANGES = 64;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LAT = EARTH_RADIUS_KM * Math.PI / 180;
+
+    private GeoGrid() {
+    }
+
+    static long cellOf(double latitude, double longitude) {
+        return (long) latIndex(latitude) * LNG_CELLS + lngIndex(longitude);
+    }
+
+    /**
+     * Cell id ranges, as {first, last} pairs, covering the box. When
+     * {@code minLng > maxLng} the box crosses the antimeridian.
+     */
+    static List<long[]> cellRanges(double minLat, double maxLat, double minLng, double maxLng) {
+        int firstRow = latIndex(minLat);
+        int lastRow = latIndex(maxLat);
+        int westCol = lngIndex(minLng);
+        int eastCol = lngIndex(maxLng);
+        boolean wraps = minLng > maxLng;
+
+        List<long[]> ranges = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            long rowStart = (long) row * LNG_CELLS;
+            if (wraps) {
+                ranges.add(new long[]{rowStart + westCol, rowStart + LNG_CELLS - 1});
+                ranges.add(new long[]{rowStart, rowStart + eastCol});
+            } else {
+                ranges.add(new long[]{rowStart + westCol, rowStart + eastCol});
+            }
+        }
+        if (ranges.size() > MAX_RANGES) {
+            List<long[]> single = new ArrayList<>(1);
+            single.add(new long[]{(long) firstRow * LNG_CELLS, (long) lastRow * LNG_CELLS + LNG_CELLS - 1});
+            return single;
+        }
+        return ranges;
+    }
+
+    /** {minLat, maxLat, minLng, maxLng} enclosing a circle of {@code radiusKm}. */
+    static double[] boundingBox(double latitude, double longitude, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double minLat = Math.max(-90, latitude - latDelta);
+        double maxLat = Math.min(90, latitude + latDelta);
+
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        if (cosLat < 1e-6 || radiusKm / (KM_PER_DEGREE_LAT * cosLat) >= 180) {
+            // Touches a pole or spans the globe: every longitude is in range.
+            return new double[]{minLat, maxLat, -180, 180};
+        }
+        double lngDelta = radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+        return new double[]{minLat, maxLat, normalizeLng(longitude - lngDelta), normalizeLng(longitude + lngDelta)};
+    }
+
+    static boolean inBox(double latitude, double longitude, double minLat, double maxLat, double minLng, double maxLng) {
+        if (latitude < minLat || latitude > maxLat) {
+            return false;
+        }
+        if (minLng <= maxLng) {
+            return longitude >= minLng && longitude <= maxLng;
+        }
+        return longitude >= minLng || longitude <= maxLng;
+    }
+
+    /** Great-circle distance (haversine). */
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Parses the legacy "lat, lng" location text (optionally prefixed with
+     * "Location:"). Returns {lat, lng}, or null for messages such as
+     * "Location error" or out-of-range values.
+     */
+    static double[] parseCoordinates(String location) {
+        if (location == null) {
+            return null;
+        }
+        String[] parts = location.replace("Location:", "").trim().split(",");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            double latitude = Double.parseDouble(parts[0].trim());
+            double longitude = Double.parseDouble(parts[1].trim());
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)
+                    || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                return null;
+            }
+            return new double[]{latitude, longitude};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int latIndex(double latitude) {
+        double clamped = Math.max(-90, Math.min(90, latitude));
+        return (int) Math.floor((clamped + 90) / CELL_DEGREES);
+    }
+
+    private static int lngIndex(double longitude) {
+        double clamped = Math.max(-180, Math.min(180, longitude));
+        return (int) Math.floor((clamped + 180) / CELL_DEGREES);
+    }
+
+    private static double normalizeLng(double longitude) {
+        double normalized = ((longitude + 180) % 360 + 360) % 360 - 180;
+        // Keep +180 (rather than -180) for an exact eastern edge.
+        return normalized == -180 && longitude > 0 ? 180 : normalized;
+    }
+}
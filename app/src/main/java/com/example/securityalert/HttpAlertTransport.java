@@ -0,0 +1,144 @@
+package com.example.securityalert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Posts each outbox batch as one JSON array to a fixed endpoint.
+ *
+ * The whole batch shares one outcome, taken from the HTTP status: 2xx and 409
+ * (already have it) mean delivered; 408, 429 and 5xx mean retry; any other
+ * status means rejected. The server is expected to upsert by idempotencyKey
+ * and keep the highest revision, so a resent batch is harmless.
+ *
+ * Photos are referenced by photoSha256 rather than sent inline: the alerts of
+ * one SOS, one per group, all name the same image, which the server needs once.
+ */
+public class HttpAlertTransport implements AlertTransport {
+
+    private static final int CONNECT_TIMEOUT_MS = 10 * 1000;
+    private static final int READ_TIMEOUT_MS = 15 * 1000;
+
+    private final URL endpoint;
+
+    public HttpAlertTransport(URL endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public List<Outcome> send(List<OutboxEntry> batch) throws IOException {
+        byte[] body = toJson(batch).getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            return new ArrayList<>(Collections.nCopies(batch.size(), outcomeFor(status)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    static Outcome outcomeFor(int status) {
+        if ((status >= 200 && status < 300) || status == 409) {
+            return Outcome.DELIVERED;
+        }
+        if (status == 408 || status == 429 || status >= 500) {
+            return Outcome.RETRY;
+        }
+        return Outcome.REJECTED;
+    }
+
+    // Read the body fully so the connection can be reused for the next batch.
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    static String toJson(List<OutboxEntry> batch) {
+        StringBuilder json = new StringBuilder(batch.size() * 256).append('[');
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEntry entry = batch.get(i);
+            Alert alert = entry.alert;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            field(json, "idempotencyKey", entry.idempotencyKey).append(',');
+            json.append("\"revision\":").append(entry.revision).append(',');
+            field(json, "senderEmail", alert.senderEmail).append(',');
+            field(json, "groupName", alert.groupName).append(',');
+            field(json, "message", alert.message).append(',');
+            field(json, "location", alert.location).append(',');
+            number(json, "latitude", alert.latitude).append(',');
+            number(json, "longitude", alert.longitude).append(',');
+            number(json, "accuracy", alert.accuracy).append(',');
+            number(json, "createdAt", alert.createdAt).append(',');
+            field(json, "photoSha256", alert.photoSha256).append(',');
+            field(json, "timestamp", alert.timestamp);
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, String value) {
+        json.append('"').append(name).append("\":");
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    private static StringBuilder number(StringBuilder json, String name, Number value) {
+        return json.append('"').append(name).append("\":").append(value == null ? "null" : value.toString());
+    }
+}
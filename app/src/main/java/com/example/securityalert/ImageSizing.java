@@ -0,0 +1,71 @@
+package com.example.securityalert;
+
+/**
+ * Size arithmetic shared by the photo pipeline: decode subsampling, edge limits
+ * and the JPEG quality step-down.
+ */
+final class ImageSizing {
+
+    /** Lowest JPEG quality {@link #encodeWithin} steps down to. */
+    static final int MIN_QUALITY = 40;
+    static final int QUALITY_STEP = 10;
+
+    /** Encodes one image at a given JPEG quality. */
+    interface Encoder {
+        byte[] encode(int quality);
+    }
+
+    private ImageSizing() {
+    }
+
+    /**
+     * Largest power-of-two subsample that still leaves the decoded image at least
+     * {@code reqWidth} x {@code reqHeight}, the value BitmapFactory expects in inSampleSize.
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        if (height > reqHeight || width > reqWidth) {
+            int halfHeight = height / 2;
+            int halfWidth = width / 2;
+            while ((halfHeight / inSampleSize) >= reqHeight && (halfWidth / inSampleSize) >= reqWidth) {
+                inSampleSize *= 2;
+            }
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Scales {@code width} x {@code height} down, keeping the aspect ratio, so the longer
+     * edge is at most {@code maxEdge}. Returns {width, height}; never upscales.
+     */
+    static int[] fitWithin(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        if (longest <= maxEdge || longest <= 0) {
+            return new int[]{width, height};
+        }
+        double scale = (double) maxEdge / longest;
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    /**
+     * Encodes at {@code quality}, stepping down by {@link #QUALITY_STEP} until the
+     * result fits {@code maxBytes}. Stops at {@link #MIN_QUALITY} and returns that
+     * attempt even if it is still too large.
+     */
+    static byte[] encodeWithin(Encoder encoder, int quality, int maxBytes) {
+        int current = quality;
+        while (true) {
+            byte[] encoded = encoder.encode(current);
+            if (encoded.length <= maxBytes || current - QUALITY_STEP < MIN_QUALITY) {
+                return encoded;
+            }
+            current -= QUALITY_STEP;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.securityalert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets. Every power of two of
+ * microseconds is split into {@link #SUB_BUCKETS} equal buckets, so a percentile
+ * is reported at most 12.5% above the true value. Latencies from 1 µs to about
+ * 70 minutes are kept apart; longer ones land in the last bucket.
+ */
+final class LatencyHistogram {
+
+    static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    private static final int MAX_EXPONENT = 31;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos / 1000));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Another thread raised the max; compare again.
+        }
+    }
+
+    /**
+     * Copies the current counts. Recording may continue meanwhile, so the totals
+     * can be a few samples apart from the buckets, never more.
+     */
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+        if (exponent == MAX_EXPONENT && micros >= (1L << (MAX_EXPONENT + 1))) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+    }
+
+    /** Largest latency in microseconds that falls into {@code bucket}. */
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /** Immutable copy of a histogram; two snapshots can be subtracted to get an interval. */
+    static final class Snapshot {
+        final long[] counts;
+        final long count;
+        final long totalNanos;
+        final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * What was recorded after {@code earlier}. The exact max is not known for an
+         * interval, so it is the upper bound of the highest non-empty bucket.
+         */
+        Snapshot minus(Snapshot earlier) {
+            if (earlier == null) {
+                return this;
+            }
+            long[] diff = new long[counts.length];
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                diff[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                if (diff[i] > 0) {
+                    highest = i;
+                }
+            }
+            long max = highest < 0 ? 0 : Math.min(maxNanos, upperBoundMicros(highest) * 1000);
+            return new Snapshot(diff, Math.max(0, count - earlier.count),
+                    Math.max(0, totalNanos - earlier.totalNanos), max);
+        }
+
+        /**
+         * Latency at {@code percentile} (0-100) in nanoseconds: the upper bound of
+         * its bucket, capped at the max. 0 when nothing was recorded.
+         */
+        long percentileNanos(double percentile) {
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(maxNanos, upperBoundMicros(i) * 1000 + 999);
+                }
+            }
+            return maxNanos;
+        }
+
+        long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.securityalert;
+
+/** One location reading. */
+public final class LocationFix {
+
+    public final double latitude;
+    public final double longitude;
+    // Radius in metres; null when the provider did not report one.
+    public final Float accuracyMeters;
+    // When the fix was taken, on the {@link Clock#elapsedRealtime()} timeline.
+    public final long elapsedRealtimeMillis;
+
+    public LocationFix(double latitude, double longitude, Float accuracyMeters, long elapsedRealtimeMillis) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.elapsedRealtimeMillis = elapsedRealtimeMillis;
+    }
+
+    /** The "lat, lng" text stored in the alert's location column. */
+    public String describe() {
+        return latitude + ", " + longitude;
+    }
+}
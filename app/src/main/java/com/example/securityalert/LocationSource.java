@@ -0,0 +1,24 @@
+package com.example.securityalert;
+
+/**
+ * Where {@link LocationWarmCache} gets its fixes. The app uses
+ * {@link FusedLocationSource}; tests substitute a fake. Listeners are called on
+ * the thread that owns the cache.
+ */
+public interface LocationSource {
+
+    interface Listener {
+        void onFix(LocationFix fix);
+    }
+
+    /** Starts low-power periodic updates. Calling it again while running does nothing. */
+    void startUpdates(Listener listener);
+
+    void stopUpdates();
+
+    /**
+     * Asks for one high-accuracy fix. {@code listener} may never be called if
+     * no fix can be obtained, so callers must apply their own deadline.
+     */
+    void requestFresh(Listener listener);
+}
@@ -0,0 +1,114 @@
+package com.example.securityalert;
+
+/**
+ * Keeps a recent location fix ready for the SOS path.
+ *
+ * While started, a low-power {@link LocationSource} feeds the cache in the
+ * background, so {@link #current()} is a field read rather than a wait on GPS.
+ * At SOS time {@link #acquire} races a fresh high-accuracy fix against a
+ * deadline and falls back to the cached fix if the fresh one is late.
+ *
+ * Everything except {@link #current()} and {@link #ageMillis()} must be called
+ * on the clock's thread (the main thread in the app).
+ */
+public class LocationWarmCache {
+
+    // Within this window a less accurate fix does not replace a more accurate one.
+    static final long SIGNIFICANTLY_NEWER_MS = 60 * 1000;
+
+    public interface Callback {
+        /** {@code fix} is null when neither a fresh nor a cached fix was available. */
+        void onLocation(LocationFix fix);
+    }
+
+    private final LocationSource source;
+    private final Clock clock;
+    private volatile LocationFix latest;
+
+    private final LocationSource.Listener updateListener = new LocationSource.Listener() {
+        @Override
+        public void onFix(LocationFix fix) {
+            offer(fix);
+        }
+    };
+
+    public LocationWarmCache(LocationSource source, Clock clock) {
+        this.source = source;
+        this.clock = clock;
+    }
+
+    /** Starts background updates. Safe to call again, e.g. after a permission grant. */
+    public void start() {
+        source.startUpdates(updateListener);
+    }
+
+    public void stop() {
+        source.stopUpdates();
+    }
+
+    /** The best recent fix, or null if none has arrived yet. */
+    public LocationFix current() {
+        return latest;
+    }
+
+    /** Age of {@link #current()} in milliseconds, or -1 if there is none. */
+    public long ageMillis() {
+        LocationFix fix = latest;
+        return fix != null ? clock.elapsedRealtime() - fix.elapsedRealtimeMillis : -1;
+    }
+
+    /**
+     * Requests a fresh high-accuracy fix and reports it if it arrives within
+     * {@code deadlineMillis}; otherwise reports {@link #current()} at the deadline.
+     * {@code callback} is called exactly once. A fix that arrives after the
+     * deadline still updates the cache.
+     */
+    public void acquire(long deadlineMillis, final Callback callback) {
+        final boolean[] delivered = new boolean[1];
+        final Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                if (!delivered[0]) {
+                    delivered[0] = true;
+                    callback.onLocation(latest);
+                }
+            }
+        };
+        clock.postDelayed(timeout, deadlineMillis);
+        source.requestFresh(new LocationSource.Listener() {
+            @Override
+            public void onFix(LocationFix fix) {
+                offer(fix);
+                if (!delivered[0]) {
+                    delivered[0] = true;
+                    clock.removeCallbacks(timeout);
+                    callback.onLocation(fix);
+                }
+            }
+        });
+    }
+
+    void offer(LocationFix fix) {
+        LocationFix current = latest;
+        if (current == null || isBetter(fix, current)) {
+            latest = fix;
+        }
+    }
+
+    static boolean isBetter(LocationFix candidate, LocationFix current) {
+        long delta = candidate.elapsedRealtimeMillis - current.elapsedRealtimeMillis;
+        if (delta > SIGNIFICANTLY_NEWER_MS) {
+            return true;
+        }
+        if (delta < -SIGNIFICANTLY_NEWER_MS) {
+            return false;
+        }
+        float candidateAccuracy = accuracyOf(candidate);
+        float currentAccuracy = accuracyOf(current);
+        return candidateAccuracy < currentAccuracy || (delta >= 0 && candidateAccuracy <= currentAccuracy);
+    }
+
+    private static float accuracyOf(LocationFix fix) {
+        return fix.accuracyMeters != null ? fix.accuracyMeters : Float.MAX_VALUE;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.securityalert;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -15,8 +14,8 @@ public class LoginActivity extends AppCompatActivity {
     private EditText emailInput, passwordInput;
     private Button loginButton;
     private TextView registerLink;
-    private DatabaseHelper db;
-    private SharedPreferences prefs;
+    private DataRepository repository;
+    private SessionCache sessionCache;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,10 +27,10 @@ public class LoginActivity extends AppCompatActivity {
         loginButton = findViewById(R.id.loginButton);
         registerLink = findViewById(R.id.registerLink);
 
-        db = new DatabaseHelper(this);
-        prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
+        repository = new DataRepository(this);
+        sessionCache = SessionCache.getInstance(this);
 
-        if (prefs.getBoolean("isLoggedIn", false)) {
+        if (sessionCache.isLoggedIn()) {
             navigateToDashboard();
         }
 
@@ -59,17 +58,33 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        if (db.checkUser(email, password)) {
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putBoolean("isLoggedIn", true);
-            editor.putString("userEmail", email);
-            editor.apply();
+        loginButton.setEnabled(false);
+        repository.login(email, password, new DataRepository.Callback<User>() {
+            @Override
+            public void onResult(User user) {
+                loginButton.setEnabled(true);
+                if (user != null) {
+                    sessionCache.signIn(user);
 
-            Toast.makeText(this, "Login successful!", Toast.LENGTH_SHORT).show();
-            navigateToDashboard();
-        } else {
-            Toast.makeText(this, "Invalid credentials", Toast.LENGTH_SHORT).show();
-        }
+                    Toast.makeText(LoginActivity.this, "Login successful!", Toast.LENGTH_SHORT).show();
+                    navigateToDashboard();
+                } else {
+                    Toast.makeText(LoginActivity.this, "Invalid credentials", Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                loginButton.setEnabled(true);
+                Toast.makeText(LoginActivity.this, "Login failed, please try again", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.close();
+        super.onDestroy();
     }
 
     private void navigateToDashboard() {
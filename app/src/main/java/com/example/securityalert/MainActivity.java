@@ -1,9 +1,7 @@
 package com.example.securityalert;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.Handler;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class MainActivity extends AppCompatActivity {
@@ -13,14 +11,15 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        new Handler().postDelayed(new Runnable() {
+        // Routes as soon as the session is read and the database is ready, instead of after a fixed delay.
+        new StartupPipeline(this).start(new StartupPipeline.Listener() {
             @Override
-            public void run() {
-                SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
-                boolean isLoggedIn = prefs.getBoolean("isLoggedIn", false);
-
+            public void onReady(StartupPipeline.Session session) {
+                if (isFinishing()) {
+                    return;
+                }
                 Intent intent;
-                if (isLoggedIn) {
+                if (session.loggedIn) {
                     intent = new Intent(MainActivity.this, DashboardActivity.class);
                 } else {
                     intent = new Intent(MainActivity.this, LoginActivity.class);
@@ -28,6 +27,6 @@ public class MainActivity extends AppCompatActivity {
                 startActivity(intent);
                 finish();
             }
-        }, 2000);
+        });
     }
-}
\ No newline at end of file
+}
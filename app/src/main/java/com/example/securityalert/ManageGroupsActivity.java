@@ -1,7 +1,9 @@
 package com.example.securityalert;
 
-import android.content.SharedPreferences;
+import android.app.Activity;
+import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -15,10 +17,16 @@ import java.util.List;
 
 public class ManageGroupsActivity extends AppCompatActivity {
 
+    private static final String TAG = "ManageGroupsActivity";
+    private static final int REQUEST_IMPORT_MEMBERS = 1;
+    private static final String STATE_IMPORT_GROUP = "importGroup";
+
     private Button createGroupButton, backButton;
     private LinearLayout groupsContainer;
-    private DatabaseHelper db;
+    private DataRepository repository;
     private String userEmail;
+    // Group the member file picker was opened for.
+    private String importGroupName;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -29,9 +37,11 @@ public class ManageGroupsActivity extends AppCompatActivity {
         backButton = findViewById(R.id.backButton);
         groupsContainer = findViewById(R.id.groupsContainer);
 
-        db = new DatabaseHelper(this);
-        SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
-        userEmail = prefs.getString("userEmail", "");
+        repository = new DataRepository(this);
+        userEmail = SessionCache.getInstance(this).getUserEmail();
+        if (savedInstanceState != null) {
+            importGroupName = savedInstanceState.getString(STATE_IMPORT_GROUP);
+        }
 
         loadGroups();
 
@@ -51,8 +61,16 @@ public class ManageGroupsActivity extends AppCompatActivity {
     }
 
     private void loadGroups() {
+        repository.getGroupSummaries(userEmail, new DataRepository.Callback<List<GroupSummary>>() {
+            @Override
+            public void onResult(List<GroupSummary> groups) {
+                showGroups(groups);
+            }
+        });
+    }
+
+    private void showGroups(List<GroupSummary> groups) {
         groupsContainer.removeAllViews();
-        List<String> groups = db.getUserGroups(userEmail);
 
         if (groups.isEmpty()) {
             TextView emptyText = new TextView(this);
@@ -61,29 +79,32 @@ public class ManageGroupsActivity extends AppCompatActivity {
             emptyText.setTextSize(16);
             groupsContainer.addView(emptyText);
         } else {
-            for (String groupName : groups) {
-                addGroupView(groupName);
+            for (GroupSummary group : groups) {
+                addGroupView(group);
             }
         }
     }
 
-    private void addGroupView(String groupName) {
+    private void addGroupView(GroupSummary group) {
+        final String groupName = group.name;
+        final long groupId = group.id;
         View groupView = LayoutInflater.from(this).inflate(R.layout.item_group, groupsContainer, false);
 
         TextView groupNameText = groupView.findViewById(R.id.groupNameText);
         TextView membersCountText = groupView.findViewById(R.id.membersCountText);
         Button viewMembersButton = groupView.findViewById(R.id.viewMembersButton);
         Button addMemberButton = groupView.findViewById(R.id.addMemberButton);
+        Button importMembersButton = groupView.findViewById(R.id.importMembersButton);
 
         groupNameText.setText(groupName);
 
-        List<String> members = db.getGroupMembers(groupName, userEmail);
-        membersCountText.setText(members.size() + " members");
+        membersCountText.setText(group.memberCount + " members");
 
         viewMembersButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                showMembersDialog(groupName, members);
+                // Members are only loaded when asked for, not for every group on screen.
+                repository.getGroupMembers(groupId, members -> showMembersDialog(groupName, members));
             }
         });
 
@@ -94,6 +115,13 @@ public class ManageGroupsActivity extends AppCompatActivity {
             }
         });
 
+        importMembersButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                pickMembersFile(groupName);
+            }
+        });
+
         groupsContainer.addView(groupView);
     }
 
@@ -109,13 +137,14 @@ public class ManageGroupsActivity extends AppCompatActivity {
         builder.setPositiveButton("Create", (dialog, which) -> {
             String groupName = input.getText().toString().trim();
             if (!groupName.isEmpty()) {
-                boolean created = db.addGroup(groupName, userEmail, userEmail);
-                if (created) {
-                    Toast.makeText(this, "Group created: " + groupName, Toast.LENGTH_SHORT).show();
-                    loadGroups();
-                } else {
-                    Toast.makeText(this, "Failed to create group", Toast.LENGTH_SHORT).show();
-                }
+                repository.addGroup(groupName, userEmail, userEmail, created -> {
+                    if (created) {
+                        Toast.makeText(this, "Group created: " + groupName, Toast.LENGTH_SHORT).show();
+                        loadGroups();
+                    } else {
+                        Toast.makeText(this, "Failed to create group", Toast.LENGTH_SHORT).show();
+                    }
+                });
             } else {
                 Toast.makeText(this, "Group name cannot be empty", Toast.LENGTH_SHORT).show();
             }
@@ -135,17 +164,19 @@ public class ManageGroupsActivity extends AppCompatActivity {
         builder.setView(input);
 
         builder.setPositiveButton("Add", (dialog, which) -> {
-            String memberContact = input.getText().toString().trim();
-            if (!memberContact.isEmpty()) {
-                boolean added = db.addGroup(groupName, userEmail, memberContact);
-                if (added) {
-                    Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
-                    loadGroups();
-                } else {
-                    Toast.makeText(this, "Failed to add member", Toast.LENGTH_SHORT).show();
-                }
+            // Stored the same way imports store them, so the unique constraint catches repeats.
+            String memberContact = MemberImporter.normalize(input.getText().toString());
+            if (memberContact != null) {
+                repository.addGroup(groupName, userEmail, memberContact, added -> {
+                    if (added) {
+                        Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
+                        loadGroups();
+                    } else {
+                        Toast.makeText(this, "Already a member of " + groupName, Toast.LENGTH_SHORT).show();
+                    }
+                });
             } else {
-                Toast.makeText(this, "Please enter a valid contact", Toast.LENGTH_SHORT).show();
+                Toast.makeText(this, "Please enter a valid email or phone number", Toast.LENGTH_SHORT).show();
             }
         });
 
@@ -153,6 +184,53 @@ public class ManageGroupsActivity extends AppCompatActivity {
         builder.show();
     }
 
+    private void pickMembersFile(String groupName) {
+        importGroupName = groupName;
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        // CSV and vCard files are reported under several MIME types, so accept any.
+        intent.setType("*/*");
+        startActivityForResult(intent, REQUEST_IMPORT_MEMBERS);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_IMPORT_MEMBERS && resultCode == Activity.RESULT_OK
+                && data != null && data.getData() != null && importGroupName != null) {
+            importMembers(importGroupName, data);
+        }
+    }
+
+    private void importMembers(final String groupName, Intent data) {
+        Toast.makeText(this, "Importing members into " + groupName + "...", Toast.LENGTH_SHORT).show();
+        repository.importMembers(groupName, userEmail, data.getData(),
+                new DataRepository.Callback<MemberImporter.Result>() {
+                    @Override
+                    public void onResult(MemberImporter.Result result) {
+                        Log.i(TAG, "Imported " + result.total() + " rows into " + groupName + " in "
+                                + result.elapsedMillis + " ms");
+                        Toast.makeText(ManageGroupsActivity.this, result.added + " added, "
+                                + result.duplicates + " already in " + groupName + ", "
+                                + result.skipped + " without a valid email or phone",
+                                Toast.LENGTH_LONG).show();
+                        loadGroups();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(ManageGroupsActivity.this, "Could not read that file",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_IMPORT_GROUP, importGroupName);
+    }
+
     private void showMembersDialog(String groupName, List<String> members) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Members of " + groupName);
@@ -182,16 +260,23 @@ public class ManageGroupsActivity extends AppCompatActivity {
         builder.setMessage("Remove " + memberContact + " from " + groupName + "?");
 
         builder.setPositiveButton("Remove", (dialog, which) -> {
-            boolean removed = db.removeMember(groupName, userEmail, memberContact);
-            if (removed) {
-                Toast.makeText(this, "Member removed successfully", Toast.LENGTH_SHORT).show();
-                loadGroups();
-            } else {
-                Toast.makeText(this, "Failed to remove member", Toast.LENGTH_SHORT).show();
-            }
+            repository.removeMember(groupName, userEmail, memberContact, removed -> {
+                if (removed) {
+                    Toast.makeText(this, "Member removed successfully", Toast.LENGTH_SHORT).show();
+                    loadGroups();
+                } else {
+                    Toast.makeText(this, "Failed to remove member", Toast.LENGTH_SHORT).show();
+                }
+            });
         });
 
         builder.setNegativeButton("Cancel", null);
         builder.show();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        repository.close();
+        super.onDestroy();
+    }
+}
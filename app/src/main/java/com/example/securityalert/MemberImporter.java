@@ -0,0 +1,218 @@
+package com.example.securityalert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams members out of a CSV roster or a vCard (.vcf) contacts export, one
+ * line at a time, so a file of any size never has to fit in memory.
+ *
+ * Each CSV row or vCard entry yields one member: the person's first valid email,
+ * or their first valid phone number if they have no email. Emails are trimmed and
+ * lower-cased; phone numbers are reduced to digits with an optional leading '+'.
+ * Rows with neither (including a header row) are counted as skipped.
+ */
+public class MemberImporter {
+
+    /** Receives each normalized member; returns false if it was already there. */
+    public interface Sink {
+        boolean add(String member);
+    }
+
+    public static class Result {
+        public int added;
+        public int duplicates;
+        public int skipped;
+        public long elapsedMillis;
+
+        public int total() {
+            return added + duplicates + skipped;
+        }
+    }
+
+    private static final int MIN_PHONE_DIGITS = 7;
+    private static final int MAX_PHONE_DIGITS = 15;
+
+    /** Reads every member from {@code reader} into {@code sink}. Does not close the reader. */
+    public static Result read(Reader reader, Sink sink) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader);
+
+        String line = lines.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            line = lines.readLine();
+        }
+        if (line != null) {
+            line = stripByteOrderMark(line);
+            if (line.trim().toUpperCase(Locale.ROOT).startsWith("BEGIN:VCARD")) {
+                readVCards(lines, sink, result);
+            } else {
+                readCsv(line, lines, sink, result);
+            }
+        }
+        result.elapsedMillis = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    private static void readCsv(String firstLine, BufferedReader lines, Sink sink, Result result)
+            throws IOException {
+        for (String line = firstLine; line != null; line = lines.readLine()) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String email = null;
+            String phone = null;
+            for (String cell : splitCsvLine(line)) {
+                if (email == null) {
+                    email = normalizeEmail(cell);
+                }
+                if (phone == null) {
+                    phone = normalizePhone(cell);
+                }
+            }
+            offer(email != null ? email : phone, sink, result);
+        }
+    }
+
+    // Only EMAIL and TEL properties are looked at; folded continuation lines are ignored.
+    private static void readVCards(BufferedReader lines, Sink sink, Result result) throws IOException {
+        String email = null;
+        String phone = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = propertyName(line.substring(0, colon));
+            String value = line.substring(colon + 1);
+            if (name.equals("BEGIN")) {
+                email = null;
+                phone = null;
+            } else if (name.equals("END")) {
+                offer(email != null ? email : phone, sink, result);
+            } else if (name.equals("EMAIL") && email == null) {
+                email = normalizeEmail(value);
+            } else if (name.equals("TEL") && phone == null) {
+                phone = normalizePhone(value.startsWith("tel:") ? value.substring(4) : value);
+            }
+        }
+    }
+
+    private static void offer(String member, Sink sink, Result result) {
+        if (member == null) {
+            result.skipped++;
+        } else if (sink.add(member)) {
+            result.added++;
+        } else {
+            result.duplicates++;
+        }
+    }
+
+    /**
+     * The form members are stored in: a normalized email, else a normalized phone
+     * number, else null if {@code contact} is neither.
+     */
+    public static String normalize(String contact) {
+        String email = normalizeEmail(contact);
+        return email != null ? email : normalizePhone(contact);
+    }
+
+    static String normalizeEmail(String value) {
+        if (value == null) {
+            return null;
+        }
+        String email = value.trim();
+        if (email.regionMatches(true, 0, "mailto:", 0, 7)) {
+            email = email.substring(7);
+        }
+        int at = email.indexOf('@');
+        if (at <= 0 || at != email.lastIndexOf('@') || email.indexOf('.', at) < 0
+                || email.endsWith(".") || containsWhitespace(email)) {
+            return null;
+        }
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizePhone(String value) {
+        if (value == null) {
+            return null;
+        }
+        String phone = value.trim();
+        StringBuilder digits = new StringBuilder(phone.length());
+        boolean international = phone.startsWith("+");
+        for (int i = international ? 1 : 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                return null;
+            }
+        }
+        if (!international && digits.length() > 2 && digits.charAt(0) == '0' && digits.charAt(1) == '0') {
+            // 00 is the international call prefix in most of the world.
+            digits.delete(0, 2);
+            international = true;
+        }
+        if (digits.length() < MIN_PHONE_DIGITS || digits.length() > MAX_PHONE_DIGITS) {
+            return null;
+        }
+        return international ? "+" + digits : digits.toString();
+    }
+
+    /** Splits one CSV line, honouring double-quoted cells with "" escapes. */
+    static List<String> splitCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',' || c == ';') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // "item1.EMAIL;TYPE=INTERNET" -> "EMAIL"
+    private static String propertyName(String nameAndParams) {
+        int semicolon = nameAndParams.indexOf(';');
+        String name = semicolon >= 0 ? nameAndParams.substring(0, semicolon) : nameAndParams;
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String stripByteOrderMark(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private static boolean containsWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.securityalert;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide latency histograms and counters, keyed by name ("db.getAllAlerts",
+ * "sos.persisted", ...). Off by default. While off, {@link #start()} is a single
+ * volatile read and {@link #record} returns at once, so call sites can stay in
+ * hot paths:
+ * <pre>
+ *     long start = Metrics.start();
+ *     try {
+ *         ...
+ *     } finally {
+ *         Metrics.record("db.saveAlert", start);
+ *     }
+ * </pre>
+ * Kept free of Android types so the registry works in unit tests and benchmarks.
+ * {@link MetricsExporter} persists it and switches it on and off.
+ */
+public final class Metrics {
+
+    /** Returned by {@link #start()} while recording is off. */
+    static final long OFF = Long.MIN_VALUE;
+
+    private static volatile boolean enabled;
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Start of a timed section: the current time, or {@link #OFF} without reading the clock. */
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /** Records the time since {@code start}, a value returned by {@link #start()}. */
+    public static void record(String name, long start) {
+        if (start == OFF || !enabled) {
+            return;
+        }
+        recordNanos(name, System.nanoTime() - start);
+    }
+
+    public static void recordNanos(String name, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        histogram(name).record(nanos);
+    }
+
+    public static void increment(String name) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /** A copy of every histogram, sorted by name. */
+    static Map<String, LatencyHistogram.Snapshot> histogramSnapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    /** The current value of every counter, sorted by name. */
+    static Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+    }
+
+    // ConcurrentHashMap.computeIfAbsent needs API 24.
+    private static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+}
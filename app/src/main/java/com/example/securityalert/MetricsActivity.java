@@ -0,0 +1,90 @@
+package com.example.securityalert;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.CompoundButton;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Debug screen for {@link Metrics}: switches recording on and off, shows the
+ * running percentiles, and exports them on demand. Opened by long-pressing the
+ * welcome text on the dashboard.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private Switch metricsSwitch;
+    private TextView metricsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        metricsSwitch = findViewById(R.id.metricsSwitch);
+        metricsText = findViewById(R.id.metricsText);
+        TextView exportPathText = findViewById(R.id.exportPathText);
+        Button refreshButton = findViewById(R.id.refreshMetricsButton);
+        Button exportButton = findViewById(R.id.exportMetricsButton);
+        Button resetButton = findViewById(R.id.resetMetricsButton);
+        Button backButton = findViewById(R.id.backButton);
+
+        exportPathText.setText("Exported every " + (MetricsExporter.EXPORT_INTERVAL_MS / 60000) + " min to "
+                + MetricsExporter.getInstance(this).getDirectory().getPath());
+        metricsSwitch.setChecked(Metrics.isEnabled());
+        metricsSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                MetricsExporter.setEnabled(MetricsActivity.this, isChecked);
+                showMetrics();
+            }
+        });
+
+        refreshButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showMetrics();
+            }
+        });
+
+        exportButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                MetricsExporter.exportNow(MetricsActivity.this);
+                Toast.makeText(MetricsActivity.this, "Metrics exported", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        resetButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Metrics.reset();
+                showMetrics();
+            }
+        });
+
+        backButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                finish();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        if (!Metrics.isEnabled()) {
+            metricsText.setText("Recording is off.");
+            return;
+        }
+        metricsText.setText(MetricsExporter.formatTable(Metrics.histogramSnapshots(), Metrics.counterValues()));
+    }
+}
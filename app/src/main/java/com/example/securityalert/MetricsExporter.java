@@ -0,0 +1,260 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link Metrics} to rotating CSV files in the app's private files
+ * directory, one line per metric that changed in the interval:
+ * <pre>
+ *     time,name,type,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms
+ *     1714598043000,db.getAllAlerts,latency,12,3.104,2.559,6.143,6.143,6.143
+ *     1714598043000,sos.triggered,counter,1,,,,,
+ * </pre>
+ * Percentiles are for the interval since the previous line of the same metric.
+ * When metrics.csv reaches {@link #MAX_FILE_BYTES} it becomes metrics.1.csv, and
+ * so on up to {@link #MAX_FILES} files, so the export never grows without bound.
+ * Pull them with {@code adb shell run-as com.example.securityalert cat files/metrics/metrics.csv}.
+ *
+ * Whether recording is on is stored in the "MetricsPrefs" preferences and
+ * survives restarts; it is switched from {@link MetricsActivity}.
+ */
+public class MetricsExporter {
+
+    private static final String TAG = "MetricsExporter";
+
+    static final String DIRECTORY_NAME = "metrics";
+    static final String FILE_NAME = "metrics.csv";
+    static final long MAX_FILE_BYTES = 256 * 1024;
+    static final int MAX_FILES = 4;
+    static final long EXPORT_INTERVAL_MS = 15 * 60 * 1000;
+    static final String HEADER = "time,name,type,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms";
+
+    private static final String PREFS_NAME = "MetricsPrefs";
+    private static final String KEY_ENABLED = "enabled";
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "metrics-export");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    private static MetricsExporter instance;
+    private static ScheduledFuture<?> periodicExport;
+
+    private final File directory;
+    // What the previous export saw, to turn running totals into intervals.
+    private final Map<String, LatencyHistogram.Snapshot> exportedHistograms = new HashMap<>();
+    private final Map<String, Long> exportedCounters = new HashMap<>();
+
+    MetricsExporter(File directory) {
+        this.directory = directory;
+    }
+
+    /** Restores the recording switch and, if it is on, starts exporting. Called at startup. */
+    public static synchronized void start(Context context) {
+        boolean on = prefs(context).getBoolean(KEY_ENABLED, false);
+        Metrics.setEnabled(on);
+        if (on) {
+            schedule(context);
+        }
+    }
+
+    public static synchronized void setEnabled(Context context, boolean on) {
+        prefs(context).edit().putBoolean(KEY_ENABLED, on).apply();
+        Metrics.setEnabled(on);
+        if (on) {
+            schedule(context);
+        } else if (periodicExport != null) {
+            periodicExport.cancel(false);
+            periodicExport = null;
+            // Keeps what was recorded since the last export.
+            exportNow(context);
+        }
+    }
+
+    /** Exports in the background straight away, e.g. before pulling the files. */
+    public static void exportNow(Context context) {
+        final MetricsExporter exporter = getInstance(context);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                exporter.exportQuietly();
+            }
+        });
+    }
+
+    static synchronized MetricsExporter getInstance(Context context) {
+        if (instance == null) {
+            instance = new MetricsExporter(new File(context.getApplicationContext().getFilesDir(), DIRECTORY_NAME));
+        }
+        return instance;
+    }
+
+    private static void schedule(Context context) {
+        if (periodicExport != null) {
+            return;
+        }
+        final MetricsExporter exporter = getInstance(context);
+        periodicExport = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                exporter.exportQuietly();
+            }
+        }, EXPORT_INTERVAL_MS, EXPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    private void exportQuietly() {
+        try {
+            export(System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not export metrics", e);
+        }
+    }
+
+    /** Appends what changed since the previous export. Returns the number of lines written. */
+    synchronized int export(long wallMillis) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        int written = 0;
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : Metrics.histogramSnapshots().entrySet()) {
+            LatencyHistogram.Snapshot total = entry.getValue();
+            LatencyHistogram.Snapshot previous = exportedHistograms.get(entry.getKey());
+            // A smaller total means the registry was reset since.
+            LatencyHistogram.Snapshot interval = total.minus(
+                    previous != null && previous.count <= total.count ? previous : null);
+            exportedHistograms.put(entry.getKey(), total);
+            if (interval.count == 0) {
+                continue;
+            }
+            lines.append(wallMillis).append(',').append(entry.getKey()).append(",latency,")
+                    .append(interval.count).append(',').append(millis(interval.meanNanos()))
+                    .append(',').append(millis(interval.percentileNanos(50)))
+                    .append(',').append(millis(interval.percentileNanos(90)))
+                    .append(',').append(millis(interval.percentileNanos(99)))
+                    .append(',').append(millis(interval.maxNanos)).append('\n');
+            written++;
+        }
+        for (Map.Entry<String, Long> entry : Metrics.counterValues().entrySet()) {
+            long total = entry.getValue();
+            Long previous = exportedCounters.get(entry.getKey());
+            long delta = previous != null && previous <= total ? total - previous : total;
+            exportedCounters.put(entry.getKey(), total);
+            if (delta == 0) {
+                continue;
+            }
+            lines.append(wallMillis).append(',').append(entry.getKey()).append(",counter,")
+                    .append(delta).append(",,,,,\n");
+            written++;
+        }
+        if (written == 0) {
+            return 0;
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        rotateIfNeeded();
+        File current = new File(directory, FILE_NAME);
+        boolean isNew = !current.exists() || current.length() == 0;
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(current, true), StandardCharsets.UTF_8)) {
+            if (isNew) {
+                out.write(HEADER + "\n");
+            }
+            out.write(lines.toString());
+        }
+        return written;
+    }
+
+    /** The export files that exist, newest first. */
+    List<File> files() {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < MAX_FILES; i++) {
+            File file = fileAt(i);
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        if (fileAt(0).length() < MAX_FILE_BYTES) {
+            return;
+        }
+        File oldest = fileAt(MAX_FILES - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Could not delete " + oldest);
+        }
+        for (int i = MAX_FILES - 2; i >= 0; i--) {
+            File file = fileAt(i);
+            if (file.exists() && !file.renameTo(fileAt(i + 1))) {
+                throw new IOException("Could not rotate " + file);
+            }
+        }
+    }
+
+    // 0 is the file being written, then metrics.1.csv, metrics.2.csv, ... from newest to oldest.
+    private File fileAt(int index) {
+        return new File(directory, index == 0 ? FILE_NAME : "metrics." + index + ".csv");
+    }
+
+    /**
+     * Running totals as a fixed-width table for the debug screen, latencies in
+     * milliseconds.
+     */
+    static String formatTable(Map<String, LatencyHistogram.Snapshot> histograms, Map<String, Long> counters) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.US, "%-32s %7s %8s %8s %8s %8s%n",
+                "latency (ms)", "count", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            if (snapshot.count == 0) {
+                continue;
+            }
+            table.append(String.format(Locale.US, "%-32s %7d %8s %8s %8s %8s%n", entry.getKey(), snapshot.count,
+                    millis(snapshot.percentileNanos(50)), millis(snapshot.percentileNanos(90)),
+                    millis(snapshot.percentileNanos(99)), millis(snapshot.maxNanos)));
+        }
+        if (!counters.isEmpty()) {
+            table.append(String.format(Locale.US, "%n%-32s %7s%n", "counter", "count"));
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                table.append(String.format(Locale.US, "%-32s %7d%n", entry.getKey(), entry.getValue()));
+            }
+        }
+        return table.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.securityalert;
+
+/**
+ * One alert waiting in (or already through) the outbox, with its delivery state.
+ *
+ * The idempotency key is fixed per alert row. The revision grows each time the
+ * row changes after it was queued (location or photo attached), so the server
+ * can upsert by key and ignore revisions older than the one it already has.
+ */
+public class OutboxEntry {
+
+    public static final int STATE_PENDING = 0;
+    public static final int STATE_DELIVERED = 1;
+    // Rejected by the server, or out of retries; kept for inspection, never resent.
+    public static final int STATE_FAILED = 2;
+
+    final long outboxId;
+    final Alert alert;
+    final String idempotencyKey;
+    final int revision;
+
+    int state;
+    int attempts;
+    long nextAttemptAt;
+    String lastError;
+
+    OutboxEntry(long outboxId, Alert alert, String idempotencyKey, int revision, int attempts) {
+        this.outboxId = outboxId;
+        this.alert = alert;
+        this.idempotencyKey = idempotencyKey;
+        this.revision = revision;
+        this.attempts = attempts;
+        this.state = STATE_PENDING;
+    }
+}
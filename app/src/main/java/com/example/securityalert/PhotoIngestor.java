@@ -0,0 +1,210 @@
+package com.example.securityalert;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Post-capture stage for evidence photos. Runs after the alert has been saved and
+ * rewrites the camera's full-size JPEG in place: orientation is applied to the
+ * pixels, the long edge and the file size are bounded, and a list thumbnail is
+ * written next to it ({@link #thumbnailPathFor}). The photo path never changes,
+ * so alert rows that already point at it stay valid. The finished file is then
+ * handed to the {@link EvidenceStore}.
+ */
+public class PhotoIngestor {
+
+    private static final String TAG = "PhotoIngestor";
+    private static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+
+    /** Limits applied to every ingested photo. */
+    public static class Config {
+        public static final Config DEFAULT = new Config(1600, 400 * 1024, 85, 720);
+
+        final int maxEdgePx;
+        final int maxBytes;
+        final int quality;
+        final int thumbnailEdgePx;
+
+        public Config(int maxEdgePx, int maxBytes, int quality, int thumbnailEdgePx) {
+            this.maxEdgePx = maxEdgePx;
+            this.maxBytes = maxBytes;
+            this.quality = quality;
+            this.thumbnailEdgePx = thumbnailEdgePx;
+        }
+    }
+
+    private static PhotoIngestor instance;
+
+    private final Config config;
+    // One photo at a time: ingest is memory heavy and never on the critical path.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public static synchronized PhotoIngestor getInstance() {
+        if (instance == null) {
+            instance = new PhotoIngestor(Config.DEFAULT);
+        }
+        return instance;
+    }
+
+    public PhotoIngestor(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Queues {@code photoPath} for ingest and returns immediately. Once the file
+     * no longer changes it is added to {@code store}, ingested or not.
+     */
+    public void enqueue(final String photoPath, final EvidenceStore store) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ingest(photoPath);
+                } catch (IOException | RuntimeException e) {
+                    // The original photo is left untouched on failure.
+                    Log.w(TAG, "Could not ingest " + photoPath, e);
+                }
+                File photo = new File(photoPath);
+                if (photo.isFile() && photo.length() > 0) {
+                    store.addQuietly(photo);
+                }
+            }
+        });
+    }
+
+    public static String thumbnailPathFor(String photoPath) {
+        int dot = photoPath.lastIndexOf('.');
+        String base = dot > photoPath.lastIndexOf(File.separatorChar) ? photoPath.substring(0, dot) : photoPath;
+        return base + THUMBNAIL_SUFFIX;
+    }
+
+    /** The .jpg photo a thumbnail was made from, or null if {@code path} is not a thumbnail. */
+    public static String photoPathForThumbnail(String path) {
+        return path.endsWith(THUMBNAIL_SUFFIX)
+                ? path.substring(0, path.length() - THUMBNAIL_SUFFIX.length()) + ".jpg"
+                : null;
+    }
+
+    void ingest(String photoPath) throws IOException {
+        File photo = new File(photoPath);
+        if (!photo.isFile() || photo.length() == 0) {
+            return;
+        }
+
+        Bitmap bitmap = decodeUpright(photoPath, config.maxEdgePx);
+        if (bitmap == null) {
+            return;
+        }
+
+        byte[] encoded = encodeWithin(bitmap, config.quality, config.maxBytes);
+        writeAtomically(photo, encoded);
+
+        int[] thumbSize = ImageSizing.fitWithin(bitmap.getWidth(), bitmap.getHeight(), config.thumbnailEdgePx);
+        Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap, thumbSize[0], thumbSize[1], true);
+        writeAtomically(new File(thumbnailPathFor(photoPath)), encodeWithin(thumbnail, config.quality, Integer.MAX_VALUE));
+
+        if (thumbnail != bitmap) {
+            thumbnail.recycle();
+        }
+        bitmap.recycle();
+    }
+
+    // Subsamples while decoding, then one matrix pass applies the EXIF rotation and
+    // the exact scale, so the full-resolution image is never held in memory.
+    private static Bitmap decodeUpright(String path, int maxEdge) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = ImageSizing.calculateInSampleSize(options.outWidth, options.outHeight, maxEdge, maxEdge);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = BitmapFactory.decodeFile(path, options);
+        if (decoded == null) {
+            return null;
+        }
+
+        int orientation = new ExifInterface(path)
+                .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        int[] target = ImageSizing.fitWithin(decoded.getWidth(), decoded.getHeight(), maxEdge);
+        float scale = (float) target[0] / decoded.getWidth();
+
+        Matrix matrix = new Matrix();
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+        applyOrientation(matrix, orientation);
+
+        Bitmap upright = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (upright != decoded) {
+            decoded.recycle();
+        }
+        return upright;
+    }
+
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Steps the JPEG quality down until the file fits; see ImageSizing#encodeWithin.
+    private static byte[] encodeWithin(final Bitmap bitmap, int quality, int maxBytes) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return ImageSizing.encodeWithin(new ImageSizing.Encoder() {
+            @Override
+            public byte[] encode(int quality) {
+                out.reset();
+                bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+                return out.toByteArray();
+            }
+        }, quality, maxBytes);
+    }
+
+    // Readers see either the old file or the new one, never a partial write.
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + target);
+        }
+    }
+}
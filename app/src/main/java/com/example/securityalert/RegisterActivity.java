@@ -13,7 +13,7 @@ public class RegisterActivity extends AppCompatActivity {
     private EditText nameInput, emailInput, phoneInput, passwordInput, confirmPasswordInput;
     private Button registerButton;
     private TextView loginLink;
-    private DatabaseHelper db;
+    private DataRepository repository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,7 +28,7 @@ public class RegisterActivity extends AppCompatActivity {
         registerButton = findViewById(R.id.registerButton);
         loginLink = findViewById(R.id.loginLink);
 
-        db = new DatabaseHelper(this);
+        repository = new DataRepository(this);
 
         registerButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -67,13 +67,31 @@ public class RegisterActivity extends AppCompatActivity {
             return;
         }
 
-        boolean isRegistered = db.registerUser(name, email, phone, password);
+        registerButton.setEnabled(false);
+        repository.registerUser(name, email, phone, password, new DataRepository.Callback<User>() {
+            @Override
+            public void onResult(User user) {
+                registerButton.setEnabled(true);
+                if (user != null) {
+                    SessionCache.getInstance(RegisterActivity.this).putUser(user);
+                    Toast.makeText(RegisterActivity.this, "Registration successful! Please login", Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    Toast.makeText(RegisterActivity.this, "Registration failed. Email might already exist", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-        if (isRegistered) {
-            Toast.makeText(this, "Registration successful! Please login", Toast.LENGTH_SHORT).show();
-            finish();
-        } else {
-            Toast.makeText(this, "Registration failed. Email might already exist", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                registerButton.setEnabled(true);
+                Toast.makeText(RegisterActivity.this, "Registration failed. Email might already exist", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.close();
+        super.onDestroy();
     }
 }
\ No newline at end of file
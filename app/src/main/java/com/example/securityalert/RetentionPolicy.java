@@ -0,0 +1,81 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How long alerts stay in the live Alerts table before {@link CompactionJob}
+ * archives them. There is one default age, and any group can override it.
+ * An age of 0 days means keep forever.
+ *
+ * Stored in the "RetentionPrefs" preferences as "defaultDays" and
+ * "groupDays:<group name>".
+ */
+public class RetentionPolicy {
+
+    public static final int DEFAULT_RETENTION_DAYS = 365;
+
+    private static final String PREFS_NAME = "RetentionPrefs";
+    private static final String KEY_DEFAULT_DAYS = "defaultDays";
+    private static final String KEY_GROUP_DAYS_PREFIX = "groupDays:";
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final int defaultDays;
+    private final Map<String, Integer> groupDays;
+
+    public RetentionPolicy(int defaultDays, Map<String, Integer> groupDays) {
+        this.defaultDays = defaultDays;
+        this.groupDays = new HashMap<>(groupDays);
+    }
+
+    public static RetentionPolicy load(Context context) {
+        SharedPreferences prefs = prefs(context);
+        Map<String, Integer> groupDays = new HashMap<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getKey().startsWith(KEY_GROUP_DAYS_PREFIX) && entry.getValue() instanceof Integer) {
+                groupDays.put(entry.getKey().substring(KEY_GROUP_DAYS_PREFIX.length()), (Integer) entry.getValue());
+            }
+        }
+        return new RetentionPolicy(prefs.getInt(KEY_DEFAULT_DAYS, DEFAULT_RETENTION_DAYS), groupDays);
+    }
+
+    public static void setDefaultDays(Context context, int days) {
+        prefs(context).edit().putInt(KEY_DEFAULT_DAYS, days).apply();
+    }
+
+    /** Overrides the default for one group; pass a negative value to go back to the default. */
+    public static void setGroupDays(Context context, String groupName, int days) {
+        SharedPreferences.Editor editor = prefs(context).edit();
+        if (days < 0) {
+            editor.remove(KEY_GROUP_DAYS_PREFIX + groupName);
+        } else {
+            editor.putInt(KEY_GROUP_DAYS_PREFIX + groupName, days);
+        }
+        editor.apply();
+    }
+
+    /** Alerts of {@code groupName} created before this are due for archiving. */
+    public long cutoffFor(String groupName, long nowMillis) {
+        Integer days = groupName != null ? groupDays.get(groupName) : null;
+        return cutoff(days != null ? days : defaultDays, nowMillis);
+    }
+
+    /** The latest cutoff of any group: nothing created after it is ever due. */
+    public long latestCutoff(long nowMillis) {
+        long latest = cutoff(defaultDays, nowMillis);
+        for (int days : groupDays.values()) {
+            latest = Math.max(latest, cutoff(days, nowMillis));
+        }
+        return latest;
+    }
+
+    private static long cutoff(int days, long nowMillis) {
+        return days <= 0 ? Long.MIN_VALUE : nowMillis - days * DAY_MS;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
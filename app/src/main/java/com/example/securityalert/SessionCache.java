@@ -0,0 +1,89 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The signed-in session plus user profiles keyed by email. Profiles live in
+ * memory and the signed-in user's profile is mirrored to the "UserPrefs"
+ * preferences, so relaunching the app shows it without touching SQLite.
+ *
+ * Filled on login and registration, cleared on logout. Passwords are never
+ * cached. Safe to use from any thread.
+ */
+public class SessionCache {
+
+    private static final String PREFS_NAME = "UserPrefs";
+    private static final String KEY_LOGGED_IN = "isLoggedIn";
+    private static final String KEY_EMAIL = "userEmail";
+    private static final String KEY_ID = "userId";
+    private static final String KEY_NAME = "userName";
+    private static final String KEY_PHONE = "userPhone";
+
+    private static SessionCache instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, User> profiles = new ConcurrentHashMap<>();
+
+    public static synchronized SessionCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SessionCache(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public boolean isLoggedIn() {
+        return prefs.getBoolean(KEY_LOGGED_IN, false);
+    }
+
+    public String getUserEmail() {
+        return prefs.getString(KEY_EMAIL, "");
+    }
+
+    /** Cached profile for {@code email}, or null if it has to be read from the database. */
+    public User getUser(String email) {
+        if (email == null) {
+            return null;
+        }
+        User user = profiles.get(email);
+        if (user == null && email.equals(prefs.getString(KEY_EMAIL, null)) && prefs.contains(KEY_NAME)) {
+            user = new User(prefs.getInt(KEY_ID, 0), prefs.getString(KEY_NAME, null), email,
+                    prefs.getString(KEY_PHONE, null), null);
+            profiles.put(email, user);
+        }
+        return user;
+    }
+
+    /** Caches a profile read elsewhere; persisted too if it is the signed-in user's. */
+    public void putUser(User user) {
+        profiles.put(user.email, user);
+        if (user.email.equals(prefs.getString(KEY_EMAIL, null))) {
+            writeProfile(prefs.edit(), user).apply();
+        }
+    }
+
+    public void signIn(User user) {
+        profiles.put(user.email, user);
+        SharedPreferences.Editor editor = prefs.edit()
+                .putBoolean(KEY_LOGGED_IN, true)
+                .putString(KEY_EMAIL, user.email);
+        writeProfile(editor, user).apply();
+    }
+
+    public void signOut() {
+        profiles.clear();
+        prefs.edit().clear().apply();
+    }
+
+    private static SharedPreferences.Editor writeProfile(SharedPreferences.Editor editor, User user) {
+        return editor.putInt(KEY_ID, user.id)
+                .putString(KEY_NAME, user.name)
+                .putString(KEY_PHONE, user.phone);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.securityalert;
+
+/**
+ * Folds repeated SOS presses into one alert. The first press starts a burst and
+ * writes the alert; presses until the burst has been quiet for the window reuse
+ * the same rows instead of adding new ones and opening another camera. They
+ * refresh the location, at most once per refresh interval, and the press that
+ * reaches the escalation count marks the alert as urgent, once per burst.
+ *
+ * Call on the clock's thread (the main thread in the app).
+ */
+public class SosCoalescer {
+
+    /** Limits for one burst. */
+    public static class Config {
+        public static final Config DEFAULT = new Config(2 * 60 * 1000, 15 * 1000, 3);
+
+        final long windowMillis;
+        final long refreshIntervalMillis;
+        final int escalateAfterPresses;
+
+        public Config(long windowMillis, long refreshIntervalMillis, int escalateAfterPresses) {
+            this.windowMillis = windowMillis;
+            this.refreshIntervalMillis = refreshIntervalMillis;
+            this.escalateAfterPresses = escalateAfterPresses;
+        }
+    }
+
+    /** What one press should do. */
+    public static class Decision {
+        /** Write a new alert: location, camera and fan-out. */
+        public final boolean newAlert;
+        /** Ask for a fresh location for the current alert's rows. */
+        public final boolean refreshLocation;
+        /** Mark the current alert as urgent. */
+        public final boolean escalate;
+        /** Presses in this burst so far, this one included. */
+        public final int pressCount;
+
+        Decision(boolean newAlert, boolean refreshLocation, boolean escalate, int pressCount) {
+            this.newAlert = newAlert;
+            this.refreshLocation = refreshLocation;
+            this.escalate = escalate;
+            this.pressCount = pressCount;
+        }
+    }
+
+    private final Clock clock;
+    private final Config config;
+
+    private boolean active;
+    private long lastPressAt;
+    private long lastRefreshAt;
+    private int pressCount;
+
+    public SosCoalescer(Clock clock, Config config) {
+        this.clock = clock;
+        this.config = config;
+    }
+
+    /** True while another press would join the current burst rather than start one. */
+    public boolean inBurst() {
+        return active && clock.elapsedRealtime() - lastPressAt < config.windowMillis;
+    }
+
+    public Decision press() {
+        long now = clock.elapsedRealtime();
+        if (!inBurst()) {
+            active = true;
+            lastPressAt = now;
+            // The new alert requests a location itself.
+            lastRefreshAt = now;
+            pressCount = 1;
+            return new Decision(true, false, false, 1);
+        }
+        lastPressAt = now;
+        pressCount++;
+        boolean refresh = now - lastRefreshAt >= config.refreshIntervalMillis;
+        if (refresh) {
+            lastRefreshAt = now;
+        }
+        return new Decision(false, refresh, pressCount == config.escalateAfterPresses, pressCount);
+    }
+
+    /**
+     * The burst in progress, for {@link #restoreState} on a new instance, e.g. after the
+     * screen is recreated. Times are on the clock's timeline, so they stay valid until reboot.
+     */
+    public long[] saveState() {
+        return new long[]{active ? 1 : 0, lastPressAt, lastRefreshAt, pressCount};
+    }
+
+    /** Continues the burst a {@link #saveState} call captured; null leaves this idle. */
+    public void restoreState(long[] state) {
+        if (state == null || state.length != 4) {
+            return;
+        }
+        active = state[0] != 0;
+        lastPressAt = state[1];
+        lastRefreshAt = state[2];
+        pressCount = (int) state[3];
+    }
+
+    /** Ends the current burst, so the next press sends a new alert. */
+    public void reset() {
+        active = false;
+        pressCount = 0;
+    }
+}
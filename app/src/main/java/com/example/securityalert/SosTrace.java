@@ -0,0 +1,63 @@
+package com.example.securityalert;
+
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timings of one SOS, measured from the moment it was confirmed. Each stage is
+ * recorded once and logged under the "SosTrace" tag, e.g. "persisted +12 ms",
+ * so the latency from tap to the first saved alert can be read from logcat.
+ * While {@link Metrics} is on, each stage also goes into the "sos.<stage>" histogram.
+ */
+public class SosTrace {
+
+    private static final String TAG = "SosTrace";
+
+    public static final String STAGE_PERSISTED = "persisted";
+    public static final String STAGE_CAMERA_OPENED = "camera_opened";
+    public static final String STAGE_LOCATION_ATTACHED = "location_attached";
+    public static final String STAGE_PHOTO_ATTACHED = "photo_attached";
+
+    private final long startNanos;
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+
+    private SosTrace(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static SosTrace start() {
+        return new SosTrace(SystemClock.elapsedRealtimeNanos());
+    }
+
+    /** Continues a trace whose {@link #startNanos()} was saved, e.g. across activity recreation. */
+    public static SosTrace resume(long startNanos) {
+        return new SosTrace(startNanos);
+    }
+
+    /** The elapsedRealtimeNanos() this trace measures from; valid until reboot. */
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /** Records {@code stage} the first time it is reached; later calls are ignored. */
+    public synchronized void mark(String stage) {
+        if (stages.containsKey(stage)) {
+            return;
+        }
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        long elapsedMillis = elapsedNanos / 1000000;
+        stages.put(stage, elapsedMillis);
+        if (Metrics.isEnabled()) {
+            Metrics.recordNanos("sos." + stage, elapsedNanos);
+        }
+        Log.i(TAG, stage + " +" + elapsedMillis + " ms");
+    }
+
+    /** Milliseconds from confirmation to {@code stage}, or -1 if it has not happened. */
+    public synchronized long elapsedMillis(String stage) {
+        Long elapsed = stages.get(stage);
+        return elapsed != null ? elapsed : -1;
+    }
+}
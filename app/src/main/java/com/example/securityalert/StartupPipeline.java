@@ -0,0 +1,179 @@
+package com.example.securityalert;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cold-start work that used to sit behind a fixed 2-second splash. The session is
+ * read, the database is opened (creating or migrating it if needed) and the
+ * signed-in user's profile is loaded into {@link SessionCache} if it is not
+ * there yet, all in parallel on background threads; the
+ * listener runs on the main thread as soon as they are done.
+ *
+ * Timings are logged under the "StartupPipeline" tag, and the time to ready and
+ * to an interactive dashboard are recorded as the "startup.ready" and
+ * "startup.dashboard_interactive" histograms. The measurement ends when the
+ * dashboard calls {@link #reportDashboardInteractive}.
+ */
+public class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+
+    public interface Listener {
+        void onReady(Session session);
+    }
+
+    public static class Session {
+        public final boolean loggedIn;
+        public final String userEmail;
+
+        Session(boolean loggedIn, String userEmail) {
+            this.loggedIn = loggedIn;
+            this.userEmail = userEmail;
+        }
+    }
+
+    // elapsedRealtimeNanos() when start() ran.
+    private static volatile long startedAtNanos;
+    // Set when startup routes straight to the dashboard, cleared once that is measured.
+    private static final AtomicBoolean awaitingDashboard = new AtomicBoolean();
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newFixedThreadPool(3, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "startup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public StartupPipeline(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public void start(final Listener listener) {
+        startedAtNanos = SystemClock.elapsedRealtimeNanos();
+        final DatabaseHelper db = DatabaseHelper.getInstance(context);
+
+        final Future<Session> session = executor.submit(new Callable<Session>() {
+            @Override
+            public Session call() {
+                long start = SystemClock.elapsedRealtime();
+                // First, so the database calls made at startup are already recorded.
+                MetricsExporter.start(context);
+                SessionCache sessionCache = SessionCache.getInstance(context);
+                Session result = new Session(sessionCache.isLoggedIn(), sessionCache.getUserEmail());
+                logStage("session", start);
+                return result;
+            }
+        });
+        final Future<?> warm = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                db.getReadableDatabase();
+                logStage("database_open", start);
+            }
+        });
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Session result = await(session);
+                if (result == null) {
+                    result = new Session(false, "");
+                }
+                SessionCache sessionCache = SessionCache.getInstance(context);
+                if (result.loggedIn && sessionCache.getUser(result.userEmail) == null) {
+                    // Only when the profile was never cached, e.g. right after an upgrade.
+                    // Waits on the open above if it is still running, then reads one row.
+                    long start = SystemClock.elapsedRealtime();
+                    try {
+                        User user = db.getUser(result.userEmail);
+                        if (user != null) {
+                            sessionCache.putUser(user);
+                        }
+                    } catch (RuntimeException e) {
+                        // The dashboard loads the user itself; startup must not stall.
+                        Log.e(TAG, "Could not preload user", e);
+                    }
+                    logStage("user_preload", start);
+                }
+                // The shared helper stays open, so the screens reuse this connection.
+                await(warm);
+                recordSinceStart("ready");
+
+                awaitingDashboard.set(result.loggedIn);
+                final Session ready = result;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onReady(ready);
+                    }
+                });
+                // Not needed to show the first screen, so it starts after onReady is posted.
+                // Sends anything left in the outbox by a previous run.
+                AlertDispatcher.getInstance(context);
+                CompactionJob.scheduleIfDue(context);
+                executor.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Ends the cold-start measurement once the dashboard shows the signed-in user.
+     * Only the first call after startup routed to the dashboard is recorded.
+     */
+    public static void reportDashboardInteractive(Activity activity) {
+        if (!awaitingDashboard.compareAndSet(true, false)) {
+            return;
+        }
+        recordSinceStart("dashboard_interactive");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            Log.i(TAG, "dashboard_interactive +" + (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime())
+                    + " ms since process start");
+        }
+        activity.reportFullyDrawn();
+    }
+
+    // Logs the time since start() and records it as the "startup.<stage>" histogram.
+    private static void recordSinceStart(String stage) {
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startedAtNanos;
+        long elapsedMillis = elapsedNanos / 1000000;
+        Metrics.recordNanos("startup." + stage, elapsedNanos);
+        Log.i(TAG, stage + " +" + elapsedMillis + " ms");
+    }
+
+    private static void logStage(String stage, long startMillis) {
+        Log.i(TAG, stage + " took " + (SystemClock.elapsedRealtime() - startMillis) + " ms");
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Startup task failed", e.getCause());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.securityalert;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads alert photos into list rows as thumbnails sized to the target ImageView.
+ *
+ * Lookups go memory cache -> disk cache -> decode. Decoding subsamples the full
+ * camera JPEG on a background thread and the result is written to a small disk
+ * cache of pre-scaled JPEGs, so a photo is only decoded at full size once.
+ * All public methods must be called on the main thread.
+ */
+public class ThumbnailLoader {
+
+    private static final String TAG = "ThumbnailLoader";
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final int DISK_CACHE_QUALITY = 85;
+    private static final int DECODE_THREADS = 2;
+
+    private static ThumbnailLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskCacheDir;
+    private final int fallbackWidth;
+    private final ExecutorService decoder = Executors.newFixedThreadPool(DECODE_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Request in flight per view, so a recycled row can drop work it no longer needs.
+    private final Map<ImageView, Future<?>> pending = new WeakHashMap<>();
+    private final Object diskLock = new Object();
+
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ThumbnailLoader(Context context) {
+        // An eighth of the heap, measured in bytes of decoded pixels.
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        fallbackWidth = context.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    /** Shows a thumbnail of {@code photoPath} in {@code target}, replacing any earlier request for it. */
+    public void load(String photoPath, final ImageView target) {
+        cancel(target);
+
+        int[] size = targetSize(target);
+        final String key = photoPath + "@" + size[0] + "x" + size[1];
+        target.setTag(key);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+
+        target.setImageBitmap(null);
+        final File source = new File(photoPath);
+        final int width = size[0];
+        final int height = size[1];
+        Future<?> future = decoder.submit(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = loadInBackground(source, key, width, height);
+                if (bitmap == null || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        memoryCache.put(key, bitmap);
+                        // The view may have been rebound to another alert meanwhile.
+                        if (key.equals(target.getTag())) {
+                            pending.remove(target);
+                            target.setImageBitmap(bitmap);
+                        }
+                    }
+                });
+            }
+        });
+        pending.put(target, future);
+    }
+
+    /** Drops the request for {@code target}, if any. Call when its ViewHolder is recycled. */
+    public void cancel(ImageView target) {
+        Future<?> future = pending.remove(target);
+        if (future != null) {
+            future.cancel(true);
+        }
+        target.setTag(null);
+    }
+
+    private int[] targetSize(ImageView target) {
+        int width = target.getWidth();
+        int height = target.getHeight();
+        ViewGroup.LayoutParams params = target.getLayoutParams();
+        if (width <= 0) {
+            width = params != null && params.width > 0 ? params.width : fallbackWidth;
+        }
+        if (height <= 0) {
+            height = params != null && params.height > 0 ? params.height : width;
+        }
+        return new int[]{width, height};
+    }
+
+    private Bitmap loadInBackground(File source, String key, int width, int height) {
+        File cacheFile = new File(diskCacheDir, diskKey(key, source.lastModified()));
+        if (cacheFile.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(cacheFile.getAbsolutePath());
+            if (bitmap != null) {
+                cacheFile.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+
+        // Prefer the list-sized copy PhotoIngestor writes after capture.
+        File thumbnail = new File(PhotoIngestor.thumbnailPathFor(source.getAbsolutePath()));
+        File decodeFrom = thumbnail.isFile() ? thumbnail : source;
+        Bitmap bitmap = decodeSampled(decodeFrom.getAbsolutePath(), width, height);
+        if (bitmap != null && !Thread.currentThread().isInterrupted()) {
+            writeToDisk(cacheFile, bitmap);
+        }
+        return bitmap;
+    }
+
+    static Bitmap decodeSampled(String path, int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = ImageSizing.calculateInSampleSize(
+                options.outWidth, options.outHeight, reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    private void writeToDisk(File cacheFile, Bitmap bitmap) {
+        synchronized (diskLock) {
+            if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) {
+                return;
+            }
+            File tmp = new File(diskCacheDir, cacheFile.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_QUALITY, out);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not cache thumbnail", e);
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(cacheFile)) {
+                tmp.delete();
+                return;
+            }
+            trimDiskCache();
+        }
+    }
+
+    // Least recently used first: reads bump lastModified, so delete the oldest files.
+    private void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (total <= DISK_CACHE_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    // Keyed on the source's mtime too, so an edited photo never shows a stale thumbnail.
+    private static String diskKey(String key, long sourceModified) {
+        String raw = key + "#" + sourceModified;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(raw.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2 + 4);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.append(".jpg").toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(raw.hashCode()) + ".jpg";
+        }
+    }
+}
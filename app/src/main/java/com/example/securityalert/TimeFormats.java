@@ -0,0 +1,68 @@
+package com.example.securityalert;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Shared date formatting. SimpleDateFormat is expensive to build and not
+ * thread-safe, so each thread keeps one instance per pattern instead of
+ * allocating a new one per call.
+ */
+final class TimeFormats {
+
+    static final String DISPLAY_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    static final String FILE_PATTERN = "yyyyMMdd_HHmmss";
+
+    private static final ThreadLocal<SimpleDateFormat> DISPLAY = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DISPLAY_PATTERN, Locale.getDefault());
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> FILE = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(FILE_PATTERN, Locale.US);
+        }
+    };
+
+    // Pre-v5 rows were written with the device locale, which may not use ASCII digits.
+    private static final ThreadLocal<SimpleDateFormat> PARSE_US = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DISPLAY_PATTERN, Locale.US);
+        }
+    };
+
+    private TimeFormats() {
+    }
+
+    /** Local "yyyy-MM-dd HH:mm:ss" for showing an alert's time. */
+    static String formatDisplay(long epochMillis) {
+        return DISPLAY.get().format(new Date(epochMillis));
+    }
+
+    /** Compact stamp for file names; always ASCII digits. */
+    static String formatFileStamp(long epochMillis) {
+        return FILE.get().format(new Date(epochMillis));
+    }
+
+    /** Epoch millis for text written with {@link #DISPLAY_PATTERN}, or null if it does not parse. */
+    static Long parseDisplay(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return DISPLAY.get().parse(text).getTime();
+        } catch (ParseException e) {
+            try {
+                return PARSE_US.get().parse(text).getTime();
+            } catch (ParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
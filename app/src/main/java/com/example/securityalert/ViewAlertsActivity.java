@@ -1,19 +1,72 @@
 package com.example.securityalert;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ViewAlertsActivity extends AppCompatActivity {
 
+    // Start fetching the next page when this many rows are left below the screen.
+    private static final int PREFETCH_DISTANCE = 10;
+    // Writes arriving closer together than this are folded into one refresh.
+    private static final long REFRESH_DEBOUNCE_MS = 250;
+    // A search runs once typing pauses for this long, not on every keystroke.
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
     private RecyclerView alertsRecyclerView;
     private Button backButton;
+    private EditText searchInput;
     private AlertsAdapter adapter;
-    private DatabaseHelper db;
+    private AlertPager pager;
+    private AlertSearchPager searchPager;
+    // Latest feed snapshot, shown again when the search box is cleared.
+    private List<Alert> feedAlerts = new ArrayList<>();
+    private DataRepository repository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            pager.refresh();
+            searchPager.refresh();
+        }
+    };
+
+    private final Runnable searchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            searchPager.search(searchInput.getText().toString());
+            if (!searchPager.isActive()) {
+                adapter.submitAlerts(feedAlerts);
+            }
+        }
+    };
+
+    // Called on whichever thread wrote to the Alerts table.
+    private final DatabaseHelper.AlertsObserver alertsObserver = new DatabaseHelper.AlertsObserver() {
+        @Override
+        public void onAlertsChanged() {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mainHandler.removeCallbacks(refreshRunnable);
+                    mainHandler.postDelayed(refreshRunnable, REFRESH_DEBOUNCE_MS);
+                }
+            });
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -22,12 +75,66 @@ public class ViewAlertsActivity extends AppCompatActivity {
 
         alertsRecyclerView = findViewById(R.id.alertsRecyclerView);
         backButton = findViewById(R.id.backButton);
+        searchInput = findViewById(R.id.searchInput);
+
+        repository = new DataRepository(this);
+        String userEmail = SessionCache.getInstance(this).getUserEmail();
+
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        alertsRecyclerView.setLayoutManager(layoutManager);
+
+        adapter = new AlertsAdapter(this, new ArrayList<Alert>());
+        alertsRecyclerView.setAdapter(adapter);
+
+        pager = new AlertPager(repository, userEmail, new AlertPager.Listener() {
+            @Override
+            public void onAlertsUpdated(List<Alert> alerts) {
+                feedAlerts = alerts;
+                if (!searchPager.isActive()) {
+                    adapter.submitAlerts(alerts);
+                }
+                markRead(alerts);
+            }
+        });
 
-        db = new DatabaseHelper(this);
+        searchPager = new AlertSearchPager(repository, userEmail, new AlertPager.Listener() {
+            @Override
+            public void onAlertsUpdated(List<Alert> alerts) {
+                if (searchPager.isActive()) {
+                    adapter.submitAlerts(alerts);
+                }
+            }
+        });
 
-        alertsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
 
-        loadAlerts();
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mainHandler.removeCallbacks(searchRunnable);
+                mainHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
+
+        alertsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    if (searchPager.isActive()) {
+                        searchPager.loadNextPage();
+                    } else {
+                        pager.loadNextPage();
+                    }
+                }
+            }
+        });
 
         backButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -37,9 +144,41 @@ public class ViewAlertsActivity extends AppCompatActivity {
         });
     }
 
-    private void loadAlerts() {
-        List<Alert> alerts = db.getAllAlerts();
-        adapter = new AlertsAdapter(this, alerts);
-        alertsRecyclerView.setAdapter(adapter);
+    // Everything the feed has loaded counts as seen for the dashboard's unread totals.
+    private void markRead(List<Alert> alerts) {
+        long[] unread = new long[alerts.size()];
+        int count = 0;
+        for (Alert alert : alerts) {
+            if (!alert.isRead) {
+                unread[count++] = alert.id;
+            }
+        }
+        if (count > 0) {
+            repository.markAlertsRead(Arrays.copyOf(unread, count));
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        DatabaseHelper.registerAlertsObserver(alertsObserver);
+        // Pick up anything written while the feed was in the background.
+        pager.refresh();
+        searchPager.refresh();
+    }
+
+    @Override
+    protected void onStop() {
+        DatabaseHelper.unregisterAlertsObserver(alertsObserver);
+        mainHandler.removeCallbacksAndMessages(null);
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        pager.close();
+        searchPager.close();
+        repository.close();
+        super.onDestroy();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,328 @@
+package com.example.securityalert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link AlertDispatcher} and {@link HttpAlertTransport} against a local
+ * in-process HTTP server and an in-memory outbox, so batching, retry and
+ * throughput can be checked offline.
+ */
+public class AlertDispatcherTest {
+
+    private static final long NOW = 1700000000000L;
+    private static final int BATCH_SIZE = 50;
+
+    private LocalHttpServer server;
+    private InMemoryStore store;
+    private AlertDispatcher dispatcher;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LocalHttpServer();
+        store = new InMemoryStore();
+        dispatcher = new AlertDispatcher(store, new HttpAlertTransport(server.url()), BATCH_SIZE, new Random(42));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void drain_deliversEveryAlertInBatches() {
+        List<String> keys = store.add(120, NOW);
+
+        assertEquals(120, dispatcher.drain(NOW));
+
+        assertEquals(3, server.bodies.size());
+        String allBodies = String.join("\n", server.bodies);
+        for (String key : keys) {
+            assertTrue(allBodies.contains("\"idempotencyKey\":\"" + key + "\""));
+        }
+        assertEquals(120, store.count(OutboxEntry.STATE_DELIVERED));
+    }
+
+    @Test
+    public void serverError_retriesAfterBackoff() {
+        store.add(10, NOW);
+        server.respondWith(503);
+
+        assertEquals(0, dispatcher.drain(NOW));
+        for (InMemoryStore.Row row : store.rows.values()) {
+            assertEquals(OutboxEntry.STATE_PENDING, row.state);
+            assertEquals(1, row.attempts);
+            assertTrue(row.nextAttemptAt >= NOW + AlertDispatcher.BASE_BACKOFF_MS);
+            assertTrue(row.nextAttemptAt <= NOW + AlertDispatcher.BASE_BACKOFF_MS * 3 / 2);
+        }
+
+        // Nothing is due until the backoff has passed.
+        assertEquals(0, dispatcher.drain(NOW + 1));
+        assertEquals(1, server.bodies.size());
+
+        assertEquals(10, dispatcher.drain(NOW + AlertDispatcher.BASE_BACKOFF_MS * 2));
+        assertEquals(10, store.count(OutboxEntry.STATE_DELIVERED));
+    }
+
+    @Test
+    public void clientError_marksAlertsFailedWithoutRetry() {
+        store.add(5, NOW);
+        server.respondWith(400);
+
+        assertEquals(0, dispatcher.drain(NOW));
+        assertEquals(5, store.count(OutboxEntry.STATE_FAILED));
+        assertEquals(Long.MAX_VALUE, store.nextAttemptAt());
+    }
+
+    @Test
+    public void unreachableServer_keepsAlertsPending() throws IOException {
+        store.add(5, NOW);
+        server.close();
+
+        assertEquals(0, dispatcher.drain(NOW));
+        assertEquals(5, store.count(OutboxEntry.STATE_PENDING));
+        for (InMemoryStore.Row row : store.rows.values()) {
+            assertEquals(1, row.attempts);
+            assertNotNull(row.lastError);
+        }
+    }
+
+    @Test
+    public void backoff_doublesAndIsCapped() {
+        assertEquals(2000, AlertDispatcher.backoffMillis(1, 0));
+        assertEquals(4000, AlertDispatcher.backoffMillis(2, 0));
+        assertEquals(8000, AlertDispatcher.backoffMillis(3, 0));
+        assertEquals(AlertDispatcher.MAX_BACKOFF_MS, AlertDispatcher.backoffMillis(30, 0));
+        assertTrue(AlertDispatcher.backoffMillis(1, 0.99) < 3000);
+    }
+
+    @Test
+    public void tenThousandAlerts_goOutInFullBatches() {
+        store.add(10000, NOW);
+
+        assertEquals(10000, dispatcher.drain(NOW));
+        assertEquals(10000 / BATCH_SIZE, server.bodies.size());
+        for (String body : server.bodies) {
+            assertEquals(BATCH_SIZE, body.split("\"idempotencyKey\":", -1).length - 1);
+        }
+        assertEquals(10000, store.count(OutboxEntry.STATE_DELIVERED));
+    }
+
+    /** Outbox rows in memory, following the same revision rule as the database. */
+    private static class InMemoryStore implements AlertDispatcher.Store {
+
+        static class Row {
+            Alert alert;
+            String key;
+            int revision;
+            int state = OutboxEntry.STATE_PENDING;
+            int attempts;
+            long nextAttemptAt;
+            String lastError;
+        }
+
+        final Map<Long, Row> rows = new LinkedHashMap<>();
+
+        List<String> add(int count, long nowMillis) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                long id = rows.size() + 1;
+                Row row = new Row();
+                row.alert = new Alert((int) id, "a@b.com", "SOS \"" + id + "\"", "1.5, 2.5", "2024-01-01 00:00:00",
+                        null, "Family");
+                row.alert.latitude = 1.5;
+                row.alert.longitude = 2.5;
+                row.alert.createdAt = nowMillis;
+                row.key = "key-" + id;
+                row.nextAttemptAt = nowMillis;
+                rows.put(id, row);
+                keys.add(row.key);
+            }
+            return keys;
+        }
+
+        int count(int state) {
+            int count = 0;
+            for (Row row : rows.values()) {
+                if (row.state == state) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public List<OutboxEntry> loadDue(long nowMillis, int limit) {
+            List<Map.Entry<Long, Row>> due = new ArrayList<>();
+            for (Map.Entry<Long, Row> entry : rows.entrySet()) {
+                Row row = entry.getValue();
+                if (row.state == OutboxEntry.STATE_PENDING && row.nextAttemptAt <= nowMillis) {
+                    due.add(entry);
+                }
+            }
+            Collections.sort(due, new Comparator<Map.Entry<Long, Row>>() {
+                @Override
+                public int compare(Map.Entry<Long, Row> a, Map.Entry<Long, Row> b) {
+                    return Long.compare(a.getValue().nextAttemptAt, b.getValue().nextAttemptAt);
+                }
+            });
+            List<OutboxEntry> batch = new ArrayList<>();
+            for (Map.Entry<Long, Row> entry : due.subList(0, Math.min(limit, due.size()))) {
+                Row row = entry.getValue();
+                batch.add(new OutboxEntry(entry.getKey(), row.alert, row.key, row.revision, row.attempts));
+            }
+            return batch;
+        }
+
+        @Override
+        public void saveResults(List<OutboxEntry> entries) {
+            for (OutboxEntry entry : entries) {
+                Row row = rows.get(entry.outboxId);
+                if (row.revision != entry.revision) {
+                    continue;
+                }
+                row.state = entry.state;
+                row.attempts = entry.attempts;
+                row.nextAttemptAt = entry.nextAttemptAt;
+                row.lastError = entry.lastError;
+            }
+        }
+
+        @Override
+        public long nextAttemptAt() {
+            long next = Long.MAX_VALUE;
+            for (Row row : rows.values()) {
+                if (row.state == OutboxEntry.STATE_PENDING) {
+                    next = Math.min(next, row.nextAttemptAt);
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Minimal HTTP/1.1 server on a loopback port. Records each request body and
+     * answers with queued status codes, then 200. Connections are kept alive.
+     */
+    private static class LocalHttpServer {
+
+        final List<String> bodies = new CopyOnWriteArrayList<>();
+        private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+        private final ServerSocket socket;
+        private final ExecutorService workers = Executors.newCachedThreadPool();
+
+        LocalHttpServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    acceptLoop();
+                }
+            });
+        }
+
+        URL url() throws IOException {
+            return new URL("http://127.0.0.1:" + socket.getLocalPort() + "/alerts");
+        }
+
+        void respondWith(int status) {
+            statuses.add(status);
+        }
+
+        void close() throws IOException {
+            socket.close();
+            workers.shutdownNow();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    final Socket client = socket.accept();
+                    workers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(client);
+                        }
+                    });
+                } catch (IOException | RejectedExecutionException e) {
+                    // Closed while accepting.
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (Socket connection = client) {
+                InputStream in = new BufferedInputStream(connection.getInputStream());
+                OutputStream out = connection.getOutputStream();
+                String requestLine;
+                while ((requestLine = readLine(in)) != null && !requestLine.isEmpty()) {
+                    int contentLength = 0;
+                    String header;
+                    while ((header = readLine(in)) != null && !header.isEmpty()) {
+                        if (header.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(header.substring(15).trim());
+                        }
+                    }
+                    byte[] body = new byte[contentLength];
+                    int read = 0;
+                    while (read < contentLength) {
+                        int n = in.read(body, read, contentLength - read);
+                        if (n < 0) {
+                            return;
+                        }
+                        read += n;
+                    }
+                    bodies.add(new String(body, StandardCharsets.UTF_8));
+
+                    Integer status = statuses.poll();
+                    int code = status != null ? status : 200;
+                    out.write(("HTTP/1.1 " + code + " Status\r\nContent-Length: 0\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away.
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    String text = line.toString("US-ASCII");
+                    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+                }
+                line.write(c);
+            }
+            return line.size() > 0 ? line.toString("US-ASCII") : null;
+        }
+    }
+}
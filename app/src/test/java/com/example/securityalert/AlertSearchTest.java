@@ -0,0 +1,68 @@
+package com.example.securityalert;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/** Query building and scoring for the alert full-text search. */
+public class AlertSearchTest {
+
+    private static final int COLUMNS = 4;
+    private static final int SENDER = 0;
+    private static final int MESSAGE = 1;
+
+    @Test
+    public void toMatchQuery_makesEveryWordAPrefixTerm() {
+        assertEquals("asha* camp*", AlertSearch.toMatchQuery("  Asha   camp "));
+        assertEquals("asha* campus* edu*", AlertSearch.toMatchQuery("asha@campus.edu"));
+        assertEquals("gate* 3*", AlertSearch.toMatchQuery("gate #3"));
+    }
+
+    @Test
+    public void toMatchQuery_neutralizesQuerySyntax() {
+        assertEquals("a* or* b*", AlertSearch.toMatchQuery("a OR b"));
+        assertEquals("near* x*", AlertSearch.toMatchQuery("\"NEAR\" -x*"));
+        assertNull(AlertSearch.toMatchQuery(" *\"()- "));
+        assertNull(AlertSearch.toMatchQuery(null));
+    }
+
+    @Test
+    public void score_weightsSenderAboveMessageAndRareTermsAboveCommonOnes() {
+        double inSender = AlertSearch.score(matchinfo(100, new int[][]{hit(SENDER, 1, 10)}));
+        double inMessage = AlertSearch.score(matchinfo(100, new int[][]{hit(MESSAGE, 1, 10)}));
+        double commonInMessage = AlertSearch.score(matchinfo(100, new int[][]{hit(MESSAGE, 1, 90)}));
+
+        assertTrue(inSender > inMessage);
+        assertTrue(inMessage > commonInMessage);
+        assertEquals(0, AlertSearch.score(matchinfo(100, new int[][]{hit(MESSAGE, 0, 10)})), 0);
+    }
+
+    @Test
+    public void rank_ordersByScoreAndKeepsNewestFirstOnTies() {
+        long[] ids = {50, 40, 30, 20};
+        double[] scores = {1.0, 3.0, 1.0, 2.0};
+
+        assertArrayEquals(new long[]{40, 20, 50, 30}, AlertSearch.rank(ids, scores));
+    }
+
+    // One phrase; {column, hits in this row, rows with hits}.
+    private static int[] hit(int column, int hitsInRow, int rowsWithHits) {
+        return new int[]{column, hitsInRow, rowsWithHits};
+    }
+
+    // Builds a matchinfo 'pcnx' blob as SQLite returns it, in native byte order.
+    private static byte[] matchinfo(int rows, int[][] phrases) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (3 + 3 * phrases.length * COLUMNS)).order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases.length).putInt(COLUMNS).putInt(rows);
+        for (int[] phrase : phrases) {
+            for (int c = 0; c < COLUMNS; c++) {
+                boolean hit = c == phrase[0];
+                buffer.putInt(hit ? phrase[1] : 0).putInt(hit ? phrase[1] : 0).putInt(hit ? phrase[2] : 0);
+            }
+        }
+        return buffer.array();
+    }
+}
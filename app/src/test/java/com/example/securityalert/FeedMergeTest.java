@@ -0,0 +1,143 @@
+package com.example.securityalert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FeedMergeTest {
+
+    @Test
+    public void merge_matchesSortingEveryGroup() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int groupCount = 1 + random.nextInt(12);
+            FakeSource source = new FakeSource(groupCount);
+            for (long id = 1; id <= 300; id++) {
+                if (random.nextInt(4) > 0) {
+                    source.add(random.nextInt(groupCount), id);
+                }
+            }
+            long fromId = random.nextInt(100);
+            long beforeId = random.nextBoolean() ? Long.MAX_VALUE : 50 + random.nextInt(260);
+            int limit = 1 + random.nextInt(80);
+
+            long[] merged = source.merge(fromId, beforeId, limit);
+
+            assertArrayEquals("round " + round, source.expected(fromId, beforeId, limit), merged);
+        }
+    }
+
+    @Test
+    public void hundredsOfGroups_readOnlyTheGroupsOnThePage() {
+        int groupCount = 300;
+        FakeSource source = new FakeSource(groupCount);
+        for (long id = 1; id <= 100000; id++) {
+            source.add((int) (id % groupCount), id);
+        }
+
+        long[] page = source.merge(50000, 90000, 30);
+
+        assertArrayEquals(source.expected(50000, 90000, 30), page);
+        // Every id comes from a different group: at most one read each, never one per group.
+        assertTrue("reads " + source.reads, source.reads < 30);
+        assertTrue("read " + source.idsRead, source.idsRead <= 30 * FeedMerge.MIN_CHUNK);
+    }
+
+    @Test
+    public void oneBusyGroup_isReadInGrowingChunks() {
+        int groupCount = 200;
+        FakeSource source = new FakeSource(groupCount);
+        for (long id = 1; id <= 5000; id++) {
+            source.add(id % 100 == 0 ? (int) (id / 100) : 0, id);
+        }
+
+        long[] page = source.merge(0, Long.MAX_VALUE, 100);
+
+        assertArrayEquals(source.expected(0, Long.MAX_VALUE, 100), page);
+        // 4, 8, 16, 32, then the rest of the page, plus the odd quiet group.
+        assertTrue("reads " + source.reads, source.reads <= 8);
+        assertTrue("read " + source.idsRead, source.idsRead <= 100 + 2 * FeedMerge.MIN_CHUNK);
+    }
+
+    @Test
+    public void noGroups_returnsNothing() {
+        assertEquals(0, new FakeSource(0).merge(0, Long.MAX_VALUE, 30).length);
+    }
+
+    // Each group's ids in ascending order, served newest first like idx_alerts_group.
+    private static class FakeSource implements FeedMerge.Source {
+        final List<List<Long>> groups = new ArrayList<>();
+        int reads;
+        long idsRead;
+
+        FakeSource(int groupCount) {
+            for (int i = 0; i < groupCount; i++) {
+                groups.add(new ArrayList<Long>());
+            }
+        }
+
+        void add(int group, long id) {
+            groups.get(group).add(id);
+        }
+
+        // Looks up every group's newest id in range, as SQL_GET_VIEWER_GROUP_HEADS
+        // does in one query, then merges.
+        long[] merge(long fromId, long beforeId, int limit) {
+            List<Long> groupIds = new ArrayList<>();
+            List<Long> newestIds = new ArrayList<>();
+            for (int group = 0; group < groups.size(); group++) {
+                long[] newest = newest(group, fromId, beforeId, 1);
+                if (newest.length > 0) {
+                    groupIds.add((long) group);
+                    newestIds.add(newest[0]);
+                }
+            }
+            return FeedMerge.newestIds(toArray(groupIds), toArray(newestIds), fromId, beforeId, limit, this);
+        }
+
+        @Override
+        public long[] read(long groupId, long fromId, long beforeId, int limit) {
+            reads++;
+            long[] ids = newest((int) groupId, fromId, beforeId, limit);
+            idsRead += ids.length;
+            return ids;
+        }
+
+        private long[] newest(int group, long fromId, long beforeId, int limit) {
+            List<Long> ids = groups.get(group);
+            List<Long> result = new ArrayList<>();
+            for (int i = ids.size() - 1; i >= 0 && result.size() < limit; i--) {
+                if (ids.get(i) >= fromId && ids.get(i) < beforeId) {
+                    result.add(ids.get(i));
+                }
+            }
+            return toArray(result);
+        }
+
+        long[] expected(long fromId, long beforeId, int limit) {
+            List<Long> all = new ArrayList<>();
+            for (List<Long> ids : groups) {
+                for (long id : ids) {
+                    if (id >= fromId && id < beforeId) {
+                        all.add(id);
+                    }
+                }
+            }
+            Collections.sort(all, Collections.<Long>reverseOrder());
+            return toArray(all.subList(0, Math.min(limit, all.size())));
+        }
+
+        private static long[] toArray(List<Long> list) {
+            long[] array = new long[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.securityalert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ImageSizingTest {
+
+    private static final PhotoIngestor.Config CONFIG = PhotoIngestor.Config.DEFAULT;
+
+    @Test
+    public void cameraPhotos_endAtTheConfiguredEdge() {
+        int[][] sizes = {{4032, 3024}, {3024, 4032}, {8000, 6000}, {4000, 1000}, {1920, 1080}};
+        for (int[] size : sizes) {
+            int[] stored = ingestedSize(size[0], size[1]);
+            String label = size[0] + "x" + size[1];
+            assertEquals(label, CONFIG.maxEdgePx, Math.max(stored[0], stored[1]));
+            // Aspect ratio kept to within rounding.
+            assertEquals(label, (double) size[0] / size[1], (double) stored[0] / stored[1], 0.01);
+
+            int[] thumbnail = ImageSizing.fitWithin(stored[0], stored[1], CONFIG.thumbnailEdgePx);
+            assertEquals(label, CONFIG.thumbnailEdgePx, Math.max(thumbnail[0], thumbnail[1]));
+        }
+    }
+
+    @Test
+    public void subsampling_neverDecodesBelowTheConfiguredEdge() {
+        assertEquals(1, ImageSizing.calculateInSampleSize(4032, 3024, CONFIG.maxEdgePx, CONFIG.maxEdgePx));
+        assertEquals(2, ImageSizing.calculateInSampleSize(8000, 6000, CONFIG.maxEdgePx, CONFIG.maxEdgePx));
+        // Down to exactly the edge, never past it.
+        assertEquals(8, ImageSizing.calculateInSampleSize(12800, 12800, CONFIG.maxEdgePx, CONFIG.maxEdgePx));
+        // The short edge limits the subsample, so a panorama keeps its height.
+        int sample = ImageSizing.calculateInSampleSize(16000, 3400, CONFIG.maxEdgePx, CONFIG.maxEdgePx);
+        assertEquals(2, sample);
+        assertTrue(3400 / sample >= CONFIG.maxEdgePx);
+    }
+
+    @Test
+    public void smallPhotos_areNotUpscaled() {
+        assertArrayEquals(new int[]{800, 600}, ingestedSize(800, 600));
+        assertArrayEquals(new int[]{CONFIG.maxEdgePx, 900}, ingestedSize(CONFIG.maxEdgePx, 900));
+        assertArrayEquals(new int[]{300, 200}, ImageSizing.fitWithin(300, 200, CONFIG.thumbnailEdgePx));
+    }
+
+    @Test
+    public void quality_stepsDownUntilTheFileFits() {
+        // Shrinks by 5 KB per quality point: 85 is 425 KB, 75 is 375 KB.
+        RecordingEncoder encoder = new RecordingEncoder(5 * 1024);
+
+        byte[] encoded = ImageSizing.encodeWithin(encoder, CONFIG.quality, CONFIG.maxBytes);
+
+        assertEquals(Arrays.asList(85, 75), encoder.qualities);
+        assertTrue(encoded.length <= CONFIG.maxBytes);
+    }
+
+    @Test
+    public void quality_stopsAtTheMinimumEvenIfTooLarge() {
+        RecordingEncoder encoder = new RecordingEncoder(20 * 1024);
+
+        byte[] encoded = ImageSizing.encodeWithin(encoder, CONFIG.quality, CONFIG.maxBytes);
+
+        assertEquals(Arrays.asList(85, 75, 65, 55, 45), encoder.qualities);
+        assertTrue(45 - ImageSizing.QUALITY_STEP < ImageSizing.MIN_QUALITY);
+        assertEquals(45 * 20 * 1024, encoded.length);
+    }
+
+    @Test
+    public void quality_isKeptWhenTheFirstAttemptFits() {
+        RecordingEncoder encoder = new RecordingEncoder(1024);
+
+        ImageSizing.encodeWithin(encoder, CONFIG.quality, CONFIG.maxBytes);
+        // Thumbnails have no byte limit.
+        ImageSizing.encodeWithin(encoder, CONFIG.quality, Integer.MAX_VALUE);
+
+        assertEquals(Arrays.asList(85, 85), encoder.qualities);
+    }
+
+    // The size PhotoIngestor stores: subsampled while decoding, then scaled exactly.
+    private static int[] ingestedSize(int width, int height) {
+        int sample = ImageSizing.calculateInSampleSize(width, height, CONFIG.maxEdgePx, CONFIG.maxEdgePx);
+        return ImageSizing.fitWithin(width / sample, height / sample, CONFIG.maxEdgePx);
+    }
+
+    // Output size proportional to quality, as JPEG roughly is.
+    private static class RecordingEncoder implements ImageSizing.Encoder {
+        final List<Integer> qualities = new ArrayList<>();
+        private final int bytesPerQuality;
+
+        RecordingEncoder(int bytesPerQuality) {
+            this.bytesPerQuality = bytesPerQuality;
+        }
+
+        @Override
+        public byte[] encode(int quality) {
+            qualities.add(quality);
+            return new byte[quality * bytesPerQuality];
+        }
+    }
+}
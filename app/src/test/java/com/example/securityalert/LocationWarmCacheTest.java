@@ -0,0 +1,194 @@
+package com.example.securityalert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link LocationWarmCache} with a fake clock and a fake location source,
+ * so the deadline race can be checked without a device or GPS.
+ */
+public class LocationWarmCacheTest {
+
+    private static final long DEADLINE_MS = 8000;
+
+    private FakeClock clock;
+    private FakeLocationSource source;
+    private LocationWarmCache cache;
+    private List<LocationFix> delivered;
+    private LocationWarmCache.Callback recorder;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        source = new FakeLocationSource();
+        cache = new LocationWarmCache(source, clock);
+        delivered = new ArrayList<>();
+        recorder = new LocationWarmCache.Callback() {
+            @Override
+            public void onLocation(LocationFix fix) {
+                delivered.add(fix);
+            }
+        };
+    }
+
+    @Test
+    public void current_isReadyAfterBackgroundUpdate() {
+        assertNull(cache.current());
+        assertEquals(-1, cache.ageMillis());
+
+        cache.start();
+        LocationFix fix = new LocationFix(1, 2, 50f, clock.now);
+        source.emitUpdate(fix);
+        clock.advance(3000);
+
+        assertSame(fix, cache.current());
+        assertEquals(3000, cache.ageMillis());
+    }
+
+    @Test
+    public void acquire_freshFixBeforeDeadlineWins() {
+        cache.start();
+        source.emitUpdate(new LocationFix(1, 2, 500f, clock.now));
+
+        cache.acquire(DEADLINE_MS, recorder);
+        clock.advance(2000);
+        LocationFix fresh = new LocationFix(1.001, 2.001, 5f, clock.now);
+        source.emitFresh(fresh);
+        clock.advance(DEADLINE_MS);
+
+        assertEquals(1, delivered.size());
+        assertSame(fresh, delivered.get(0));
+        assertSame(fresh, cache.current());
+    }
+
+    @Test
+    public void acquire_fallsBackToWarmFixAtDeadline() {
+        cache.start();
+        LocationFix warm = new LocationFix(1, 2, 50f, clock.now);
+        source.emitUpdate(warm);
+
+        cache.acquire(DEADLINE_MS, recorder);
+        clock.advance(DEADLINE_MS - 1);
+        assertTrue(delivered.isEmpty());
+        clock.advance(1);
+
+        assertEquals(1, delivered.size());
+        assertSame(warm, delivered.get(0));
+
+        // A late fresh fix still refreshes the cache but is not delivered twice.
+        LocationFix late = new LocationFix(1.001, 2.001, 5f, clock.now);
+        source.emitFresh(late);
+        assertEquals(1, delivered.size());
+        assertSame(late, cache.current());
+    }
+
+    @Test
+    public void acquire_withNothingAvailableDeliversNull() {
+        cache.acquire(DEADLINE_MS, recorder);
+        clock.advance(DEADLINE_MS);
+
+        assertEquals(1, delivered.size());
+        assertNull(delivered.get(0));
+    }
+
+    @Test
+    public void lessAccurateUpdateDoesNotReplaceRecentPreciseFix() {
+        cache.start();
+        LocationFix precise = new LocationFix(1, 2, 5f, clock.now);
+        source.emitUpdate(precise);
+
+        clock.advance(10000);
+        source.emitUpdate(new LocationFix(1.01, 2.01, 500f, clock.now));
+        assertSame(precise, cache.current());
+
+        clock.advance(LocationWarmCache.SIGNIFICANTLY_NEWER_MS);
+        LocationFix newer = new LocationFix(1.02, 2.02, 500f, clock.now);
+        source.emitUpdate(newer);
+        assertSame(newer, cache.current());
+    }
+
+    private static class FakeClock implements Clock {
+        long now = 100000;
+        private final List<Long> dueTimes = new ArrayList<>();
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public long elapsedRealtime() {
+            return now;
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            dueTimes.add(now + delayMillis);
+            tasks.add(task);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            int index;
+            while ((index = tasks.indexOf(task)) >= 0) {
+                tasks.remove(index);
+                dueTimes.remove(index);
+            }
+        }
+
+        void advance(long millis) {
+            now += millis;
+            List<Runnable> due = new ArrayList<>();
+            Iterator<Long> times = dueTimes.iterator();
+            Iterator<Runnable> it = tasks.iterator();
+            while (times.hasNext()) {
+                long dueTime = times.next();
+                Runnable task = it.next();
+                if (dueTime <= now) {
+                    due.add(task);
+                    times.remove();
+                    it.remove();
+                }
+            }
+            for (Runnable task : due) {
+                task.run();
+            }
+        }
+    }
+
+    private static class FakeLocationSource implements LocationSource {
+        private Listener updates;
+        private final List<Listener> freshRequests = new ArrayList<>();
+
+        @Override
+        public void startUpdates(Listener listener) {
+            updates = listener;
+        }
+
+        @Override
+        public void stopUpdates() {
+            updates = null;
+        }
+
+        @Override
+        public void requestFresh(Listener listener) {
+            freshRequests.add(listener);
+        }
+
+        void emitUpdate(LocationFix fix) {
+            if (updates != null) {
+                updates.onFix(fix);
+            }
+        }
+
+        void emitFresh(LocationFix fix) {
+            List<Listener> waiting = new ArrayList<>(freshRequests);
+            freshRequests.clear();
+            for (Listener listener : waiting) {
+                listener.onFix(fix);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.securityalert;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses CSV and vCard input with an in-memory sink standing in for the
+ * UNIQUE (groupId, memberEmail) constraint.
+ */
+public class MemberImporterTest {
+
+    private final Set<String> members = new HashSet<>();
+    private final List<String> order = new ArrayList<>();
+    private final MemberImporter.Sink sink = new MemberImporter.Sink() {
+        @Override
+        public boolean add(String member) {
+            if (!members.add(member)) {
+                return false;
+            }
+            order.add(member);
+            return true;
+        }
+    };
+
+    @Test
+    public void csv_prefersEmailAndSkipsHeader() throws IOException {
+        MemberImporter.Result result = MemberImporter.read(new StringReader(
+                "﻿name,email,phone\n"
+                        + "Asha,  Asha@Example.COM ,+91 98765 43210\n"
+                        + "\"Ravi, Jr.\",,(022) 555-0199\n"
+                        + "\n"
+                        + "Nobody,not-an-email,12\n"), sink);
+
+        assertEquals(Arrays.asList("asha@example.com", "0225550199"), order);
+        assertEquals(2, result.added);
+        assertEquals(0, result.duplicates);
+        assertEquals(2, result.skipped);
+    }
+
+    @Test
+    public void csv_duplicatesAfterNormalizingAreCounted() throws IOException {
+        MemberImporter.Result result = MemberImporter.read(new StringReader(
+                "a@b.com\nA@B.com\n mailto:a@b.com\n+44 20 7946 0000\n0044 (20) 7946-0000\n"), sink);
+
+        assertEquals(Arrays.asList("a@b.com", "+442079460000"), order);
+        assertEquals(2, result.added);
+        assertEquals(3, result.duplicates);
+    }
+
+    @Test
+    public void vcard_takesFirstEmailElseFirstPhone() throws IOException {
+        MemberImporter.Result result = MemberImporter.read(new StringReader(
+                "BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Asha\r\nTEL;TYPE=CELL:+1 555 010 0001\r\n"
+                        + "item1.EMAIL;TYPE=INTERNET:Asha@Example.com\r\nEMAIL:other@example.com\r\nEND:VCARD\r\n"
+                        + "BEGIN:VCARD\r\nFN:Ravi\r\nTEL;VALUE=uri:tel:+1-555-010-0002\r\nEND:VCARD\r\n"
+                        + "BEGIN:VCARD\r\nFN:No contact\r\nEND:VCARD\r\n"), sink);
+
+        assertEquals(Arrays.asList("asha@example.com", "+15550100002"), order);
+        assertEquals(1, result.skipped);
+    }
+
+    @Test
+    public void normalize_rejectsMalformedContacts() {
+        assertEquals("x@y.org", MemberImporter.normalize(" X@Y.org "));
+        assertEquals("5550100", MemberImporter.normalize("555-0100"));
+        assertNull(MemberImporter.normalize("a@@b.com"));
+        assertNull(MemberImporter.normalize("a b@c.com"));
+        assertNull(MemberImporter.normalize("@b.com"));
+        assertNull(MemberImporter.normalize("555-CALL-NOW"));
+        assertNull(MemberImporter.normalize("+1234567890123456"));
+        assertNull(MemberImporter.normalize(""));
+    }
+
+    @Test
+    public void tenThousandMembers_areStreamedNotBuffered() throws IOException {
+        final int count = 10000;
+        // Generates rows on demand, so the test itself never holds the whole file either.
+        Reader roster = new Reader() {
+            private int row = -1;
+            private String pending = "";
+            private int offset;
+
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                if (offset == pending.length()) {
+                    if (++row > count) {
+                        return -1;
+                    }
+                    pending = row == 0 ? "name,email,phone\n"
+                            : "Member " + row + ",Member" + (row % (count / 2)) + "@Campus.edu,+1 555 " + (1000000 + row) + "\n";
+                    offset = 0;
+                }
+                int n = Math.min(len, pending.length() - offset);
+                pending.getChars(offset, offset + n, buffer, off);
+                offset += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        MemberImporter.Result result = MemberImporter.read(roster, sink);
+
+        assertEquals(count / 2, result.added);
+        assertEquals(count / 2, result.duplicates);
+        assertEquals(1, result.skipped);
+    }
+}
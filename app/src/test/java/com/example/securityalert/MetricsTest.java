@@ -0,0 +1,134 @@
+package com.example.securityalert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+        directory = Files.createTempDirectory("metrics").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.setEnabled(false);
+
+        long start = Metrics.start();
+        Metrics.record("test.disabled", start);
+        Metrics.increment("test.disabled.count");
+
+        assertEquals(Metrics.OFF, start);
+        assertFalse(Metrics.histogramSnapshots().containsKey("test.disabled"));
+        assertFalse(Metrics.counterValues().containsKey("test.disabled.count"));
+    }
+
+    @Test
+    public void buckets_stayWithinOneEighthOfTheValue() {
+        for (long micros = 0; micros < 5000000; micros += 1 + micros / 50) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            long upper = LatencyHistogram.upperBoundMicros(bucket);
+            assertTrue(micros + " -> " + upper, upper >= micros);
+            assertTrue(micros + " -> " + upper, upper - micros <= micros / LatencyHistogram.SUB_BUCKETS);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBoundMicros(bucket - 1) < micros);
+            }
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE / 1000));
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        for (int millis = 1; millis <= 1000; millis++) {
+            Metrics.recordNanos("test.latency", millis * 1000000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = Metrics.histogramSnapshots().get("test.latency");
+        assertEquals(1000, snapshot.count);
+        assertEquals(1000000000L, snapshot.maxNanos);
+        assertWithinEighth(500000000L, snapshot.percentileNanos(50));
+        assertWithinEighth(990000000L, snapshot.percentileNanos(99));
+        assertEquals(snapshot.maxNanos, snapshot.percentileNanos(100));
+    }
+
+    @Test
+    public void export_writesOnlyWhatChangedSinceTheLastExport() throws IOException {
+        MetricsExporter exporter = new MetricsExporter(directory);
+        for (int i = 0; i < 10; i++) {
+            Metrics.recordNanos("test.export", 2000000);
+        }
+        Metrics.increment("test.counter");
+
+        assertEquals(2, exporter.export(1000));
+        assertEquals(0, exporter.export(2000));
+
+        Metrics.recordNanos("test.export", 8000000);
+        assertEquals(1, exporter.export(3000));
+
+        List<String> lines = Files.readAllLines(new File(directory, MetricsExporter.FILE_NAME).toPath(),
+                StandardCharsets.UTF_8);
+        assertEquals(MetricsExporter.HEADER, lines.get(0));
+        assertTrue(lines.get(1).startsWith("1000,test.export,latency,10,2.000,"));
+        assertEquals("1000,test.counter,counter,1,,,,,", lines.get(2));
+        // The second interval holds the single 8 ms sample only.
+        assertTrue(lines.get(3).startsWith("3000,test.export,latency,1,8.000,"));
+        assertEquals(4, lines.size());
+    }
+
+    @Test
+    public void export_rotatesFilesAndKeepsABoundedNumber() throws IOException {
+        MetricsExporter exporter = new MetricsExporter(directory);
+        File current = new File(directory, MetricsExporter.FILE_NAME);
+        long time = 0;
+        int rotations = 0;
+        // One rotation more than there are files, so the oldest has been dropped once.
+        while (rotations <= MetricsExporter.MAX_FILES) {
+            for (int i = 0; i < 20; i++) {
+                Metrics.recordNanos("test.rotation." + i, 1000000);
+            }
+            long before = current.length();
+            exporter.export(++time);
+            if (current.length() < before) {
+                rotations++;
+            }
+        }
+
+        List<File> files = exporter.files();
+        assertEquals(MetricsExporter.MAX_FILES, files.size());
+        assertEquals(MetricsExporter.MAX_FILES, directory.listFiles().length);
+        for (File file : files) {
+            assertTrue(file.length() < MetricsExporter.MAX_FILE_BYTES + 4096);
+            assertEquals(MetricsExporter.HEADER, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).get(0));
+        }
+    }
+
+    private static void assertWithinEighth(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, actual >= expected && actual - expected <= expected / 8 + 1000);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.securityalert;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RetentionPolicyTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1700000000000L;
+
+    @Test
+    public void groupOverride_replacesDefaultAge() {
+        Map<String, Integer> groups = new HashMap<>();
+        groups.put("Campus", 30);
+        RetentionPolicy policy = new RetentionPolicy(365, groups);
+
+        assertEquals(NOW - 30 * DAY_MS, policy.cutoffFor("Campus", NOW));
+        assertEquals(NOW - 365 * DAY_MS, policy.cutoffFor("Family", NOW));
+        assertEquals(NOW - 365 * DAY_MS, policy.cutoffFor(null, NOW));
+        assertEquals(NOW - 30 * DAY_MS, policy.latestCutoff(NOW));
+    }
+
+    @Test
+    public void zeroDays_keepsForever() {
+        Map<String, Integer> groups = new HashMap<>();
+        groups.put("Security", 0);
+        RetentionPolicy policy = new RetentionPolicy(90, groups);
+
+        assertEquals(Long.MIN_VALUE, policy.cutoffFor("Security", NOW));
+        assertEquals(NOW - 90 * DAY_MS, policy.latestCutoff(NOW));
+
+        RetentionPolicy keepAll = new RetentionPolicy(0, Collections.<String, Integer>emptyMap());
+        assertEquals(Long.MIN_VALUE, keepAll.latestCutoff(NOW));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.securityalert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SosCoalescerTest {
+
+    private static final long WINDOW_MS = 60000;
+    private static final long REFRESH_MS = 10000;
+
+    private FakeClock clock;
+    private SosCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        coalescer = new SosCoalescer(clock, new SosCoalescer.Config(WINDOW_MS, REFRESH_MS, 3));
+    }
+
+    @Test
+    public void firstPress_sendsANewAlert() {
+        assertFalse(coalescer.inBurst());
+
+        SosCoalescer.Decision decision = coalescer.press();
+
+        assertTrue(decision.newAlert);
+        assertFalse(decision.refreshLocation);
+        assertFalse(decision.escalate);
+        assertEquals(1, decision.pressCount);
+        assertTrue(coalescer.inBurst());
+    }
+
+    @Test
+    public void rapidPresses_joinTheBurstWithoutRefreshing() {
+        coalescer.press();
+        clock.now += 500;
+
+        SosCoalescer.Decision second = coalescer.press();
+
+        assertFalse(second.newAlert);
+        assertFalse("The new alert's own location request is still running", second.refreshLocation);
+        assertEquals(2, second.pressCount);
+    }
+
+    @Test
+    public void laterPresses_refreshAtMostOncePerInterval() {
+        coalescer.press();
+        int refreshes = 0;
+        // A press every 2 s for 40 s, each within the window of the one before.
+        for (int i = 0; i < 20; i++) {
+            clock.now += 2000;
+            SosCoalescer.Decision decision = coalescer.press();
+            assertFalse(decision.newAlert);
+            if (decision.refreshLocation) {
+                refreshes++;
+            }
+        }
+        assertEquals(4, refreshes);
+    }
+
+    @Test
+    public void escalation_happensOncePerBurst() {
+        int escalations = 0;
+        for (int i = 0; i < 10; i++) {
+            SosCoalescer.Decision decision = coalescer.press();
+            if (decision.escalate) {
+                escalations++;
+                assertEquals(3, decision.pressCount);
+            }
+            clock.now += 1000;
+        }
+        assertEquals(1, escalations);
+    }
+
+    @Test
+    public void quietWindow_endsTheBurst() {
+        coalescer.press();
+        clock.now += WINDOW_MS - 1;
+        assertFalse(coalescer.press().newAlert);
+
+        // The window restarts with every press.
+        clock.now += WINDOW_MS - 1;
+        assertTrue(coalescer.inBurst());
+        clock.now += 1;
+        assertFalse(coalescer.inBurst());
+
+        SosCoalescer.Decision decision = coalescer.press();
+        assertTrue(decision.newAlert);
+        assertEquals(1, decision.pressCount);
+    }
+
+    @Test
+    public void reset_startsANewAlertOnTheNextPress() {
+        coalescer.press();
+        coalescer.press();
+
+        coalescer.reset();
+
+        assertFalse(coalescer.inBurst());
+        assertTrue(coalescer.press().newAlert);
+    }
+
+    @Test
+    public void restoredState_continuesTheBurst() {
+        coalescer.press();
+        clock.now += 1000;
+        coalescer.press();
+
+        SosCoalescer restored = new SosCoalescer(clock, new SosCoalescer.Config(WINDOW_MS, REFRESH_MS, 3));
+        restored.restoreState(coalescer.saveState());
+        clock.now += 1000;
+
+        assertTrue(restored.inBurst());
+        SosCoalescer.Decision third = restored.press();
+        assertFalse(third.newAlert);
+        assertTrue("Counted across the restore", third.escalate);
+        assertEquals(3, third.pressCount);
+    }
+
+    @Test
+    public void restoredState_expiresWithTheWindow() {
+        coalescer.press();
+        long[] state = coalescer.saveState();
+        clock.now += WINDOW_MS;
+
+        SosCoalescer restored = new SosCoalescer(clock, new SosCoalescer.Config(WINDOW_MS, REFRESH_MS, 3));
+        restored.restoreState(state);
+
+        assertFalse(restored.inBurst());
+        assertTrue(restored.press().newAlert);
+    }
+
+    // Only the time source is used; the coalescer schedules nothing.
+    private static class FakeClock implements Clock {
+        long now = 100000;
+
+        @Override
+        public long elapsedRealtime() {
+            return now;
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the alert feed: the whole history against the first page and a deep
+ * keyset page, which is what the feed actually loads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlertReadBenchmark {
+
+    // AlertPager.PAGE_SIZE; AlertPager itself needs Android.
+    static final int PAGE_SIZE = 30;
+    private static final List<String> GROUPS = Arrays.asList("Family", "Campus Friends", "Security");
+
+    @Param({"1000", "10000"})
+    public int alertCount;
+
+    private BenchmarkDatabase database;
+    private long middleId;
+
+    @Setup(Level.Trial)
+    public void fillDatabase() {
+        database = new BenchmarkDatabase();
+        Random random = new Random(42);
+        long createdAt = 1700000000000L;
+        for (int saved = 0; saved < alertCount; saved += GROUPS.size()) {
+            createdAt += random.nextInt(3600000);
+            Alert alert = new Alert(0, "user" + random.nextInt(50) + "@example.com", "SOS! Need help",
+                    String.format(Locale.US, "%.6f, %.6f",
+                            12.9 + random.nextDouble(), 77.5 + random.nextDouble()),
+                    TimeFormats.formatDisplay(createdAt), null, null);
+            alert.createdAt = createdAt;
+            database.helper.saveAlertToGroups(alert, GROUPS);
+        }
+        middleId = alertCount / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDatabase() {
+        database.delete();
+    }
+
+    @Benchmark
+    public List<Alert> getAllAlerts() {
+        return database.helper.getAllAlerts();
+    }
+
+    @Benchmark
+    public List<Alert> firstPage() {
+        return database.helper.getAlertsPage(Long.MAX_VALUE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Alert> deepPage() {
+        return database.helper.getAlertsPage(middleId, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving one SOS to every group: the batched saveAlertToGroups path against the
+ * old loop of saveAlert calls, which commits once per group. Each iteration starts
+ * from an empty database so the table size does not drift between runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlertWriteBenchmark {
+
+    @Param({"1", "5", "30"})
+    public int groupCount;
+
+    private List<String> groups;
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void createGroups() {
+        groups = new ArrayList<>();
+        for (int i = 0; i < groupCount; i++) {
+            groups.add("Group " + i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openDatabase() {
+        database = new BenchmarkDatabase();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteDatabase() {
+        database.delete();
+    }
+
+    @Benchmark
+    public long[] saveAlertToGroups() {
+        Alert alert = new Alert(0, "asha@example.com", "SOS! Need help", "12.971599, 77.594566",
+                "2024-05-01 21:14:03", null, null);
+        alert.createdAt = 1714598043000L;
+        return database.helper.saveAlertToGroups(alert, groups);
+    }
+
+    @Benchmark
+    public boolean saveAlertPerGroup() {
+        boolean saved = true;
+        for (String group : groups) {
+            saved &= database.helper.saveAlert("asha@example.com", "SOS! Need help", "12.971599, 77.594566",
+                    "2024-05-01 21:14:03", null, group);
+        }
+        return saved;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.securityalert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/** A DatabaseHelper on a throwaway file, so commits pay for real disk writes. */
+final class BenchmarkDatabase {
+
+    final DatabaseHelper helper;
+    private final File file;
+
+    BenchmarkDatabase() {
+        try {
+            file = File.createTempFile("benchmark", ".db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        file.delete();
+        helper = new DatabaseHelper(null, file.getPath());
+    }
+
+    void delete() {
+        helper.close();
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The membership feed for a viewer in a growing number of groups, out of 500
+ * groups that all receive alerts: first page, a deep page and a refresh window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeedReadBenchmark {
+
+    private static final String VIEWER = "viewer@example.com";
+    private static final int OWNERS = 50;
+    private static final int GROUPS_PER_OWNER = 10;
+    private static final int ALERT_COUNT = 20000;
+
+    @Param({"1", "30", "300"})
+    public int viewerGroups;
+
+    private BenchmarkDatabase database;
+    private long middleId;
+
+    @Setup(Level.Trial)
+    public void fillDatabase() {
+        database = new BenchmarkDatabase();
+        List<String> groupNames = new ArrayList<>();
+        for (int g = 0; g < GROUPS_PER_OWNER; g++) {
+            groupNames.add("Group " + g);
+        }
+        Random random = new Random(42);
+        for (int owner = 0; owner < OWNERS; owner++) {
+            for (int g = 0; g < GROUPS_PER_OWNER; g++) {
+                boolean member = owner * GROUPS_PER_OWNER + g < viewerGroups;
+                database.helper.addGroup(groupNames.get(g), owner(owner),
+                        member ? VIEWER : "member" + random.nextInt(1000) + "@example.com");
+            }
+        }
+        for (int saved = 0; saved < ALERT_COUNT; saved += GROUPS_PER_OWNER) {
+            String sender = owner(random.nextInt(OWNERS));
+            database.helper.saveAlertToGroups(
+                    new Alert(0, sender, "SOS! Need help", "Library", "now", null, null), groupNames);
+        }
+        middleId = ALERT_COUNT / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDatabase() {
+        database.delete();
+    }
+
+    @Benchmark
+    public List<Alert> firstPage() {
+        return database.helper.getFeedPage(VIEWER, Long.MAX_VALUE, AlertReadBenchmark.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Alert> deepPage() {
+        return database.helper.getFeedPage(VIEWER, middleId, AlertReadBenchmark.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Alert> refreshWindow() {
+        return database.helper.getFeedFrom(VIEWER, ALERT_COUNT - 200, 500);
+    }
+
+    private static String owner(int index) {
+        return "owner" + index + "@example.com";
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group lookups behind the SOS button and the Manage Groups screen, for one owner
+ * with {@link #GROUP_COUNT} groups. Other owners' groups are present too, so the
+ * queries have to use their indexes rather than read everything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupReadBenchmark {
+
+    static final int GROUP_COUNT = 20;
+    static final int OTHER_OWNERS = 50;
+    static final String OWNER = "owner@example.com";
+
+    @Param({"10", "500"})
+    public int membersPerGroup;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void fillDatabase() throws IOException {
+        database = new BenchmarkDatabase();
+        for (int owner = 0; owner <= OTHER_OWNERS; owner++) {
+            String ownerEmail = owner == 0 ? OWNER : "owner" + owner + "@example.com";
+            for (int group = 0; group < GROUP_COUNT; group++) {
+                StringBuilder csv = new StringBuilder();
+                for (int member = 0; member < membersPerGroup; member++) {
+                    csv.append("member").append(group).append('.').append(member).append("@example.com\n");
+                }
+                database.helper.importMembers("Group " + group, ownerEmail, new StringReader(csv.toString()));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDatabase() {
+        database.delete();
+    }
+
+    @Benchmark
+    public List<String> getUserGroups() {
+        return database.helper.getUserGroups(OWNER);
+    }
+
+    @Benchmark
+    public List<String> getGroupMembers() {
+        return database.helper.getGroupMembers("Group 7", OWNER);
+    }
+
+    @Benchmark
+    public List<GroupSummary> getGroupSummaries() {
+        return database.helper.getGroupSummaries(OWNER);
+    }
+}
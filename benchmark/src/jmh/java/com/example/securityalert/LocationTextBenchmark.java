@@ -0,0 +1,44 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The coordinate text work around opening an alert in maps: parsing the legacy
+ * "lat, lng" location text, and building the geo: query from stored coordinates
+ * the way AlertsAdapter.openLocationInMaps does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LocationTextBenchmark {
+
+    // Its own state, so only the parsing benchmark runs once per sample text.
+    @State(Scope.Benchmark)
+    public static class LocationText {
+        @Param({"12.971599, 77.594566", "Location: -33.868820, 151.209296", "Location error"})
+        public String location;
+    }
+
+    public double latitude = 12.971599;
+    public double longitude = 77.594566;
+
+    @Benchmark
+    public double[] parseCoordinates(LocationText text) {
+        return GeoGrid.parseCoordinates(text.location);
+    }
+
+    @Benchmark
+    public String buildMapsQuery() {
+        String lat = String.valueOf(latitude);
+        String lng = String.valueOf(longitude);
+        return "geo:0,0?q=" + lat + "," + lng + "(Emergency Alert Location)";
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/** What one timed section costs, with {@link Metrics} off and on. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    @Setup(Level.Trial)
+    public void enable() {
+        Metrics.setEnabled(enabled);
+    }
+
+    @TearDown(Level.Trial)
+    public void disable() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Benchmark
+    public long timedSection() {
+        long start = Metrics.start();
+        Metrics.record("benchmark.section", start);
+        return start;
+    }
+
+    @Benchmark
+    public void counter() {
+        Metrics.increment("benchmark.counter");
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The photo pipeline's downscaling steps on the JVM. Bitmap and BitmapFactory are
+ * Android-only, so ImageIO stands in for the codec. The sizing decisions are the
+ * app's own {@link ImageSizing}, and the steps match PhotoIngestor and
+ * ThumbnailLoader:
+ * <ul>
+ *   <li>read the bounds;</li>
+ *   <li>decode subsampled by inSampleSize;</li>
+ *   <li>filter-scale to the exact edge;</li>
+ *   <li>encode the thumbnail as JPEG.</li>
+ * </ul>
+ * Compare runs of this benchmark with each other, not with on-device numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThumbnailBenchmark {
+
+    // PhotoIngestor.Config.DEFAULT.
+    static final int MAX_EDGE_PX = 1600;
+    static final int THUMBNAIL_EDGE_PX = 720;
+    static final float QUALITY = 0.85f;
+
+    @Param({"1600x1200", "4032x3024"})
+    public String photoSize;
+
+    private byte[] jpeg;
+    private BufferedImage decoded;
+
+    @Setup(Level.Trial)
+    public void createPhoto() throws IOException {
+        String[] size = photoSize.split("x");
+        BufferedImage photo = syntheticPhoto(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        jpeg = encodeJpeg(photo, 0.92f);
+        decoded = decodeSampled(jpeg, MAX_EDGE_PX);
+    }
+
+    /** ThumbnailLoader.decodeSampled: bounds, then a subsampled decode. */
+    @Benchmark
+    public BufferedImage decodeSampled() throws IOException {
+        return decodeSampled(jpeg, MAX_EDGE_PX);
+    }
+
+    /** PhotoIngestor: scale the decoded photo to the thumbnail edge and encode it. */
+    @Benchmark
+    public byte[] scaleAndEncodeThumbnail() throws IOException {
+        int[] target = ImageSizing.fitWithin(decoded.getWidth(), decoded.getHeight(), THUMBNAIL_EDGE_PX);
+        return encodeJpeg(scale(decoded, target[0], target[1]), QUALITY);
+    }
+
+    static BufferedImage decodeSampled(byte[] jpeg, int maxEdge) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in, true, true);
+                int sample = ImageSizing.calculateInSampleSize(reader.getWidth(0), reader.getHeight(0),
+                        maxEdge, maxEdge);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sample, sample, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    // Smooth gradients plus seeded noise, so the JPEG is about as hard to code as a photo.
+    private static BufferedImage syntheticPhoto(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(24);
+                int r = (x * 255 / width + noise) & 0xff;
+                int g = (y * 255 / height + noise) & 0xff;
+                int b = ((x + y) * 127 / (width + height) + noise) & 0xff;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.securityalert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timestamp formatting and parsing through {@link TimeFormats}, with a formatter
+ * built per call (what the app did before TimeFormats) as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimestampBenchmark {
+
+    public long epochMillis = 1714598043000L;
+    public String displayText = "2024-05-01 21:14:03";
+
+    @Benchmark
+    public String formatDisplay() {
+        return TimeFormats.formatDisplay(epochMillis);
+    }
+
+    @Benchmark
+    public String formatFileStamp() {
+        return TimeFormats.formatFileStamp(epochMillis);
+    }
+
+    @Benchmark
+    public Long parseDisplay() {
+        return TimeFormats.parseDisplay(displayText);
+    }
+
+    @Benchmark
+    public String formatWithNewFormatter() {
+        return new SimpleDateFormat(TimeFormats.DISPLAY_PATTERN, Locale.getDefault()).format(new Date(epochMillis));
+    }
+}
@@ -0,0 +1,10 @@
+package android.content;
+
+/**
+ * Placeholder for Android's Context so DatabaseHelper compiles on the JVM. The
+ * benchmark shim never dereferences it; database names are plain file paths.
+ */
+public abstract class Context {
+
+    public abstract Context getApplicationContext();
+}
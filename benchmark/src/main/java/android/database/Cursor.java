@@ -0,0 +1,46 @@
+package android.database;
+
+import java.io.Closeable;
+
+/** The part of Android's Cursor interface the app's data layer reads through. */
+public interface Cursor extends Closeable {
+
+    int getCount();
+
+    int getPosition();
+
+    boolean moveToFirst();
+
+    boolean moveToNext();
+
+    boolean moveToPosition(int position);
+
+    boolean isAfterLast();
+
+    int getColumnCount();
+
+    String getColumnName(int columnIndex);
+
+    int getColumnIndex(String columnName);
+
+    int getColumnIndexOrThrow(String columnName) throws IllegalArgumentException;
+
+    boolean isNull(int columnIndex);
+
+    String getString(int columnIndex);
+
+    byte[] getBlob(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    float getFloat(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    boolean isClosed();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,29 @@
+package android.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/** The DatabaseUtils helpers the app uses. */
+public final class DatabaseUtils {
+
+    private DatabaseUtils() {
+    }
+
+    public static long longForQuery(SQLiteDatabase db, String query, String[] selectionArgs) {
+        SQLiteStatement statement = db.compileStatement(query);
+        try {
+            if (selectionArgs != null) {
+                for (int i = 0; i < selectionArgs.length; i++) {
+                    statement.bindString(i + 1, selectionArgs[i]);
+                }
+            }
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.close();
+        }
+    }
+
+    public static long queryNumEntries(SQLiteDatabase db, String table) {
+        return longForQuery(db, "SELECT COUNT(*) FROM " + table, null);
+    }
+}
@@ -0,0 +1,173 @@
+package android.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory cursor, filled row by row. Like a CursorWindow it holds a copy of the
+ * whole result, and its getters convert between storage classes the way
+ * SQLite does.
+ */
+public class MatrixCursor implements Cursor {
+
+    private final String[] columnNames;
+    private final List<Object[]> rows = new ArrayList<>();
+    private int position = -1;
+    private boolean closed;
+
+    public MatrixCursor(String[] columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    public void addRow(Object[] columnValues) {
+        if (columnValues.length != columnNames.length) {
+            throw new IllegalArgumentException("Expected " + columnNames.length + " values, got " +
+                    columnValues.length);
+        }
+        rows.add(columnValues);
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPosition(int newPosition) {
+        position = Math.max(-1, Math.min(newPosition, rows.size()));
+        return position >= 0 && position < rows.size();
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return rows.isEmpty() || position >= rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columnNames[columnIndex];
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return get(columnIndex) == null;
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return (long) getDouble(columnIndex);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        rows.clear();
+    }
+
+    private Object get(int columnIndex) {
+        if (position < 0 || position >= rows.size()) {
+            throw new IllegalStateException("Cursor is at position " + position + " of " + rows.size());
+        }
+        return rows.get(position)[columnIndex];
+    }
+}
@@ -0,0 +1,13 @@
+package android.database;
+
+/** JVM stand-in for Android's unchecked SQLException. */
+public class SQLException extends RuntimeException {
+
+    public SQLException(String message) {
+        super(message);
+    }
+
+    public SQLException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,427 @@
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JVM stand-in for Android's SQLiteDatabase on top of one sqlite-jdbc connection.
+ * It covers the part of the API DatabaseHelper uses, with Android's semantics:
+ * <ul>
+ *   <li>query arguments are bound as strings;</li>
+ *   <li>transactions nest, and commit only if every level was marked successful;</li>
+ *   <li>a transaction belongs to the thread that began it, and other threads wait;</li>
+ *   <li>an insert that wrote no row returns -1;</li>
+ *   <li>prepared statements are cached by SQL text, least recently used first out,
+ *       and a statement already in use is prepared again rather than shared.</li>
+ * </ul>
+ */
+public final class SQLiteDatabase {
+
+    public static final int CONFLICT_NONE = 0;
+    public static final int CONFLICT_ROLLBACK = 1;
+    public static final int CONFLICT_ABORT = 2;
+    public static final int CONFLICT_FAIL = 3;
+    public static final int CONFLICT_IGNORE = 4;
+    public static final int CONFLICT_REPLACE = 5;
+
+    public static final int MAX_SQL_CACHE_SIZE = 100;
+    // Android's default per-connection cache size.
+    private static final int DEFAULT_SQL_CACHE_SIZE = 25;
+
+    private static final String[] CONFLICT_CLAUSES = {
+            "", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE"};
+
+    /** Accepted for signature compatibility; custom cursors are not supported. */
+    public interface CursorFactory {
+    }
+
+    private final Connection connection;
+    private final String path;
+    private final ReentrantLock lock = new ReentrantLock();
+    // One entry per open transaction level: whether it was marked successful.
+    private final Deque<Boolean> transactions = new ArrayDeque<>();
+    private boolean transactionFailed;
+    private PreparedStatement lastInsertRowId;
+    private boolean writeAheadLogging;
+    private int maxSqlCacheSize = DEFAULT_SQL_CACHE_SIZE;
+    // Guarded by lock. Access-ordered, so the first entry is the least recently used.
+    private final LinkedHashMap<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<PreparedStatement> statementsInUse =
+            Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+
+    private SQLiteDatabase(Connection connection, String path) {
+        this.connection = connection;
+        this.path = path;
+    }
+
+    /** Opens {@code path}, or a private in-memory database when it is null. */
+    public static SQLiteDatabase openOrCreateDatabase(String path) {
+        try {
+            String url = "jdbc:sqlite:" + (path != null ? path : ":memory:");
+            return new SQLiteDatabase(DriverManager.getConnection(url), path != null ? path : ":memory:");
+        } catch (SQLException e) {
+            throw new SQLiteException("Could not open " + path, e);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isOpen() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            for (PreparedStatement statement : statementCache.values()) {
+                statement.close();
+            }
+            statementCache.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getVersion() {
+        return (int) longForQuery("PRAGMA user_version");
+    }
+
+    public void setVersion(int version) {
+        execSQL("PRAGMA user_version = " + version);
+    }
+
+    public void setForeignKeyConstraintsEnabled(boolean enable) {
+        execSQL("PRAGMA foreign_keys = " + (enable ? "ON" : "OFF"));
+    }
+
+    /** Switches a file database to WAL; false for in-memory databases, as on Android. */
+    public boolean enableWriteAheadLogging() {
+        if (":memory:".equals(path)) {
+            return false;
+        }
+        if (!writeAheadLogging) {
+            Cursor cursor = rawQuery("PRAGMA journal_mode = WAL", null);
+            cursor.close();
+            writeAheadLogging = true;
+        }
+        return true;
+    }
+
+    public boolean isWriteAheadLoggingEnabled() {
+        return writeAheadLogging;
+    }
+
+    public void setMaxSqlCacheSize(int cacheSize) {
+        if (cacheSize > MAX_SQL_CACHE_SIZE || cacheSize < 0) {
+            throw new IllegalStateException("expected value between 0 and " + MAX_SQL_CACHE_SIZE);
+        }
+        lock.lock();
+        try {
+            maxSqlCacheSize = cacheSize;
+            trimStatementCache();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void beginTransaction() {
+        lock.lock();
+        try {
+            if (transactions.isEmpty()) {
+                execSQL("BEGIN EXCLUSIVE");
+                transactionFailed = false;
+            }
+            transactions.push(false);
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    public void setTransactionSuccessful() {
+        checkInTransaction();
+        transactions.pop();
+        transactions.push(true);
+    }
+
+    public void endTransaction() {
+        checkInTransaction();
+        try {
+            if (!transactions.pop()) {
+                transactionFailed = true;
+            }
+            if (transactions.isEmpty()) {
+                execSQL(transactionFailed ? "ROLLBACK" : "COMMIT");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean inTransaction() {
+        return lock.isHeldByCurrentThread() && !transactions.isEmpty();
+    }
+
+    public void execSQL(String sql) {
+        lock.lock();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void execSQL(String sql, Object[] bindArgs) {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bindArgs.length; i++) {
+                bind(statement, i + 1, bindArgs[i]);
+            }
+            statement.execute();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        lock.lock();
+        PreparedStatement statement = null;
+        try {
+            statement = acquireStatement(sql);
+            if (selectionArgs != null) {
+                for (int i = 0; i < selectionArgs.length; i++) {
+                    statement.setString(i + 1, selectionArgs[i]);
+                }
+            }
+            if (!statement.execute()) {
+                return new MatrixCursor(new String[0]);
+            }
+            try (ResultSet results = statement.getResultSet()) {
+                return toCursor(results);
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            if (statement != null) {
+                releaseStatement(statement);
+            }
+            lock.unlock();
+        }
+    }
+
+    public SQLiteStatement compileStatement(String sql) {
+        lock.lock();
+        try {
+            return new SQLiteStatement(this, acquireStatement(sql));
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns the new row id, or -1 if the row could not be written. */
+    public long insert(String table, String nullColumnHack, ContentValues values) {
+        try {
+            return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_NONE);
+        } catch (android.database.SQLException e) {
+            return -1;
+        }
+    }
+
+    public long insertWithOnConflict(String table, String nullColumnHack, ContentValues initialValues,
+                                     int conflictAlgorithm) {
+        StringBuilder sql = new StringBuilder("INSERT").append(CONFLICT_CLAUSES[conflictAlgorithm])
+                .append(" INTO ").append(table).append(" (");
+        Object[] args;
+        if (initialValues == null || initialValues.size() == 0) {
+            sql.append(nullColumnHack).append(") VALUES (NULL)");
+            args = new Object[0];
+        } else {
+            args = new Object[initialValues.size()];
+            int i = 0;
+            for (Map.Entry<String, Object> entry : initialValues.valueSet()) {
+                sql.append(i > 0 ? "," : "").append(entry.getKey());
+                args[i++] = entry.getValue();
+            }
+            sql.append(") VALUES (");
+            for (i = 0; i < args.length; i++) {
+                sql.append(i > 0 ? ",?" : "?");
+            }
+            sql.append(')');
+        }
+        SQLiteStatement statement = compileStatement(sql.toString());
+        try {
+            for (int i = 0; i < args.length; i++) {
+                statement.bind(i + 1, args[i]);
+            }
+            return statement.executeInsert();
+        } finally {
+            statement.close();
+        }
+    }
+
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        SQLiteStatement statement = compileStatement("DELETE FROM " + table +
+                (whereClause != null && !whereClause.isEmpty() ? " WHERE " + whereClause : ""));
+        try {
+            if (whereArgs != null) {
+                for (int i = 0; i < whereArgs.length; i++) {
+                    statement.bindString(i + 1, whereArgs[i]);
+                }
+            }
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    void acquire() {
+        lock.lock();
+    }
+
+    // Called with the lock held. The caller owns the statement until it releases it.
+    private PreparedStatement acquireStatement(String sql) throws SQLException {
+        PreparedStatement cached = statementCache.get(sql);
+        if (cached != null && statementsInUse.add(cached)) {
+            return cached;
+        }
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (cached == null && maxSqlCacheSize > 0) {
+            statementCache.put(sql, statement);
+            statementsInUse.add(statement);
+            trimStatementCache();
+        }
+        return statement;
+    }
+
+    void releaseStatement(PreparedStatement statement) {
+        lock.lock();
+        try {
+            if (statementsInUse.remove(statement) && statementCache.containsValue(statement)) {
+                statement.clearParameters();
+            } else {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held. Statements in use are closed when released.
+    private void trimStatementCache() {
+        Iterator<PreparedStatement> eldest = statementCache.values().iterator();
+        while (statementCache.size() > maxSqlCacheSize && eldest.hasNext()) {
+            PreparedStatement statement = eldest.next();
+            eldest.remove();
+            if (!statementsInUse.contains(statement)) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    throw translate(e);
+                }
+            }
+        }
+    }
+
+    void release() {
+        lock.unlock();
+    }
+
+    // Called with the lock held, straight after a write on this connection.
+    long lastInsertRowId() throws SQLException {
+        if (lastInsertRowId == null) {
+            lastInsertRowId = connection.prepareStatement("SELECT last_insert_rowid()");
+        }
+        try (ResultSet results = lastInsertRowId.executeQuery()) {
+            return results.getLong(1);
+        }
+    }
+
+    static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, java.sql.Types.NULL);
+        } else if (value instanceof String) {
+            statement.setString(index, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.setDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.setLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.setLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.setBytes(index, (byte[]) value);
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    static SQLiteException translate(SQLException e) {
+        return new SQLiteException(e.getMessage(), e);
+    }
+
+    private long longForQuery(String sql) {
+        Cursor cursor = rawQuery(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Cursor toCursor(ResultSet results) throws SQLException {
+        ResultSetMetaData metaData = results.getMetaData();
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+        }
+        MatrixCursor cursor = new MatrixCursor(columns);
+        while (results.next()) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = results.getObject(i + 1);
+            }
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    private void checkInTransaction() {
+        if (!inTransaction()) {
+            throw new IllegalStateException("No transaction is open on this thread");
+        }
+    }
+}
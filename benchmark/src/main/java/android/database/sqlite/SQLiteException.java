@@ -0,0 +1,15 @@
+package android.database.sqlite;
+
+import android.database.SQLException;
+
+/** Thrown for any error reported by the underlying JDBC driver. */
+public class SQLiteException extends SQLException {
+
+    public SQLiteException(String message) {
+        super(message);
+    }
+
+    public SQLiteException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
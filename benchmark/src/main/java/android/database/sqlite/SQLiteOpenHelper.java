@@ -0,0 +1,91 @@
+package android.database.sqlite;
+
+import android.content.Context;
+
+/**
+ * JVM stand-in for Android's SQLiteOpenHelper: opens the database once, runs
+ * onConfigure, then onCreate or onUpgrade in a transaction keyed on
+ * PRAGMA user_version, then onOpen. The name is used as a file path; null opens
+ * a private in-memory database.
+ */
+public abstract class SQLiteOpenHelper implements AutoCloseable {
+
+    private final String name;
+    private final int version;
+    private SQLiteDatabase database;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Version must be >= 1, was " + version);
+        }
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getDatabaseName() {
+        return name;
+    }
+
+    public synchronized SQLiteDatabase getWritableDatabase() {
+        if (database == null || !database.isOpen()) {
+            database = open();
+        }
+        return database;
+    }
+
+    /** Same connection as {@link #getWritableDatabase()}, as on Android when the disk is writable. */
+    public SQLiteDatabase getReadableDatabase() {
+        return getWritableDatabase();
+    }
+
+    private SQLiteDatabase open() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(name);
+        try {
+            onConfigure(db);
+            int current = db.getVersion();
+            if (current != version) {
+                db.beginTransaction();
+                try {
+                    if (current == 0) {
+                        onCreate(db);
+                    } else if (current > version) {
+                        onDowngrade(db, current, version);
+                    } else {
+                        onUpgrade(db, current, version);
+                    }
+                    db.setVersion(version);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            onOpen(db);
+            return db;
+        } catch (RuntimeException e) {
+            db.close();
+            throw e;
+        }
+    }
+
+    public void onConfigure(SQLiteDatabase db) {
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        throw new SQLiteException("Can't downgrade database from version " + oldVersion + " to " + newVersion);
+    }
+
+    public void onOpen(SQLiteDatabase db) {
+    }
+
+    @Override
+    public synchronized void close() {
+        if (database != null && database.isOpen()) {
+            database.close();
+        }
+        database = null;
+    }
+}
@@ -0,0 +1,130 @@
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/** A compiled statement; JVM stand-in for Android's SQLiteStatement. */
+public final class SQLiteStatement {
+
+    private final SQLiteDatabase database;
+    private final PreparedStatement statement;
+    private boolean closed;
+
+    SQLiteStatement(SQLiteDatabase database, PreparedStatement statement) {
+        this.database = database;
+        this.statement = statement;
+    }
+
+    public void bindNull(int index) {
+        bind(index, null);
+    }
+
+    public void bindLong(int index, long value) {
+        bind(index, value);
+    }
+
+    public void bindDouble(int index, double value) {
+        bind(index, value);
+    }
+
+    public void bindString(int index, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        bind(index, value);
+    }
+
+    public void bindBlob(int index, byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        bind(index, value);
+    }
+
+    public void clearBindings() {
+        try {
+            statement.clearParameters();
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        }
+    }
+
+    public void execute() {
+        database.acquire();
+        try {
+            statement.execute();
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        } finally {
+            database.release();
+        }
+    }
+
+    /** Row id of the inserted row, or -1 if no row was inserted (e.g. INSERT OR IGNORE). */
+    public long executeInsert() {
+        database.acquire();
+        try {
+            return statement.executeUpdate() > 0 ? database.lastInsertRowId() : -1;
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        } finally {
+            database.release();
+        }
+    }
+
+    public int executeUpdateDelete() {
+        database.acquire();
+        try {
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        } finally {
+            database.release();
+        }
+    }
+
+    public long simpleQueryForLong() {
+        database.acquire();
+        try (ResultSet results = statement.executeQuery()) {
+            if (!results.next()) {
+                throw new SQLiteException("query returned no rows");
+            }
+            return results.getLong(1);
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        } finally {
+            database.release();
+        }
+    }
+
+    public String simpleQueryForString() {
+        database.acquire();
+        try (ResultSet results = statement.executeQuery()) {
+            if (!results.next()) {
+                throw new SQLiteException("query returned no rows");
+            }
+            return results.getString(1);
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        } finally {
+            database.release();
+        }
+    }
+
+    /** Hands the statement back to the database's cache. */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            database.releaseStatement(statement);
+        }
+    }
+
+    void bind(int index, Object value) {
+        try {
+            SQLiteDatabase.bind(statement, index, value);
+        } catch (SQLException e) {
+            throw SQLiteDatabase.translate(e);
+        }
+    }
+}